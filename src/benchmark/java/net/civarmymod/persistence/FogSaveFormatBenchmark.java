@@ -0,0 +1,98 @@
+package net.civarmymod.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 저장 파일 형식의 쓰기/읽기 시간과 파일 크기 측정
+ * 정사각형 영역에 모인 청크들(탐험한 지역)과 그중 일부의 스냅샷으로 컬럼 데이터를 만들어 반복 측정합니다.
+ *
+ * 실행: ./gradlew saveFormatBenchmark
+ */
+public final class FogSaveFormatBenchmark {
+    private static final int[] CHUNK_COUNTS = { 10_000, 100_000 };
+    private static final int SNAPSHOT_PERCENT = 20; // FOGGED 청크 비율 (스냅샷 보유)
+    private static final int SECTIONS_PER_SNAPSHOT = 24;
+    private static final int UNIQUE_SECTIONS = 2_000;
+    private static final int SECTION_BYTES = 1024;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private FogSaveFormatBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("fog-save-benchmark", ".dat");
+        try {
+            System.out.printf("%10s %10s %12s %12s %12s%n", "청크", "스냅샷", "쓰기(ms)", "읽기(ms)", "파일(KiB)");
+            for (int chunkCount : CHUNK_COUNTS) {
+                FogSaveFormat.Columns columns = buildColumns(chunkCount, new Random(42L + chunkCount));
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    FogSaveFormat.write(file, columns);
+                    FogSaveFormat.read(file);
+                }
+                long writeNanos = 0;
+                long readNanos = 0;
+                for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                    long start = System.nanoTime();
+                    FogSaveFormat.write(file, columns);
+                    writeNanos += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    FogSaveFormat.Columns read = FogSaveFormat.read(file);
+                    readNanos += System.nanoTime() - start;
+                    if (read.chunkKeys.length != chunkCount) throw new IllegalStateException("round trip mismatch");
+                }
+                System.out.printf("%10d %10d %12.1f %12.1f %12d%n", chunkCount, columns.snapshotKeys.length,
+                        writeNanos / 1e6 / MEASURE_ROUNDS, readNanos / 1e6 / MEASURE_ROUNDS, Files.size(file) / 1024);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+        }
+    }
+
+    private static FogSaveFormat.Columns buildColumns(int chunkCount, Random random) {
+        int side = (int) Math.ceil(Math.sqrt(chunkCount));
+        FogSaveFormat.Columns columns = new FogSaveFormat.Columns();
+        columns.chunkKeys = new long[chunkCount];
+        columns.states = new byte[chunkCount];
+        columns.fogBlockIndices = new short[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int x = i % side - side / 2;
+            int z = i / side - side / 2;
+            columns.chunkKeys[i] = chunkKey(x, z);
+            columns.states[i] = (byte) (random.nextInt(100) < SNAPSHOT_PERCENT ? 1 : 2);
+        }
+        Arrays.sort(columns.chunkKeys);
+
+        columns.sectionBytes = SECTION_BYTES;
+        columns.sectionTable = new byte[UNIQUE_SECTIONS * SECTION_BYTES];
+        for (int i = 0; i < columns.sectionTable.length; i += 64) {
+            // 지형 섹션처럼 같은 값이 길게 이어지도록 64바이트 단위로 채움
+            Arrays.fill(columns.sectionTable, i, i + 64, (byte) random.nextInt(4));
+        }
+
+        int snapshotCount = chunkCount * SNAPSHOT_PERCENT / 100;
+        columns.snapshotKeys = new long[snapshotCount];
+        columns.snapshotBottomY = new int[snapshotCount];
+        columns.snapshotSectionCounts = new int[snapshotCount];
+        columns.snapshotSectionRefs = new int[snapshotCount * SECTIONS_PER_SNAPSHOT];
+        for (int i = 0; i < snapshotCount; i++) {
+            columns.snapshotKeys[i] = columns.chunkKeys[i * (chunkCount / snapshotCount)];
+            columns.snapshotBottomY[i] = -64;
+            columns.snapshotSectionCounts[i] = SECTIONS_PER_SNAPSHOT;
+            for (int s = 0; s < SECTIONS_PER_SNAPSHOT; s++) {
+                columns.snapshotSectionRefs[i * SECTIONS_PER_SNAPSHOT + s] = s < 8 ? random.nextInt(UNIQUE_SECTIONS) : -1;
+            }
+        }
+        return columns;
+    }
+
+    /** ChunkPos.toLong과 같은 배치 */
+    private static long chunkKey(int x, int z) {
+        return (x & 0xFFFFFFFFL) | ((z & 0xFFFFFFFFL) << 32);
+    }
+}
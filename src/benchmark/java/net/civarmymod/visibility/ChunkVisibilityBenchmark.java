@@ -0,0 +1,81 @@
+package net.civarmymod.visibility;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ChunkVisibilityGrid 처리량 측정
+ * 관찰자 수와 풀 병렬도(코어 수)를 바꿔 가며 초당 가시성 계산 횟수를 출력합니다.
+ * 관찰자는 부대처럼 몇 개의 무리로 모여 있도록 배치합니다.
+ *
+ * 실행: ./gradlew visibilityBenchmark
+ */
+public final class ChunkVisibilityBenchmark {
+    private static final int[] OBSERVER_COUNTS = { 256, 1_000, 5_000, 20_000 };
+    private static final int RADIUS = 3; // 기본 나가기 반경 + 1 (스캔 반경)
+    private static final int CLUSTERS = 16;
+    private static final int CLUSTER_SPREAD = 40; // 무리 하나의 퍼짐 (청크)
+    private static final int WORLD_SPREAD = 600; // 무리 중심의 분포 범위 (청크)
+    private static final long WARMUP_MS = 1_000;
+    private static final long MEASURE_MS = 2_000;
+
+    private ChunkVisibilityBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("코어 " + cores + "개, 반경 " + RADIUS + ", 병렬 기준 " + ChunkVisibilityGrid.PARALLEL_THRESHOLD + "명");
+        System.out.printf("%8s %6s %12s %12s %10s%n", "관찰자", "병렬도", "회/초", "ms/회", "표시 청크");
+
+        for (int count : OBSERVER_COUNTS) {
+            int[] xs = new int[count];
+            int[] zs = new int[count];
+            placeObservers(xs, zs, new Random(42L + count));
+            for (int parallelism = 1; parallelism <= cores; parallelism = nextParallelism(parallelism, cores)) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    run(xs, zs, pool, WARMUP_MS);
+                    long start = System.nanoTime();
+                    long[] result = run(xs, zs, pool, MEASURE_MS);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    double perSecond = result[0] / seconds;
+                    System.out.printf("%8d %6d %12.1f %12.3f %10d%n",
+                            count, parallelism, perSecond, 1000.0 / perSecond, result[1]);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /** 주어진 시간 동안 계산을 반복하고 {반복 횟수, 표시 청크 수}를 반환 */
+    private static long[] run(int[] xs, int[] zs, ForkJoinPool pool, long durationMs) {
+        long deadline = System.nanoTime() + durationMs * 1_000_000L;
+        long iterations = 0;
+        int marked = 0;
+        while (System.nanoTime() < deadline) {
+            ChunkVisibilityGrid grid = ChunkVisibilityGrid.compute(xs, zs, xs.length, RADIUS, pool);
+            marked = grid.cardinality(); // 결과를 사용해 계산이 생략되지 않도록 함
+            iterations++;
+        }
+        return new long[] { iterations, marked };
+    }
+
+    private static void placeObservers(int[] xs, int[] zs, Random random) {
+        int[] centerXs = new int[CLUSTERS];
+        int[] centerZs = new int[CLUSTERS];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centerXs[i] = random.nextInt(WORLD_SPREAD * 2) - WORLD_SPREAD;
+            centerZs[i] = random.nextInt(WORLD_SPREAD * 2) - WORLD_SPREAD;
+        }
+        for (int i = 0; i < xs.length; i++) {
+            int cluster = random.nextInt(CLUSTERS);
+            xs[i] = centerXs[cluster] + (int) (random.nextGaussian() * CLUSTER_SPREAD);
+            zs[i] = centerZs[cluster] + (int) (random.nextGaussian() * CLUSTER_SPREAD);
+        }
+    }
+
+    private static int nextParallelism(int parallelism, int cores) {
+        return parallelism < cores && parallelism * 2 > cores ? cores : parallelism * 2;
+    }
+}
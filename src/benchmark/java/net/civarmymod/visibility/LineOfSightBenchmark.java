@@ -0,0 +1,76 @@
+package net.civarmymod.visibility;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * 시야선 계산 비용 측정
+ * 합성 지형(사인파 언덕) 위에서 반경별로 관찰자 한 명당 계산 시간을 출력합니다.
+ * - 새로 계산: 모든 관찰자가 청크를 옮긴 경우 (캐시 없음)
+ * - 캐시 재사용: 관찰자가 같은 청크에 머문 경우
+ *
+ * 실행: ./gradlew lineOfSightBenchmark
+ */
+public final class LineOfSightBenchmark {
+    private static final int[] RADII = { 2, 4, 6, 8 };
+    private static final int OBSERVERS = 2_000;
+    private static final int WORLD_SPREAD = 500; // 관찰자 분포 범위 (청크)
+    private static final long WARMUP_MS = 1_000;
+    private static final long MEASURE_MS = 2_000;
+
+    private LineOfSightBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        ChunkLineOfSight.HeightSource terrain = (chunkX, chunkZ) ->
+                (int) (80 + 40 * Math.sin(chunkX * 0.37) * Math.cos(chunkZ * 0.29) + 15 * Math.sin((chunkX + chunkZ) * 1.3));
+
+        Random random = new Random(42L);
+        UUID[] uuids = new UUID[OBSERVERS];
+        int[] xs = new int[OBSERVERS];
+        int[] zs = new int[OBSERVERS];
+        double[] eyeYs = new double[OBSERVERS];
+        for (int i = 0; i < OBSERVERS; i++) {
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            xs[i] = random.nextInt(WORLD_SPREAD * 2) - WORLD_SPREAD;
+            zs[i] = random.nextInt(WORLD_SPREAD * 2) - WORLD_SPREAD;
+            eyeYs[i] = terrain.getMaxHeight(xs[i], zs[i]) + 1.62;
+        }
+
+        System.out.println("관찰자 " + OBSERVERS + "명");
+        System.out.printf("%6s %16s %16s %12s%n", "반경", "새로 계산(us/명)", "재사용(us/명)", "보이는 비율");
+        for (int radius : RADII) {
+            measure(terrain, uuids, xs, zs, eyeYs, radius, 0, WARMUP_MS); // 워밍업
+            double traceMicros = measure(terrain, uuids, xs, zs, eyeYs, radius, 0, MEASURE_MS);
+            double reuseMicros = measure(terrain, uuids, xs, zs, eyeYs, radius, 1, MEASURE_MS);
+
+            LineOfSightTracker tracker = new LineOfSightTracker();
+            LineOfSightTracker.Result result = tracker.update(uuids, xs, zs, eyeYs, OBSERVERS, radius, terrain, 0, Long.MAX_VALUE);
+            double visibleRatio = (double) result.count / (OBSERVERS * (2.0 * radius + 1) * (2.0 * radius + 1));
+            System.out.printf("%6d %16.2f %16.3f %11.1f%%%n", radius, traceMicros, reuseMicros, visibleRatio * 100);
+        }
+    }
+
+    /**
+     * 관찰자 한 명당 평균 시간 (마이크로초)
+     * @param heightVersionStep 0이면 매번 높이 세대를 바꿔 전부 다시 계산, 1이면 같은 세대로 캐시 재사용
+     */
+    private static double measure(ChunkLineOfSight.HeightSource terrain, UUID[] uuids, int[] xs, int[] zs, double[] eyeYs,
+                                  int radius, int heightVersionStep, long durationMs) {
+        LineOfSightTracker tracker = new LineOfSightTracker();
+        int version = 0;
+        tracker.update(uuids, xs, zs, eyeYs, OBSERVERS, radius, terrain, version, Long.MAX_VALUE);
+        long deadline = System.nanoTime() + durationMs * 1_000_000L;
+        long start = System.nanoTime();
+        long observers = 0;
+        long checksum = 0;
+        while (System.nanoTime() < deadline) {
+            version += heightVersionStep == 0 ? 1 : 0;
+            LineOfSightTracker.Result result = tracker.update(uuids, xs, zs, eyeYs, OBSERVERS, radius, terrain, version, Long.MAX_VALUE);
+            checksum += result.count; // 결과를 사용해 계산이 생략되지 않도록 함
+            observers += OBSERVERS;
+        }
+        if (checksum < 0) System.out.println(checksum);
+        return (System.nanoTime() - start) / 1000.0 / observers;
+    }
+}
@@ -1,7 +1,22 @@
 package net.civarmymod;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.caffeinemc.mods.sodium.client.render.SodiumWorldRenderer;
+import net.civarmymod.render.FogRebuildFilter;
+import net.civarmymod.render.FogRegionVisibility;
+import net.civarmymod.render.FogSectionTransform;
+import net.civarmymod.snapshot.ChunkSnapshot;
+import net.civarmymod.snapshot.SnapshotStore;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
 import net.minecraft.world.dimension.DimensionType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,6 +25,18 @@ public class ChunkReloadManager {
 
     private static final Logger LOGGER = LogManager.getLogger("CivArmyMod/ChunkReloadManager");
 
+    // 이웃 열 방향 (서, 동, 북, 남)
+    private static final int[] NEIGHBOUR_DX = {-1, 1, 0, 0};
+    private static final int[] NEIGHBOUR_DZ = {0, 0, -1, 1};
+
+    private static final long EMPTY_BORDER_HASH = 0L; // 경계 층이 전부 공기
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 청크 열 키(ChunkPos.toLong) → 마지막 리빌드 요청 때 네 방향 경계 층의 내용 해시 ([방향 * 섹션 수 + 섹션])
+    // 이웃 메시는 맞닿은 경계 층만 보므로, 해시가 같은 섹션은 이웃을 다시 리빌드하지 않음 (메인 스레드 전용)
+    private static final Long2ObjectOpenHashMap<long[]> BORDER_HASHES = new Long2ObjectOpenHashMap<>();
+
     /**
      * Sodium 렌더러를 사용하여 특정 청크 열 (모든 수직 섹션 포함)의 리빌드를 요청합니다.
      * 이 메서드는 Sodium 모드가 로드되었을 때만 호출되어야 합니다.
@@ -18,15 +45,28 @@ public class ChunkReloadManager {
      * @param chunkZ 리빌드할 청크의 Z 좌표
      */
     public static void requestChunkReload(int chunkX, int chunkZ) {
+        LongOpenHashSet columns = new LongOpenHashSet(1);
+        columns.add(ChunkPos.toLong(chunkX, chunkZ));
+        requestChunkReloads(columns);
+    }
+
+    /**
+     * 여러 청크 열을 한 번에 리빌드합니다. (저장 데이터 공개, 일괄 상태 변경)
+     * 같은 묶음에 속한 이웃 열은 어차피 전체가 리빌드되므로 경계 리빌드를 따로 예약하지 않습니다.
+     *
+     * @param columns 청크 열 키 (ChunkPos.toLong)
+     */
+    public static void requestChunkReloads(LongSet columns) {
+        if (columns.isEmpty()) return;
         MinecraftClient client = MinecraftClient.getInstance();
         if (client == null || client.world == null) {
-            LOGGER.error("청크 리로드 실패: MinecraftClient 또는 ClientWorld가 null입니다. (ChunkX: {}, ChunkZ: {})", chunkX, chunkZ);
+            LOGGER.error("청크 리로드 실패: MinecraftClient 또는 ClientWorld가 null입니다. (열 {}개)", columns.size());
             return;
         }
 
         SodiumWorldRenderer sodiumRenderer = SodiumWorldRenderer.instanceNullable();
         if (sodiumRenderer == null) {
-            LOGGER.error("Sodium 청크 리로드 실패: SodiumWorldRenderer 인스턴스를 가져올 수 없습니다. (ChunkX: {}, ChunkZ: {})", chunkX, chunkZ);
+            LOGGER.error("Sodium 청크 리로드 실패: SodiumWorldRenderer 인스턴스를 가져올 수 없습니다. (열 {}개)", columns.size());
             return;
         }
 
@@ -35,20 +75,206 @@ public class ChunkReloadManager {
         int minBuildHeight = dimensionType.minY();
         int maxBuildHeight = dimensionType.minY() + dimensionType.height();
 
-        LOGGER.info("DimensionType Info: minY={}, height={}, logicalHeight={}", dimensionType.minY(), dimensionType.height(), dimensionType.logicalHeight());
-        LOGGER.info("Calculated Build Heights: minBuildHeight={}, maxBuildHeight={}", minBuildHeight, maxBuildHeight);
+        LOGGER.debug("DimensionType Info: minY={}, height={}, logicalHeight={}", dimensionType.minY(), dimensionType.height(), dimensionType.logicalHeight());
+        LOGGER.debug("Calculated Build Heights: minBuildHeight={}, maxBuildHeight={}", minBuildHeight, maxBuildHeight);
 
         int minSectionY = minBuildHeight >> 4; // minBuildHeight / 16과 동일 (섹션 인덱스)
         int maxSectionY = (maxBuildHeight -1) >> 4; // (maxBuildHeight - 1) / 16과 동일 (섹션 인덱스)
 
-        LOGGER.info("Sodium: 청크 ({}, {})의 리빌드 요청 시작. MinSectionY: {}, MaxSectionY: {}", chunkX, chunkZ, minSectionY, maxSectionY);
+        FogRebuildFilter.beginBypass(); // 상태 변경에 따른 리빌드는 필터링하지 않음
+        try {
+            for (LongIterator it = columns.iterator(); it.hasNext(); ) {
+                long key = it.nextLong();
+                int chunkX = ChunkPos.getPackedX(key);
+                int chunkZ = ChunkPos.getPackedZ(key);
+                LOGGER.debug("Sodium: 청크 ({}, {})의 리빌드 요청 시작. MinSectionY: {}, MaxSectionY: {}", chunkX, chunkZ, minSectionY, maxSectionY);
+
+                FogRebuildFilter.clearSuppressed(chunkX, chunkZ); // 열 전체를 리빌드하므로 억제 기록은 필요 없음
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    // SodiumWorldRenderer.scheduleRebuildForChunk는 청크 섹션 좌표를 사용합니다.
+                    // (chunkX, sectionY, chunkZ)
+                    sodiumRenderer.scheduleRebuildForChunk(chunkX, sectionY, chunkZ, true); // true는 'important' 플래그입니다.
+                    LOGGER.debug("Sodium: 청크 ({}, {}), 섹션 Y: {} 리빌드 스케줄됨.", chunkX, chunkZ, sectionY);
+                }
+                int neighbourSections = scheduleBorderNeighbours(world, sodiumRenderer, chunkX, chunkZ, minSectionY, maxSectionY, columns);
+                LOGGER.debug("Sodium: 청크 ({}, {}) 경계를 공유하는 이웃 섹션 {}개 리빌드 스케줄됨.", chunkX, chunkZ, neighbourSections);
+                LOGGER.debug("Sodium: 청크 ({}, {})에 대한 모든 섹션 리빌드 요청 완료.", chunkX, chunkZ);
+            }
+        } finally {
+            FogRebuildFilter.endBypass();
+        }
+    }
+
+    /** 언로드된 청크 열의 경계 해시 기록 제거 (다시 로드되면 처음부터 메싱됨) */
+    public static void forgetColumn(int chunkX, int chunkZ) {
+        if (!BORDER_HASHES.isEmpty()) {
+            BORDER_HASHES.remove(ChunkPos.toLong(chunkX, chunkZ));
+        }
+    }
+
+    /** 월드를 떠날 때 경계 해시 기록 전체 제거 */
+    public static void clearBorderHashes() {
+        BORDER_HASHES.clear();
+    }
+
+    /**
+     * 안개 상태 때문에 억제했던 블록/빛 변경 리빌드 중, 다시 VISIBLE이 된 청크의 섹션만 한 번 리빌드합니다.
+     * 메인(렌더) 스레드에서 매 틱 호출됩니다.
+     */
+    public static void flushSuppressedRebuilds() {
+        SodiumWorldRenderer sodiumRenderer = SodiumWorldRenderer.instanceNullable();
+        if (sodiumRenderer == null) return;
+        int flushed = FogRebuildFilter.drainVisible((x, y, z) -> sodiumRenderer.scheduleRebuildForChunk(x, y, z, false));
+        if (flushed > 0) {
+            LOGGER.debug("Sodium: 억제되었던 섹션 리빌드 {}개 처리", flushed);
+        }
+    }
+
+    /**
+     * 바뀐 열과 맞닿은 네 이웃 열 중, 두 조건을 모두 만족하는 섹션만 리빌드합니다.
+     * - 바뀐 열이 그 이웃 쪽으로 보여 주는 경계 층의 내용이 지난 요청 때와 다름 (해시 비교)
+     * - 이웃의 맞닿은 경계 층에 공기가 아닌 블록이 있음 (비어 있으면 바뀐 열 쪽으로 그려지는 면이 없음)
+     * 이웃이 그리는 내용 기준으로 판단합니다: VISIBLE은 실제 블록, FOGGED는 스냅샷, HIDDEN/고정 메시는 건너뜀
+     *
+     * @param batch 함께 전체 리빌드되는 열 (이 열들은 이웃으로 다시 예약하지 않음)
+     * @return 스케줄한 이웃 섹션 수
+     */
+    private static int scheduleBorderNeighbours(ClientWorld world, SodiumWorldRenderer sodiumRenderer,
+                                                int chunkX, int chunkZ, int minSectionY, int maxSectionY, LongSet batch) {
+        int sectionCount = maxSectionY - minSectionY + 1;
+        long[] borderHashes = computeBorderHashes(world, chunkX, chunkZ, minSectionY, sectionCount);
+        long[] previousHashes = BORDER_HASHES.put(ChunkPos.toLong(chunkX, chunkZ), borderHashes);
+        if (previousHashes != null && previousHashes.length != borderHashes.length) previousHashes = null; // 높이가 다른 차원
+
+        int scheduled = 0;
+        for (int i = 0; i < NEIGHBOUR_DX.length; i++) {
+            int neighbourX = chunkX + NEIGHBOUR_DX[i];
+            int neighbourZ = chunkZ + NEIGHBOUR_DZ[i];
+            if (batch.contains(ChunkPos.toLong(neighbourX, neighbourZ))) continue; // 같은 묶음에서 전체 리빌드됨
+            if (!world.getChunkManager().isChunkLoaded(neighbourX, neighbourZ)) continue;
+            if (FogRegionVisibility.isHiddenColumn(neighbourX, neighbourZ)) continue; // 그려지는 것이 없음
+            if (FogOfWarClient.isFrozenChunk(neighbourX, neighbourZ)) continue; // 고정 메시는 그대로 유지
+
+            // 이웃 열에서 바뀐 열을 향하는 경계 층의 로컬 좌표 (-1이면 해당 축은 전체)
+            int borderX = NEIGHBOUR_DX[i] < 0 ? 15 : NEIGHBOUR_DX[i] > 0 ? 0 : -1;
+            int borderZ = NEIGHBOUR_DZ[i] < 0 ? 15 : NEIGHBOUR_DZ[i] > 0 ? 0 : -1;
+            boolean fogged = FogOfWarClient.isFoggedChunk(neighbourX, neighbourZ)
+                    && FogOfWarClient.getChunkSnapshot(neighbourX << 4, 0, neighbourZ << 4) != null;
+            WorldChunk chunk = fogged ? null : world.getChunkManager().getWorldChunk(neighbourX, neighbourZ);
+
+            for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                int hashIndex = i * sectionCount + (sectionY - minSectionY);
+                if (previousHashes != null && previousHashes[hashIndex] == borderHashes[hashIndex]) continue; // 이웃이 보는 경계가 그대로임
+                boolean hasBorderContent = fogged
+                        ? hasSnapshotBorderContent(neighbourX, sectionY, neighbourZ, borderX, borderZ)
+                        : hasWorldBorderContent(world, chunk, sectionY, borderX, borderZ);
+                if (hasBorderContent) {
+                    sodiumRenderer.scheduleRebuildForChunk(neighbourX, sectionY, neighbourZ, false);
+                    scheduled++;
+                }
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * 바뀐 열이 네 방향 이웃에게 보여 주는 경계 층의 내용 해시를 계산합니다.
+     * 이웃 메싱과 같은 규칙으로 읽습니다: VISIBLE은 실제 블록, FOGGED는 스냅샷(고체 → 흙, 액체 → 돌), 그 외는 공기
+     *
+     * @return [방향 * sectionCount + 섹션] 순서의 해시 (경계 층이 전부 공기면 EMPTY_BORDER_HASH)
+     */
+    private static long[] computeBorderHashes(ClientWorld world, int chunkX, int chunkZ, int minSectionY, int sectionCount) {
+        long[] hashes = new long[NEIGHBOUR_DX.length * sectionCount];
+        boolean visible = FogOfWarClient.isVisibleChunk(chunkX, chunkZ);
+        ChunkSnapshot snapshot = !visible && FogOfWarClient.isFoggedChunk(chunkX, chunkZ)
+                ? FogOfWarClient.getChunkSnapshot(chunkX << 4, 0, chunkZ << 4) : null;
+        WorldChunk chunk = visible ? world.getChunkManager().getWorldChunk(chunkX, chunkZ) : null;
+        SnapshotStore store = FogOfWarClient.getSnapshotStore();
+        if (chunk == null && (snapshot == null || store == null)) return hashes; // 전부 공기로 그려짐
+
+        ChunkSection[] sections = chunk != null ? chunk.getSectionArray() : null;
+        for (int i = 0; i < NEIGHBOUR_DX.length; i++) {
+            // 바뀐 열에서 이웃 i를 향하는 경계 층의 로컬 좌표 (-1이면 해당 축은 전체)
+            int borderX = NEIGHBOUR_DX[i] < 0 ? 0 : NEIGHBOUR_DX[i] > 0 ? 15 : -1;
+            int borderZ = NEIGHBOUR_DZ[i] < 0 ? 0 : NEIGHBOUR_DZ[i] > 0 ? 15 : -1;
+            for (int s = 0; s < sectionCount; s++) {
+                int sectionY = minSectionY + s;
+                long hash = FNV_OFFSET_BASIS;
+                boolean any = false;
+                if (sections != null) {
+                    int sectionIndex = world.sectionCoordToIndex(sectionY);
+                    ChunkSection section = sectionIndex >= 0 && sectionIndex < sections.length ? sections[sectionIndex] : null;
+                    if (section == null || section.isEmpty()) continue;
+                    for (int y = 0; y < 16; y++) {
+                        for (int j = 0; j < 16; j++) {
+                            BlockState state = section.getBlockState(borderX < 0 ? j : borderX, y, borderZ < 0 ? j : borderZ);
+                            if (!state.isAir()) any = true;
+                            hash = (hash ^ Block.getRawIdFromState(state)) * FNV_PRIME;
+                        }
+                    }
+                } else {
+                    if (FogSectionTransform.getUniformKind(chunkX, sectionY, chunkZ) == FogSectionTransform.UNIFORM_AIR) continue;
+                    int minX = chunkX << 4;
+                    int minY = sectionY << 4;
+                    int minZ = chunkZ << 4;
+                    for (int y = 0; y < 16; y++) {
+                        for (int j = 0; j < 16; j++) {
+                            int type = snapshot.getBlockType(store, minX + (borderX < 0 ? j : borderX), minY + y, minZ + (borderZ < 0 ? j : borderZ));
+                            if (type == 1 || type == 2) any = true;
+                            hash = (hash ^ fogRawId(type)) * FNV_PRIME;
+                        }
+                    }
+                }
+                hashes[i * sectionCount + s] = !any ? EMPTY_BORDER_HASH : hash == EMPTY_BORDER_HASH ? 1L : hash;
+            }
+        }
+        return hashes;
+    }
+
+    /** 스냅샷 블록 종류 → 안개 메싱에 쓰이는 블록의 원시 ID (FogSectionTransform과 같은 매핑) */
+    private static int fogRawId(int type) {
+        if (type == 1) return Block.getRawIdFromState(Blocks.DIRT.getDefaultState());
+        if (type == 2) return Block.getRawIdFromState(Blocks.STONE.getDefaultState());
+        return Block.getRawIdFromState(Blocks.AIR.getDefaultState());
+    }
+
+    /** VISIBLE 이웃: 실제 청크 섹션의 경계 층에 공기가 아닌 블록이 있는지 */
+    private static boolean hasWorldBorderContent(ClientWorld world, WorldChunk chunk, int sectionY, int borderX, int borderZ) {
+        if (chunk == null) return false;
+        int sectionIndex = world.sectionCoordToIndex(sectionY);
+        ChunkSection[] sections = chunk.getSectionArray();
+        if (sectionIndex < 0 || sectionIndex >= sections.length) return false;
+        ChunkSection section = sections[sectionIndex];
+        if (section == null || section.isEmpty()) return false;
+        for (int y = 0; y < 16; y++) {
+            for (int j = 0; j < 16; j++) {
+                int x = borderX < 0 ? j : borderX;
+                int z = borderZ < 0 ? j : borderZ;
+                if (!section.getBlockState(x, y, z).isAir()) return true;
+            }
+        }
+        return false;
+    }
+
+    /** FOGGED 이웃: 메싱에 쓰이는 스냅샷의 경계 층에 내용이 있는지 */
+    private static boolean hasSnapshotBorderContent(int chunkX, int sectionY, int chunkZ, int borderX, int borderZ) {
+        int uniformKind = FogSectionTransform.getUniformKind(chunkX, sectionY, chunkZ);
+        if (uniformKind == FogSectionTransform.UNIFORM_AIR) return false;
+        if (uniformKind == FogSectionTransform.UNIFORM_SOLID) return true;
 
-        for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
-            // SodiumWorldRenderer.scheduleRebuildForChunk는 청크 섹션 좌표를 사용합니다.
-            // (chunkX, sectionY, chunkZ)
-            sodiumRenderer.scheduleRebuildForChunk(chunkX, sectionY, chunkZ, true); // true는 'important' 플래그입니다.
-            LOGGER.info("Sodium: 청크 ({}, {}), 섹션 Y: {} 리빌드 스케줄됨.", chunkX, chunkZ, sectionY);
+        SnapshotStore store = FogOfWarClient.getSnapshotStore();
+        ChunkSnapshot snapshot = FogOfWarClient.getChunkSnapshot(chunkX << 4, 0, chunkZ << 4);
+        if (store == null || snapshot == null) return false;
+        int minX = chunkX << 4;
+        int minY = sectionY << 4;
+        int minZ = chunkZ << 4;
+        for (int y = 0; y < 16; y++) {
+            for (int j = 0; j < 16; j++) {
+                int x = borderX < 0 ? j : borderX;
+                int z = borderZ < 0 ? j : borderZ;
+                if (snapshot.getBlockType(store, minX + x, minY + y, minZ + z) != 0) return true;
+            }
         }
-        LOGGER.info("Sodium: 청크 ({}, {})에 대한 모든 섹션 리빌드 요청 완료.", chunkX, chunkZ);
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,53 @@
 package net.civarmymod;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import net.civarmymod.config.FogConfig;
+import net.civarmymod.mixin.accessor.ClientChunkManagerAccessor;
 import net.civarmymod.network.FogAPIClient;
+import net.civarmymod.network.NpcPositionStream;
+import net.civarmymod.persistence.FogJournal;
+import net.civarmymod.persistence.FogSaveFormat;
+import net.civarmymod.render.FogRebuildFilter;
+import net.civarmymod.render.FogSectionTransform;
+import net.civarmymod.snapshot.ChunkSnapshot;
+import net.civarmymod.snapshot.SectionDirtyTracker;
+import net.civarmymod.snapshot.SnapshotArena;
+import net.civarmymod.snapshot.SnapshotStore;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents; // <- 수정된 이벤트
 import net.fabricmc.fabric.api.networking.v1.PacketSender; // <- onWorldJoin 시그니처용
 import net.minecraft.block.Block;
@@ -31,10 +62,21 @@ import net.minecraft.nbt.NbtElement; // <--- 이 줄 추가
 import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.NbtList;
 import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
 import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ByteOpenHashMap;
 
 /**
  * 전장의 안개 시스템 클라이언트 구현
@@ -59,9 +101,68 @@ public class FogOfWarClient implements ClientModInitializer {
     }
 
     // --- 데이터 저장 구조 ---
-    private Map<ChunkPosition, byte[]> chunkSnapshots = new ConcurrentHashMap<>();
+    // 스냅샷 본문은 힙 밖의 아레나에 있고, 맵에는 섹션 핸들만 보관
+    private final SnapshotStore snapshotStore = new SnapshotStore(); // 내용 해시로 섹션을 공유하는 스냅샷 저장소
+    private final Map<ChunkPosition, ChunkSnapshot> chunkSnapshots = new ConcurrentHashMap<>();
+    // 비동기 로드: 파싱됐지만 아직 공개되지 않은 청크 (플레이어와 가까운 순으로 공개)
+    private static final int LOAD_BATCH_SIZE = 256;
+    private final Map<ChunkPosition, LoadedChunk> pendingLoad = new ConcurrentHashMap<>();
+    // 로드/저널/압축을 순서대로 처리하는 단일 I/O 스레드
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "FogOfWar-IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile int loadGeneration = 0; // 월드 접속/떠남마다 증가, 이전 로드 작업 무효화
+    private volatile boolean loadInProgress = false;
+    // 로드 중 실시간으로 갱신된 청크 (파싱이 끝나기 전에 갱신돼도 저장 데이터가 덮어쓰지 않도록)
+    private final Set<ChunkPosition> liveUpdatedDuringLoad = ConcurrentHashMap.newKeySet();
+    // 저널: 기본 저장 파일 이후의 변경을 이어 쓰기 (journal/journalBaseFile은 I/O 스레드에서만 접근)
+    private static final long SAVE_TIMEOUT_SECONDS = 10;
+    private FogJournal journal;
+    private File journalBaseFile;
+    // 저널에 아직 기록되지 않은 변경 청크 (값이 true면 스냅샷도 변경됨)
+    private final Map<ChunkPosition, Boolean> journalDirty = new ConcurrentHashMap<>();
+    // 현재 저널 파일에 이미 포함된 스냅샷 섹션 해시 (이후 레코드는 해시로만 참조, 메인 스레드 전용)
+    private final LongOpenHashSet journalWrittenHashes = new LongOpenHashSet();
+    private long lastJournalFlushMs = 0;
+    private volatile long journalSizeBytes = 0;
+    private volatile boolean compactionQueued = false;
+    // 기본 저장 파일을 읽지 못한 세션: 압축하면 읽지 못한 내용을 부분 상태로 덮어쓰므로 저널에만 기록
+    private volatile boolean compactionDisabled = false;
+    // 섹션 데이터가 아직 도착하지 않은 서버 스냅샷 (청크 → 섹션 해시 목록이 담긴 원본 JSON)
+    private final Map<ChunkPosition, JsonObject> pendingServerSnapshots = new ConcurrentHashMap<>();
+    private final Map<ChunkPosition, Long> pendingServerSnapshotSince = new ConcurrentHashMap<>(); // 대기 시작 시각
+    // 서버에 이미 요청한 섹션 해시 → 요청 시각 (같은 해시를 메시지마다 다시 요청하지 않음, 메인 스레드 전용)
+    private final Long2LongOpenHashMap requestedSectionHashes = new Long2LongOpenHashMap();
+    private static final long SERVER_SNAPSHOT_TTL_MS = 30000; // 이 시간 안에 섹션이 오지 않으면 대기/요청 기록을 버림
     public enum ChunkState { VISIBLE, FOGGED, HIDDEN }
     private final Map<ChunkPosition, ChunkState> chunkStates = new ConcurrentHashMap<>();
+    private final AtomicInteger stateVersion = new AtomicInteger(); // chunkStates/initialized가 바뀔 때마다 증가 (렌더 캐시 무효화용)
+    // 마지막으로 보였던 메시를 그대로 유지하는 FOGGED 청크 (fogFrozenMesh)
+    // 전환 시 미리 캡처해 둔 스냅샷이 없으면 캡처를 미루고, 언로드/실제 리빌드/저장 시점에 캡처함
+    private final Set<ChunkPosition> frozenChunks = ConcurrentHashMap.newKeySet();
+    // 상태를 모르는 채로 도착한 청크 → 도착 시각 (상태가 정해질 때까지 메싱 보류, fogStateWaitMs 후 HIDDEN으로 확정)
+    private final Map<ChunkPosition, Long> pendingFogState = new ConcurrentHashMap<>();
+    // API 처리 중 상태가 바뀐 청크 열 (처리 끝에 로드된 청크만 한 번에 리빌드, 메인 스레드 전용)
+    private final Set<ChunkPosition> columnReloadBatch = new HashSet<>();
+    private long lastPendingSweepMs = 0;
+    // HIDDEN 청크 메모리 해제(fogEvictHiddenChunks): 처음 HIDDEN으로 확인된 시각, 이미 내린 청크 → 내리기 직전 스냅샷 (메인 스레드 전용)
+    // 내린 청크의 스냅샷은 HIDDEN 동안 쓰이지 않고, VISIBLE/FOGGED가 되면 대체 청크를 만드는 데만 사용
+    private final Map<ChunkPosition, Long> evictionCandidates = new HashMap<>();
+    private final Map<ChunkPosition, ChunkSnapshot> evictedChunks = new HashMap<>();
+    // 내린 청크 대신 스냅샷으로 만들어 넣은 대체 청크 (서버가 실제 청크를 다시 보내면 교체됨)
+    private final Set<ChunkPosition> placeholderChunks = ConcurrentHashMap.newKeySet();
+    private boolean restoringPlaceholder = false;
+    private long lastEvictionSweepMs = 0;
+    private static final int EVICTION_KEEP_RADIUS = 2; // 플레이어 주변 청크는 충돌 판정에 필요하므로 유지
+    // 한 번이라도 VISIBLE이었던 청크 (언로드 시 스냅샷 캡처 대상)
+    private final Set<ChunkPosition> everVisibleChunks = ConcurrentHashMap.newKeySet();
+    // 언로드 시점에 캡처한 스냅샷을 가진 청크 (다시 로드될 때까지 VISIBLE/HIDDEN 전환에도 스냅샷 유지)
+    private final Set<ChunkPosition> unloadCapturedChunks = ConcurrentHashMap.newKeySet();
+    // VISIBLE이 되면서 내려놓은 마지막 스냅샷 (다시 FOGGED가 되면 바뀐 섹션만 다시 캡처해 재사용)
+    private final Map<ChunkPosition, ChunkSnapshot> retainedSnapshots = new ConcurrentHashMap<>();
+    private final SectionDirtyTracker dirtyTracker = new SectionDirtyTracker();
     private final Map<ChunkPosition, BlockState> fogBlocks = new ConcurrentHashMap<>();
     private BlockState defaultFogBlock = Blocks.GRAY_CONCRETE.getDefaultState();
 
@@ -121,6 +222,9 @@ public class FogOfWarClient implements ClientModInitializer {
                 ClientPlayConnectionEvents.JOIN.register(this::onWorldJoin);
                 ClientPlayConnectionEvents.DISCONNECT.register(this::onWorldLeave);
                 ClientLifecycleEvents.CLIENT_STOPPING.register(this::onClientStopping);
+                ClientTickEvents.END_CLIENT_TICK.register(this::onClientTick);
+                ClientChunkEvents.CHUNK_LOAD.register(this::onChunkLoad);
+                ClientChunkEvents.CHUNK_UNLOAD.register(this::onChunkUnload);
                 logInfo("이벤트 리스너 등록 완료.");
             } catch (Exception e) {
                 logError("이벤트 리스너 등록 실패: " + e.getMessage(), e);
@@ -140,9 +244,10 @@ public class FogOfWarClient implements ClientModInitializer {
         logInfo("월드 접속 감지: 안개 데이터 로드 및 연결 시도...");
         try {
             clearFogData(); // 이전 데이터 정리
-            loadData(); // 데이터 로드
-            dataLoaded = true;
+            dataLoaded = false;
+            loadData(); // 백그라운드에서 로드 시작 (완료 시 dataLoaded 설정)
             initialized = true; // 초기화 완료 플래그 설정
+            stateVersion.incrementAndGet();
 
             // 웹소켓 연결 시도
             if (apiClient != null && client.player != null) {
@@ -164,10 +269,11 @@ public class FogOfWarClient implements ClientModInitializer {
     private void onWorldLeave(ClientPlayNetworkHandler handler, MinecraftClient client) {
         logInfo("월드 떠남 감지: 안개 데이터 저장 및 상태 초기화...");
         try {
-            if (dataLoaded) saveData(); // 데이터 저장
+            if (dataLoaded || loadInProgress) saveData(); // 쌓인 변경을 저널에 기록
 
             // 상태 초기화
             initialized = false;
+            stateVersion.incrementAndGet();
             dataLoaded = false;
             clearFogData(); // 내부 데이터 정리
 
@@ -187,7 +293,7 @@ public class FogOfWarClient implements ClientModInitializer {
         logInfo("클라이언트 종료 감지: 최종 데이터 저장 및 정리...");
         try {
             // 월드 접속 중이면 저장
-            if (dataLoaded && client != null && client.world != null && client.player != null) {
+            if ((dataLoaded || loadInProgress) && client != null && client.world != null && client.player != null) {
                  logInfo("종료 전 최종 데이터 저장 시도...");
                 saveData();
             }
@@ -203,6 +309,327 @@ public class FogOfWarClient implements ClientModInitializer {
         }
     }
 
+    /** 매 틱: NPC 시야 갱신, 다시 보이게 된 청크의 억제된 리빌드 처리, 주기적으로 변경 내용을 저널에 기록 */
+    private void onClientTick(MinecraftClient client) {
+        if (!initialized) return;
+        NPCChunkManager.getInstance().onClientTick(client); // NPC 시야 갱신 (적응형 주기)
+        ChunkReloadManager.flushSuppressedRebuilds();
+        long now = System.currentTimeMillis();
+        expirePendingFogStates(now);
+        evictHiddenChunks(client, now);
+        if (now - lastJournalFlushMs < FogConfig.getConfig().journalFlushIntervalMs) return;
+        lastJournalFlushMs = now;
+        flushJournal(false);
+    }
+
+    /** 서버에서 청크 수신: 안개 상태를 아직 모르면 첫 메싱을 상태가 정해질 때까지 보류 */
+    private void onChunkLoad(ClientWorld world, WorldChunk chunk) {
+        if (!initialized) return;
+        ChunkPosition pos = new ChunkPosition(chunk.getPos());
+        if (!evictedChunks.isEmpty()) {
+            ChunkSnapshot evictedSnapshot = evictedChunks.remove(pos); // 서버가 다시 보내 줌
+            if (evictedSnapshot != null) evictedSnapshot.release(snapshotStore);
+        }
+        if (!restoringPlaceholder && !placeholderChunks.isEmpty()) placeholderChunks.remove(pos); // 실제 청크로 교체됨
+        NPCChunkManager.getInstance().invalidateChunkHeight(pos.x, pos.z);
+        ChunkState state = chunkStates.get(pos);
+        boolean unloadCaptured = unloadCapturedChunks.remove(pos);
+        // 언로드 동안 NPC가 떠났을 수 있음: 다음 FOGGED 결정이 새로 받은 지형 대신 마지막으로 본 모습을 쓰도록 보관
+        boolean keptUnloadSnapshot = unloadCaptured && state == ChunkState.VISIBLE && keepUnloadSnapshot(pos);
+        if (!keptUnloadSnapshot) {
+            dirtyTracker.markAllDirty(ChunkPos.toLong(pos.x, pos.z), world.countVerticalSections()); // 청크 데이터 전체가 새로 들어옴
+            if (unloadCaptured && state != ChunkState.FOGGED) {
+                releaseSnapshot(pos); // 실제 블록을 다시 그리므로 언로드 시점 스냅샷은 필요 없음
+            }
+        }
+        if (state == null || state == ChunkState.VISIBLE) {
+            // 로드 전에는 새로 VISIBLE로 만들지 않으므로 다음 틱에 결정 (VISIBLE 청크도 그사이 시야를 벗어났을 수 있음)
+            NPCChunkManager.getInstance().requestUpdateForLoadedChunk();
+        }
+        if (FogConfig.getConfig().fogStateWaitMs <= 0) return;
+        if (chunkStates.containsKey(pos) || pendingLoad.containsKey(pos)) return; // 상태를 이미 알고 있음 (또는 저장 데이터에서 곧 공개됨)
+        pendingFogState.put(pos, System.currentTimeMillis());
+    }
+
+    private void onChunkUnload(ClientWorld world, WorldChunk chunk) {
+        if (!initialized) return;
+        ChunkPosition pos = new ChunkPosition(chunk.getPos());
+        if (!pendingFogState.isEmpty()) pendingFogState.remove(pos);
+        FogRebuildFilter.clearSuppressed(pos.x, pos.z); // 언로드된 열은 다시 로드될 때 전체가 메싱됨 (클라이언트 스레드 = 렌더 스레드)
+        ChunkReloadManager.forgetColumn(pos.x, pos.z);
+        if (!placeholderChunks.isEmpty() && placeholderChunks.remove(pos)
+                && (chunkSnapshots.containsKey(pos) || retainedSnapshots.containsKey(pos))) {
+            return; // 대체 청크의 내용은 원래 스냅샷에서 만든 것이므로 다시 캡처하지 않음
+        }
+        captureSnapshotOnUnload(world, chunk, pos);
+    }
+
+    /**
+     * 언로드되는 청크의 마지막 모습을 스냅샷으로 남깁니다.
+     * 나중에 언로드된 상태로 FOGGED가 되어도 월드에서 다시 읽을 수 없으므로 이 시점이 마지막 기회입니다.
+     * VISIBLE이었던 적이 있거나 고정 메시인 청크(캡처를 미룬 경우 포함)만 대상이며, 이미 스냅샷이 있는 FOGGED 청크는 다시 캡처하지 않습니다.
+     */
+    private void captureSnapshotOnUnload(ClientWorld world, WorldChunk chunk, ChunkPosition pos) {
+        if (unloadCapturedChunks.contains(pos)) return; // 이미 캡처됨 (예: HIDDEN 청크 메모리 해제)
+        boolean frozen = frozenChunks.contains(pos);
+        if (!frozen && !everVisibleChunks.contains(pos)) return;
+        if (chunkStates.get(pos) == ChunkState.FOGGED && chunkSnapshots.containsKey(pos)) return; // 고정 메시도 이미 확정된 스냅샷 유지
+
+        ChunkSnapshot snapshot = captureSnapshot(world, chunk, pos);
+        if (snapshot == null) return;
+        ChunkSnapshot previous = chunkSnapshots.put(pos, snapshot);
+        if (previous != null) previous.release(snapshotStore);
+        unloadCapturedChunks.add(pos);
+        logDebug("청크 (" + pos.x + ", " + pos.z + ") 언로드 시점 스냅샷 저장");
+    }
+
+    /**
+     * 언로드된 동안 VISIBLE로 남아 있던 청크가 다시 로드됨: 언로드 시점 스냅샷을 보관 스냅샷으로 옮기고 지금부터 변경을 추적합니다.
+     * 새로 받은 청크 데이터 전체를 바뀐 것으로 표시하면 다음 FOGGED 전환이 NPC가 보지 못한 지형까지 다시 읽게 됩니다.
+     * @return 옮길 스냅샷이 있었으면 true
+     */
+    private boolean keepUnloadSnapshot(ChunkPosition pos) {
+        ChunkSnapshot snapshot = chunkSnapshots.remove(pos);
+        if (snapshot == null) return false;
+        ChunkSnapshot previous = retainedSnapshots.put(pos, snapshot);
+        if (previous != null) previous.release(snapshotStore);
+        dirtyTracker.track(ChunkPos.toLong(pos.x, pos.z)); // 스냅샷 = 마지막으로 본 모습, 이후 변경만 기록
+        return true;
+    }
+
+    /** 대기 시간이 지난 청크는 기본 상태(HIDDEN)로 확정 (이미 빈 섹션으로 처리되어 있으므로 리빌드 불필요) */
+    private void expirePendingFogStates(long now) {
+        if (pendingFogState.isEmpty() || now - lastPendingSweepMs < 250) return;
+        lastPendingSweepMs = now;
+        long deadline = now - FogConfig.getConfig().fogStateWaitMs;
+        int before = pendingFogState.size();
+        pendingFogState.values().removeIf(arrivedAt -> arrivedAt < deadline);
+        if (pendingFogState.size() != before) {
+            logDebug("안개 상태 대기 시간 초과: " + (before - pendingFogState.size()) + "개 청크를 HIDDEN으로 확정");
+        }
+    }
+
+    /**
+     * HIDDEN 상태가 fogEvictHiddenDelayMs 이상 유지된 청크를 클라이언트 청크 맵에서 내립니다. (fogEvictHiddenChunks)
+     * 블록/빛 데이터와 블록 엔티티가 해제되고, 위치와 내리기 직전의 스냅샷만 evictedChunks에 남습니다.
+     * 어느 NPC의 스캔/나가기 반경 안에 있는 청크는 곧 보이게 될 수 있으므로 내리지 않습니다.
+     * 내린 청크가 VISIBLE/FOGGED가 되면 서버가 다시 보내 줄 때까지 스냅샷으로 만든 대체 청크를 그립니다. (restoreEvictedChunk)
+     */
+    private void evictHiddenChunks(MinecraftClient client, long now) {
+        if (!FogConfig.getConfig().fogEvictHiddenChunks || now - lastEvictionSweepMs < 1000) return;
+        lastEvictionSweepMs = now;
+        ClientWorld world = client.world;
+        if (world == null || client.player == null) return;
+
+        ClientChunkManager chunkManager = world.getChunkManager();
+        evictionCandidates.keySet().removeIf(pos -> !isHiddenChunk(pos.x, pos.z) || !chunkManager.isChunkLoaded(pos.x, pos.z));
+
+        NPCChunkManager npcChunkManager = NPCChunkManager.getInstance();
+        ChunkPos playerChunk = client.player.getChunkPos();
+        int radius = client.options.getClampedViewDistance() + 1;
+        long deadline = now - FogConfig.getConfig().fogEvictHiddenDelayMs;
+        int evicted = 0;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (Math.abs(dx) <= EVICTION_KEEP_RADIUS && Math.abs(dz) <= EVICTION_KEEP_RADIUS) continue;
+                int x = playerChunk.x + dx;
+                int z = playerChunk.z + dz;
+                if (!chunkManager.isChunkLoaded(x, z) || !isHiddenChunk(x, z) || isAwaitingFogState(x, z) || isLoadingChunk(x, z)) continue;
+                if (npcChunkManager.isWithinNpcScan(x, z)) continue; // NPC 시야에 곧 들어올 수 있음
+                ChunkPosition pos = new ChunkPosition(x, z);
+                Long hiddenSince = evictionCandidates.putIfAbsent(pos, now);
+                if (hiddenSince == null || hiddenSince > deadline) continue;
+                evictChunk(world, pos);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logDebug("HIDDEN 청크 " + evicted + "개를 클라이언트 메모리에서 내림 (누적 " + evictedChunks.size() + "개)");
+        }
+    }
+
+    private void evictChunk(ClientWorld world, ChunkPosition pos) {
+        evictionCandidates.remove(pos);
+        // 내린 뒤에는 월드에서 읽을 수 없으므로 지금 모습을 남김 (이미 가진 스냅샷이 있으면 참조만 공유)
+        // HIDDEN 동안에는 쓰이지 않으므로 본 적 없는 청크의 지형이 드러나지 않음
+        ChunkSnapshot snapshot = chunkSnapshots.get(pos);
+        if (snapshot == null) snapshot = retainedSnapshots.get(pos);
+        if (snapshot != null) {
+            snapshot.retain(snapshotStore);
+        } else {
+            WorldChunk chunk = world.getChunkManager().getWorldChunk(pos.x, pos.z);
+            snapshot = chunk != null ? internalCreateChunkSnapshot(world, chunk, null, null) : null;
+            if (snapshot == null) return; // 대체 청크를 만들 수 없으면 내리지 않음
+        }
+        ChunkPos chunkPos = new ChunkPos(pos.x, pos.z);
+        try {
+            ((ClientChunkManagerAccessor) world.getChunkManager()).invokeUnload(chunkPos);
+            world.getLightingProvider().setColumnEnabled(chunkPos, false);
+            ChunkSnapshot previous = evictedChunks.put(pos, snapshot);
+            if (previous != null) previous.release(snapshotStore);
+        } catch (Exception e) {
+            snapshot.release(snapshotStore);
+            logError("청크 언로드 중 오류 발생: (" + pos.x + ", " + pos.z + ") - " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 내린 청크가 VISIBLE/FOGGED가 될 때, 내리기 직전 스냅샷으로 대체 청크를 만들어 서버 청크처럼 넣습니다. (메인 스레드)
+     * 서버는 이 청크를 이미 보냈다고 알고 있어 다시 보내지 않으므로, 그대로 두면 빈 구멍으로 그려집니다.
+     * 대체 청크의 블록은 FOGGED 메싱과 같은 매핑(고체 → 흙, 액체 → 돌)이며, 빛 데이터가 없으므로 평면 조명으로 그립니다.
+     * @return 대체 청크를 만든 스냅샷 (참조는 호출자에게 넘어감), 내린 청크가 아니거나 실패하면 null
+     */
+    private ChunkSnapshot restoreEvictedChunk(ChunkPosition pos) {
+        ChunkSnapshot snapshot = evictedChunks.remove(pos);
+        if (snapshot == null) return null;
+        MinecraftClient client = MinecraftClient.getInstance();
+        ClientWorld world = client.world;
+        ClientPlayNetworkHandler networkHandler = client.getNetworkHandler();
+        if (world == null || networkHandler == null || snapshot.getBottomY() != world.getBottomY()) {
+            snapshot.release(snapshotStore);
+            return null;
+        }
+        try {
+            WorldChunk placeholder = new WorldChunk(world, new ChunkPos(pos.x, pos.z));
+            ChunkSection[] sections = placeholder.getSectionArray();
+            byte[] packed = new byte[SnapshotArena.BLOCK_BYTES];
+            for (int s = 0; s < sections.length && s < snapshot.getSectionCount(); s++) {
+                int handle = snapshot.getSectionHandle(s);
+                if (handle == SnapshotArena.NO_BLOCK) continue;
+                snapshotStore.copyOut(handle, packed, 0);
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            int type = SnapshotStore.getPacked(packed, 0, SnapshotArena.getIndex(x, y, z));
+                            if (type != 0) sections[s].setBlockState(x, y, z, FogSectionTransform.toFogState(type), false);
+                        }
+                    }
+                }
+            }
+            Heightmap.populateHeightmaps(placeholder, EnumSet.allOf(Heightmap.Type.class));
+            placeholderChunks.add(pos);
+            restoringPlaceholder = true;
+            try {
+                networkHandler.onChunkData(new ChunkDataS2CPacket(placeholder, world.getLightingProvider(), null, null));
+            } finally {
+                restoringPlaceholder = false;
+            }
+            dirtyTracker.track(ChunkPos.toLong(pos.x, pos.z)); // 대체 청크 내용은 스냅샷과 같음: 이후 변경만 기록
+            logDebug("내린 청크 (" + pos.x + ", " + pos.z + ")를 스냅샷 대체 청크로 복원");
+            return snapshot;
+        } catch (Exception e) {
+            placeholderChunks.remove(pos);
+            snapshot.release(snapshotStore);
+            logError("내린 청크 복원 중 오류 발생: (" + pos.x + ", " + pos.z + ") - " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /** 클라이언트 메모리에서 내린 청크인지 확인 (VISIBLE/FOGGED가 되면 대체 청크로 복원됨) */
+    public static boolean isEvictedChunk(int x, int z) {
+        if (instance == null || instance.evictedChunks.isEmpty()) return false;
+        return instance.evictedChunks.containsKey(new ChunkPosition(x, z));
+    }
+
+    /** 스냅샷으로 만든 대체 청크인지 확인 (빛 데이터가 없으므로 평면 조명으로 그림) */
+    public static boolean isPlaceholderChunk(int x, int z) {
+        if (instance == null || instance.placeholderChunks.isEmpty()) return false;
+        return instance.placeholderChunks.contains(new ChunkPosition(x, z));
+    }
+
+    /**
+     * VISIBLE 전환: 스냅샷을 해제하지 않고 보관한 뒤 블록 변경 추적을 이어 갑니다.
+     * 같은 청크가 다시 FOGGED가 되면 captureSnapshot에서 재사용됩니다.
+     * FOGGED 동안 바뀐 섹션도 반영되도록 추적은 캡처 시점부터 계속되며, 캡처 시점을 모르는 스냅샷은 전체를 다시 읽습니다.
+     */
+    private void retainSnapshot(ChunkPosition pos) {
+        ChunkSnapshot snapshot = chunkSnapshots.remove(pos);
+        if (snapshot == null) return; // 이미 보관 중이거나 스냅샷이 없음
+        ChunkSnapshot previous = retainedSnapshots.put(pos, snapshot);
+        if (previous != null) previous.release(snapshotStore);
+        dirtyTracker.continueTracking(ChunkPos.toLong(pos.x, pos.z), snapshot.getSectionCount());
+    }
+
+    /**
+     * 곧 시야를 벗어날 것으로 예측된 VISIBLE 청크의 스냅샷을 미리 캡처해 보관합니다. (NPCChunkManager)
+     * 보관된 스냅샷은 블록 변경이 추적되므로, 실제 FOGGED 전환 시에는 다시 읽지 않고 상태만 바뀝니다.
+     * @return 새로 캡처했으면 true
+     */
+    public boolean prefetchSnapshot(int x, int z) {
+        if (!initialized || !isVisibleChunk(x, z)) return false;
+        ChunkPosition pos = new ChunkPosition(x, z);
+        if (retainedSnapshots.containsKey(pos) || unloadCapturedChunks.contains(pos)) return false; // 이미 보관 중
+        ClientWorld world = MinecraftClient.getInstance().world;
+        if (world == null) return false;
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(x, z);
+        if (chunk == null) return false;
+
+        long key = ChunkPos.toLong(x, z);
+        dirtyTracker.track(key); // 캡처 도중 바뀐 섹션도 놓치지 않도록 먼저 추적 시작
+        ChunkSnapshot snapshot = internalCreateChunkSnapshot(world, chunk, null, null);
+        if (snapshot == null) {
+            dirtyTracker.untrack(key);
+            return false;
+        }
+        ChunkSnapshot previous = retainedSnapshots.put(pos, snapshot);
+        if (previous != null) previous.release(snapshotStore);
+        return true;
+    }
+
+    /** 보관 중인 스냅샷과 변경 기록을 버림 */
+    private void discardRetainedSnapshot(ChunkPosition pos) {
+        ChunkSnapshot removed = retainedSnapshots.remove(pos);
+        if (removed != null) removed.release(snapshotStore);
+        dirtyTracker.untrack(ChunkPos.toLong(pos.x, pos.z));
+    }
+
+    /**
+     * 청크 스냅샷 캡처
+     * 보관 중인 스냅샷이 있으면 그 사이 바뀐 섹션만 다시 읽고 나머지 섹션은 공유하며,
+     * 바뀐 섹션이 없으면 다시 읽지 않고 그대로 사용합니다.
+     * @param chunk 청크 (로드되지 않았으면 null: 보관 중인 스냅샷이 있으면 그대로 사용)
+     * @return 호출자가 참조를 소유하는 스냅샷, 실패 시 null
+     */
+    private ChunkSnapshot captureSnapshot(ClientWorld world, WorldChunk chunk, ChunkPosition pos) {
+        ChunkSnapshot base = retainedSnapshots.remove(pos);
+        BitSet dirty = dirtyTracker.take(ChunkPos.toLong(pos.x, pos.z));
+        if (base != null && (chunk == null || (dirty != null && dirty.isEmpty()))) {
+            logDebug("청크 (" + pos.x + ", " + pos.z + ") 보관된 스냅샷 재사용 (변경 섹션 " + (dirty != null ? dirty.cardinality() : 0) + "개)");
+            return base; // 보관 중이던 참조를 그대로 넘김
+        }
+        if (chunk == null) return null;
+        ChunkSnapshot snapshot = internalCreateChunkSnapshot(world, chunk, base, dirty);
+        if (base != null) base.release(snapshotStore); // 공유한 섹션은 새 스냅샷이 따로 참조를 가짐
+        return snapshot;
+    }
+
+    /** 상태가 바뀐 청크 열을 API 처리 후 일괄 리빌드 대상으로 추가 */
+    private void queueColumnReload(ChunkPosition pos) {
+        columnReloadBatch.add(pos);
+    }
+
+    /**
+     * 모아 둔 청크 열 중 클라이언트에 로드된 것만 리빌드합니다.
+     * 아직 도착하지 않은 청크는 도착 시 이미 정해진 상태로 처음 메싱되므로 리빌드할 필요가 없습니다.
+     */
+    private void flushColumnReloads() {
+        if (columnReloadBatch.isEmpty()) return;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null || client.world == null) {
+            columnReloadBatch.clear();
+            return;
+        }
+        LongOpenHashSet loadedColumns = new LongOpenHashSet(columnReloadBatch.size());
+        for (ChunkPosition pos : columnReloadBatch) {
+            if (client.world.getChunkManager().isChunkLoaded(pos.x, pos.z)) {
+                loadedColumns.add(ChunkPos.toLong(pos.x, pos.z));
+            }
+        }
+        ChunkReloadManager.requestChunkReloads(loadedColumns); // 묶음 안의 이웃끼리는 경계 리빌드를 중복 예약하지 않음
+        logDebug("청크 열 일괄 리빌드: " + loadedColumns.size() + "/" + columnReloadBatch.size() + "개 (나머지는 미수신)");
+        columnReloadBatch.clear();
+    }
+
     // --- 핵심 로직 메서드 ---
 
     /** API 응답 처리 업데이트 */
@@ -217,10 +644,19 @@ public class FogOfWarClient implements ClientModInitializer {
 
                 if (!jsonResponse.has("foggedChunks")) {
                      logDebug("API response does not contain 'foggedChunks' array.");
+                     // 요청한 스냅샷 섹션만 담긴 응답
+                     if (jsonResponse.has("snapshotSections")) {
+                         int[] receivedSections = internServerSections(jsonResponse);
+                         applyPendingServerSnapshots();
+                         for (int handle : receivedSections) {
+                             snapshotStore.release(handle);
+                         }
+                     }
                      // resetState만 있는 경우 처리?
                      if (jsonResponse.has("resetState") && jsonResponse.get("resetState").getAsBoolean()) {
                          handleResetState(new HashSet<>()); // 빈 세트로 초기화
                      }
+                     flushColumnReloads();
                      return; // foggedChunks 없으면 종료
                 }
 
@@ -245,6 +681,9 @@ public class FogOfWarClient implements ClientModInitializer {
                     int z = chunkData.get("z").getAsInt();
                     ChunkPosition chunkPos = new ChunkPosition(x, z);
                     updatedChunks.add(chunkPos);
+                    queueColumnReload(chunkPos);
+                    markLiveUpdate(chunkPos); // 서버 상태가 로드 중인 저장 데이터보다 우선
+                    markJournalDirty(chunkPos, false);
                     processedCount++;
                     logDebug("Processing chunk (" + x + ", " + z + ")");
 
@@ -262,23 +701,11 @@ public class FogOfWarClient implements ClientModInitializer {
                          logDebug("  No 'state' field found or invalid type, using default: " + state);
                     }
                     chunkStates.put(chunkPos, state);
+                    frozenChunks.remove(chunkPos); // 서버 상태/스냅샷이 우선
+                    if (state == ChunkState.VISIBLE) everVisibleChunks.add(chunkPos);
+                    stateVersion.incrementAndGet();
 
-                    // 상태가 HIDDEN으로 설정되었다면 해당 청크를 강제로 언로드 시도
-                    if (state == ChunkState.HIDDEN) {
-                         // Mixin 클래스의 인스턴스에 접근하여 forceUnloadChunk 호출 필요
-                         // ClientChunkManager 인스턴스를 가져와서 캐스팅해야 함
-                         MinecraftClient client = MinecraftClient.getInstance();
-                         if (client != null && client.world != null && client.world.getChunkManager() instanceof ClientChunkManager) {
-                             try {
-                                 // Use the accessor to call the original unload method
-                                //  ((ClientChunkManagerAccessor)client.world.getChunkManager()).invokeUnload(new ChunkPos(x, z));
-                                //  ((ClientChunkManagerAccessor)client.world.getChunkManager()).invokeUnload(new ChunkPos(x, z+4));
-                                 logDebug("청크 언로드 요청 완료: (" + x + ", " + z + ")"); // 성공 로그
-                             } catch (Exception e) {
-                                 logError("청크 언로드 중 오류 발생: (" + x + ", " + z + ") - " + e.getMessage(), e); // 오류 로그
-                             }
-                         }
-                    }
+                    // HIDDEN 청크의 메모리 해제는 유지 시간을 확인한 뒤 evictHiddenChunks에서 처리
 
                     // 2. 안개 블록 설정
                     BlockState fogBlock = defaultFogBlock;
@@ -307,43 +734,32 @@ public class FogOfWarClient implements ClientModInitializer {
                     }
 
 
-                    // // 3. 스냅샷 데이터 저장/제거
-                    // if (state == ChunkState.FOGGED) {
-                    //     if (chunkData.has("snapshot") && chunkData.get("snapshot").isJsonPrimitive()) {
-                    //         // 서버에서 스냅샷 데이터를 제공한 경우
-                    //         String snapshotBase64 = chunkData.get("snapshot").getAsString();
-                    //         logDebug("  Attempting to decode snapshot for FOGGED chunk...");
-                    //         NbtCompound snapshot = FogAPIClient.decodeSnapshot(snapshotBase64);
-                    //         if (snapshot != null) {
-                    //             chunkSnapshots.put(chunkPos, snapshot);
-                    //             logDebug("  Snapshot from server decoded and stored.");
-                    //         } else {
-                    //             logError("  청크 (" + x + ", " + z + ") 스냅샷 디코딩 실패!");
-                               
-                                
-                    //         }
-                    //     } else {
-                           
-                    //         logDebug("  No snapshot data from server, creating local snapshot for chunk (" + x + ", " + z + ")");
-                        
-                    //     }
-                    // } else {
-                    //     // FOGGED 상태가 아니면 스냅샷 데이터 제거
-                    //     if(chunkSnapshots.remove(chunkPos) != null) {
-                    //          logDebug("  Removed snapshot data for non-FOGGED chunk.");
-                    //     }
-                    // }
+                    // 3. 서버 제공 스냅샷 (섹션 해시 목록) 적용
+                    if (state == ChunkState.FOGGED && chunkData.has("snapshotSections") && chunkData.get("snapshotSections").isJsonArray()) {
+                        pendingServerSnapshots.put(chunkPos, chunkData);
+                        pendingServerSnapshotSince.put(chunkPos, System.currentTimeMillis());
+                    } else {
+                        pendingServerSnapshots.remove(chunkPos);
+                        pendingServerSnapshotSince.remove(chunkPos);
+                    }
                 } // End of chunk processing loop
 
                 logInfo("청크 데이터 처리 완료: " + processedCount + "/" + updateCount);
 
+                // 서버가 보낸 섹션 데이터를 먼저 저장소에 넣고, 대기 중인 스냅샷을 조립
+                int[] receivedSections = internServerSections(jsonResponse);
+                applyPendingServerSnapshots();
+                for (int handle : receivedSections) {
+                    snapshotStore.release(handle); // 수신 섹션의 임시 참조 해제
+                }
+
                 // 4. 리셋 상태 처리
                 if (jsonResponse.has("resetState") && jsonResponse.get("resetState").getAsBoolean()) {
                     handleResetState(updatedChunks);
                 }
 
-                // 5. 월드 렌더러 리로드
-                safeReloadWorldRenderer();
+                // 5. 상태가 바뀐 청크 열만 일괄 리빌드 (전체 렌더러 리로드 대신)
+                flushColumnReloads();
 
             } catch (Exception e) {
                 logError("API 응답 처리 중 오류: " + e.getMessage(), e);
@@ -351,6 +767,129 @@ public class FogOfWarClient implements ClientModInitializer {
         }); // End of MinecraftClient.getInstance().execute
     }
 
+    /**
+     * 응답의 snapshotSections([{hash, data}])를 저장소에 넣습니다.
+     * 데이터는 Base64로 인코딩된 2비트 패킹 섹션(1024바이트)이며, 해시가 내용과 다르면 버립니다.
+     * @return 각 섹션의 임시 참조 (호출자가 해제해야 함)
+     */
+    private int[] internServerSections(JsonObject jsonResponse) {
+        if (!jsonResponse.has("snapshotSections") || !jsonResponse.get("snapshotSections").isJsonArray()) {
+            return new int[0];
+        }
+        JsonArray sectionsArray = jsonResponse.getAsJsonArray("snapshotSections");
+        int[] handles = new int[sectionsArray.size()];
+        int count = 0;
+        for (JsonElement element : sectionsArray) {
+            if (!element.isJsonObject()) continue;
+            JsonObject sectionData = element.getAsJsonObject();
+            if (!sectionData.has("hash") || !sectionData.has("data")) continue;
+            try {
+                long declaredHash = Long.parseUnsignedLong(sectionData.get("hash").getAsString(), 16);
+                byte[] packed = Base64.getDecoder().decode(sectionData.get("data").getAsString());
+                if (packed.length != SnapshotArena.BLOCK_BYTES || SnapshotStore.hash(packed, 0) != declaredHash) {
+                    logWarn("  서버 스냅샷 섹션 검증 실패 (hash=" + sectionData.get("hash").getAsString() + ", " + packed.length + " bytes)");
+                    continue;
+                }
+                handles[count++] = snapshotStore.intern(packed, 0);
+            } catch (IllegalArgumentException e) {
+                logWarn("  잘못된 서버 스냅샷 섹션: " + e.getMessage());
+            }
+        }
+        logDebug("  Received " + count + " snapshot sections from server.");
+        return Arrays.copyOf(handles, count);
+    }
+
+    /**
+     * 대기 중인 서버 스냅샷을 조립합니다.
+     * 모든 섹션 해시가 저장소에 있으면 스냅샷을 만들고, 없는 해시는 모아서 한 번에 서버에 요청합니다.
+     * 같은 해시는 SERVER_SNAPSHOT_TTL_MS 동안 한 번만 요청하며, 그 안에 완성되지 않은 대기 항목은 버립니다.
+     */
+    private void applyPendingServerSnapshots() {
+        long now = System.currentTimeMillis();
+        if (!requestedSectionHashes.isEmpty()) {
+            requestedSectionHashes.values().removeIf(requestedMs -> now - requestedMs > SERVER_SNAPSHOT_TTL_MS);
+        }
+        if (pendingServerSnapshots.isEmpty()) return;
+        Set<Long> missingHashes = new HashSet<>();
+        int applied = 0;
+        int expired = 0;
+        for (Iterator<Map.Entry<ChunkPosition, JsonObject>> it = pendingServerSnapshots.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<ChunkPosition, JsonObject> entry = it.next();
+            Long since = pendingServerSnapshotSince.get(entry.getKey());
+            if (since == null || now - since > SERVER_SNAPSHOT_TTL_MS) {
+                it.remove();
+                pendingServerSnapshotSince.remove(entry.getKey());
+                expired++;
+                continue;
+            }
+            JsonObject chunkData = entry.getValue();
+            JsonArray hashArray = chunkData.getAsJsonArray("snapshotSections");
+            int bottomY = chunkData.has("snapshotBottomY") ? chunkData.get("snapshotBottomY").getAsInt() : worldBottomY;
+            int[] handles = new int[hashArray.size()];
+            Arrays.fill(handles, SnapshotArena.NO_BLOCK);
+            boolean complete = true;
+            for (int s = 0; s < handles.length; s++) {
+                JsonElement hashElement = hashArray.get(s);
+                if (hashElement.isJsonNull()) continue; // 전부 공기인 섹션
+                if (!hashElement.isJsonPrimitive()) {
+                    logWarn("  잘못된 스냅샷 섹션 해시: " + hashElement + " at " + entry.getKey());
+                    continue;
+                }
+                if (hashElement.getAsString().isEmpty()) continue; // 전부 공기인 섹션
+                long hash;
+                try {
+                    hash = Long.parseUnsignedLong(hashElement.getAsString(), 16);
+                } catch (NumberFormatException e) {
+                    logWarn("  잘못된 스냅샷 섹션 해시: " + hashElement + " at " + entry.getKey());
+                    continue;
+                }
+                int handle = snapshotStore.acquireByHash(hash);
+                if (handle == SnapshotArena.NO_BLOCK) {
+                    if (!requestedSectionHashes.containsKey(hash)) {
+                        missingHashes.add(hash);
+                    }
+                    complete = false;
+                } else {
+                    handles[s] = handle;
+                }
+            }
+            if (!complete) {
+                for (int handle : handles) {
+                    snapshotStore.release(handle);
+                }
+                continue;
+            }
+            it.remove();
+            pendingServerSnapshotSince.remove(entry.getKey());
+            if (chunkStates.get(entry.getKey()) != ChunkState.FOGGED) {
+                for (int handle : handles) {
+                    snapshotStore.release(handle);
+                }
+                continue;
+            }
+            ChunkSnapshot previous = chunkSnapshots.put(entry.getKey(), new ChunkSnapshot(bottomY, handles));
+            if (previous != null) {
+                previous.release(snapshotStore);
+            }
+            markJournalDirty(entry.getKey(), true);
+            queueColumnReload(entry.getKey());
+            applied++;
+        }
+        if (applied > 0) {
+            logDebug("  Applied " + applied + " server snapshots (" + snapshotStore.getUniqueSectionCount() + " unique sections).");
+        }
+        if (expired > 0) {
+            logWarn("  섹션 데이터를 받지 못한 서버 스냅샷 " + expired + "개 포기 (" + SERVER_SNAPSHOT_TTL_MS + "ms 초과)");
+        }
+        if (!missingHashes.isEmpty() && apiClient != null) {
+            logDebug("  Requesting " + missingHashes.size() + " unknown snapshot sections from server.");
+            for (Long hash : missingHashes) {
+                requestedSectionHashes.put(hash.longValue(), now);
+            }
+            apiClient.requestSnapshotSections(missingHashes);
+        }
+    }
+
     /** resetState가 true일 때 호출되는 헬퍼 메서드 */
     private void handleResetState(Set<ChunkPosition> updatedChunks) {
         logInfo("'resetState' 요청 처리: 서버 응답에 없는 청크는 VISIBLE로 초기화합니다.");
@@ -367,6 +906,12 @@ public class FogOfWarClient implements ClientModInitializer {
                  toRemove.add(pos); // 중복될 수 있지만 Set이 처리
              }
          });
+         // 아직 공개되지 않은 로드 데이터도 초기화 대상 (공개되면 서버 상태를 덮어쓰게 됨)
+         pendingLoad.keySet().forEach(pos -> {
+             if (!updatedChunks.contains(pos)) {
+                 toRemove.add(pos);
+             }
+         });
          // chunkSnapshots에만 있는 키를 찾음 (스냅샷이 저장되었던 청크)
          chunkSnapshots.keySet().forEach(pos -> {
              if (!updatedChunks.contains(pos)) {
@@ -378,17 +923,26 @@ public class FogOfWarClient implements ClientModInitializer {
         if (!toRemove.isEmpty()) {
              logInfo("  " + toRemove.size() + "개의 청크 상태를 VISIBLE로 초기화합니다: " + toRemove);
             for (ChunkPosition pos : toRemove) {
+                markLiveUpdate(pos);
+                markJournalDirty(pos, true);
+                queueColumnReload(pos);
                 chunkStates.remove(pos); // VISIBLE 상태는 맵에서 제거
+                frozenChunks.remove(pos);
                 fogBlocks.remove(pos);
-                chunkSnapshots.remove(pos);
+                releaseSnapshot(pos);
             }
+            stateVersion.incrementAndGet();
         } else {
              logInfo("  초기화할 기존 청크 데이터가 없습니다.");
         }
     }
 
 
-    /** 게임 종료 시 안개 상태 및 스냅샷 저장 */
+    /**
+     * 안개 상태 저장
+     * 전체를 다시 쓰지 않고, 마지막 기록 이후 바뀐 청크만 저널에 이어 쓴 뒤 디스크 동기화까지 기다립니다.
+     * 저널이 journalCompactThresholdBytes를 넘으면 기본 파일로의 압축도 함께 수행합니다.
+     */
     public void saveData() {
         logDebug("saveData() called.");
         try {
@@ -398,89 +952,255 @@ public class FogOfWarClient implements ClientModInitializer {
                 return;
             }
 
-            Path saveDir = net.fabricmc.loader.api.FabricLoader.getInstance().getConfigDir().resolve("fog_data");
-            if (!saveDir.toFile().exists()) {
-                if (!saveDir.toFile().mkdirs()) {
-                     logError("데이터 저장 폴더 생성 실패: " + saveDir);
-                     return;
+            long startTime = System.nanoTime();
+            captureDeferredFrozenSnapshots();
+            flushJournal(true).get(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            logInfo("안개 데이터 저장 완료 (" + (System.nanoTime() - startTime) / 1_000_000 + " ms, 저널 " + (journalSizeBytes >> 10) + " KiB)");
+        } catch (TimeoutException e) {
+            logError("안개 데이터 저장 대기 시간 초과 (I/O 스레드에서 계속 진행됨)", e);
+        } catch (Exception e) {
+            logError("전장의 안개 데이터 저장 실패: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 변경된 청크를 저널 레코드로 만들어 I/O 스레드에 넘깁니다. (메인 스레드)
+     * 레코드 생성 비용은 변경량에 비례하며, 스냅샷 섹션은 저널 파일마다 한 번만 데이터로 기록됩니다.
+     * @param always 변경이 없어도 I/O 작업을 넣을지 여부 (저장 완료를 기다릴 때)
+     * @return I/O 작업 완료 Future
+     */
+    private Future<?> flushJournal(boolean always) {
+        FogJournal.Batch batch = new FogJournal.Batch();
+        byte[] packedSection = new byte[SnapshotArena.BLOCK_BYTES];
+        for (ChunkPosition pos : journalDirty.keySet()) {
+            if (!frozenChunks.isEmpty() && frozenChunks.contains(pos) && !chunkSnapshots.containsKey(pos)) {
+                continue; // 스냅샷 캡처를 미룬 고정 메시 청크: 캡처된 뒤(늦어도 저장 직전)에 기록
+            }
+            Boolean snapshotChanged = journalDirty.remove(pos);
+            if (snapshotChanged == null) continue;
+            ChunkState state = chunkStates.get(pos);
+            BlockState fogBlock = fogBlocks.get(pos);
+            String fogBlockId = (fogBlock == null || fogBlock.equals(defaultFogBlock)) ? "" : Registries.BLOCK.getId(fogBlock.getBlock()).toString();
+            ChunkSnapshot snapshot = snapshotChanged ? chunkSnapshots.get(pos) : null;
+            byte snapshotMode = !snapshotChanged ? FogJournal.SNAPSHOT_UNCHANGED
+                    : snapshot == null ? FogJournal.SNAPSHOT_CLEARED : FogJournal.SNAPSHOT_SET;
+            batch.beginChunk(ChunkPos.toLong(pos.x, pos.z),
+                    (state == null || state == ChunkState.VISIBLE) ? FogSaveFormat.NO_STATE : (byte) state.ordinal(),
+                    fogBlockId, snapshotMode);
+            if (snapshotMode == FogJournal.SNAPSHOT_SET) {
+                batch.snapshotHeader(snapshot.getBottomY(), snapshot.getSectionCount());
+                for (int s = 0; s < snapshot.getSectionCount(); s++) {
+                    int handle = snapshot.getSectionHandle(s);
+                    if (handle == SnapshotArena.NO_BLOCK) {
+                        batch.airSection();
+                        continue;
+                    }
+                    long hash = snapshotStore.getHash(handle);
+                    if (journalWrittenHashes.add(hash)) {
+                        snapshotStore.copyOut(handle, packedSection, 0);
+                        batch.inlineSection(hash, packedSection, 0, packedSection.length);
+                    } else {
+                        batch.refSection(hash);
+                    }
                 }
-                 logDebug("Save directory created: " + saveDir);
             }
+            batch.endChunk();
+        }
 
-            String worldId = client.world.getRegistryKey().getValue().toString().replace(':', '_').replace('/', '_');
-            String playerName = client.player.getGameProfile().getName();
-            File saveFile = saveDir.resolve(worldId + "_" + playerName + ".dat").toFile();
-            logDebug("Preparing to save data to: " + saveFile.getAbsolutePath());
+        Future<?> result = null;
+        if (!batch.isEmpty() || always) {
+            result = ioExecutor.submit(() -> appendJournal(batch));
+        }
+        if (!loadInProgress && !compactionQueued && !compactionDisabled
+                && journalSizeBytes + batch.getByteSize() > FogConfig.getConfig().journalCompactThresholdBytes) {
+            result = compactJournal();
+        }
+        return result != null ? result : CompletableFuture.completedFuture(null);
+    }
 
-            NbtCompound root = new NbtCompound();
-            int stateCount = 0, blockCount = 0, snapshotCount = 0;
+    /** 레코드 묶음을 저널에 쓰고 fsync (I/O 스레드) */
+    private void appendJournal(FogJournal.Batch batch) {
+        if (journal == null) {
+            if (!batch.isEmpty()) logWarn("저널이 열려 있지 않아 " + batch.getRecordCount() + "개 변경을 기록하지 못했습니다.");
+            return;
+        }
+        try {
+            journal.append(batch);
+            journalSizeBytes = journal.size();
+            if (!batch.isEmpty()) {
+                logDebug("Journal: appended " + batch.getRecordCount() + " records (" + batch.getByteSize() + " bytes).");
+            }
+        } catch (Exception e) {
+            logError("저널 기록 실패: " + e.getMessage(), e);
+        }
+    }
 
-            // 청크 상태 저장 (VISIBLE 제외)
-            NbtList chunkStatesNbt = new NbtList();
-            for (Map.Entry<ChunkPosition, ChunkState> entry : chunkStates.entrySet()) {
-                if (entry.getValue() != ChunkState.VISIBLE) {
-                    NbtCompound chunkData = new NbtCompound();
-                    chunkData.putInt("x", entry.getKey().x);
-                    chunkData.putInt("z", entry.getKey().z);
-                    chunkData.putString("state", entry.getValue().name());
-                    chunkStatesNbt.add(chunkData);
-                    stateCount++;
-                }
-            }
-            if (!chunkStatesNbt.isEmpty()) root.put("chunkStates", chunkStatesNbt);
-
-            // 안개 블록 저장 (기본 블록과 다른 경우만)
-            NbtList fogBlocksNbt = new NbtList();
-            for (Map.Entry<ChunkPosition, BlockState> entry : fogBlocks.entrySet()) {
-                if (!entry.getValue().equals(defaultFogBlock)) {
-                    NbtCompound blockData = new NbtCompound();
-                    blockData.putInt("x", entry.getKey().x);
-                    blockData.putInt("z", entry.getKey().z);
-                    Identifier blockId = Registries.BLOCK.getId(entry.getValue().getBlock());
-                    blockData.putString("block", blockId.toString());
-                    fogBlocksNbt.add(blockData);
-                    blockCount++;
-                }
-            }
-             if (!fogBlocksNbt.isEmpty()) root.put("fogBlocks", fogBlocksNbt);
-
-            // 스냅샷 데이터 저장 (FOGGED 상태 청크만, byte[] 사용)
-            NbtList snapshotsNbt = new NbtList();
-            for (Map.Entry<ChunkPosition, byte[]> entry : chunkSnapshots.entrySet()) {
-                 if (chunkStates.getOrDefault(entry.getKey(), ChunkState.VISIBLE) == ChunkState.FOGGED) {
-                    NbtCompound snapshotData = new NbtCompound();
-                    snapshotData.putInt("x", entry.getKey().x);
-                    snapshotData.putInt("z", entry.getKey().z);
-                    // byte[] 데이터를 NBT에 저장
-                    snapshotData.putByteArray("data", entry.getValue());
-                    snapshotsNbt.add(snapshotData);
-                    snapshotCount++;
-                 }
+    /**
+     * 현재 상태를 기본 파일로 압축하고 저널을 비웁니다.
+     * 메인 스레드에서는 맵 참조만 복사하고(스냅샷은 참조 카운트 유지), 인코딩과 쓰기는 I/O 스레드에서 수행합니다.
+     * 복사 이후의 변경은 압축 뒤 새 저널에 기록되며, 압축 도중 충돌해도 저널 재생 결과는 같습니다.
+     * 잡아 둔 참조는 I/O 스레드에서 해제되므로, clearFogData는 이 작업이 끝나기 전에는 저장소를 비우지 않습니다.
+     * 그래도 저장소 세대가 바뀌었으면(다른 월드) 기록하지 않고 참조도 건드리지 않습니다.
+     */
+    private Future<?> compactJournal() {
+        compactionQueued = true;
+        journalWrittenHashes.clear(); // 압축 뒤의 저널은 섹션 데이터를 다시 포함해야 함
+        Map<ChunkPosition, ChunkState> states = new HashMap<>(chunkStates);
+        Map<ChunkPosition, BlockState> blocks = new HashMap<>(fogBlocks);
+        Map<ChunkPosition, ChunkSnapshot> snapshots = new HashMap<>();
+        for (Map.Entry<ChunkPosition, ChunkSnapshot> entry : chunkSnapshots.entrySet()) {
+            if (states.get(entry.getKey()) == ChunkState.FOGGED) {
+                entry.getValue().retain(snapshotStore);
+                snapshots.put(entry.getKey(), entry.getValue());
             }
-             if (!snapshotsNbt.isEmpty()) root.put("snapshots", snapshotsNbt);
+        }
+        int storeGeneration = snapshotStore.getGeneration();
+        return ioExecutor.submit(() -> {
+            try {
+                if (journal == null || journalBaseFile == null) return;
+                if (snapshotStore.getGeneration() != storeGeneration) {
+                    logWarn("스냅샷 저장소가 초기화되어 안개 데이터 압축을 취소합니다.");
+                    return;
+                }
+                long startTime = System.nanoTime();
+                FogSaveFormat.write(journalBaseFile.toPath(), buildSaveColumns(states, blocks, snapshots));
+                journal.truncate();
+                journalSizeBytes = journal.size();
+                logInfo("안개 데이터 압축 완료: " + states.size() + "개 상태, " + snapshots.size() + "개 스냅샷 ("
+                        + (System.nanoTime() - startTime) / 1_000_000 + " ms)");
+            } catch (Exception e) {
+                logError("안개 데이터 압축 실패 (저널은 유지됨): " + e.getMessage(), e);
+            } finally {
+                if (snapshotStore.getGeneration() == storeGeneration) {
+                    for (ChunkSnapshot snapshot : snapshots.values()) {
+                        snapshot.release(snapshotStore);
+                    }
+                }
+                compactionQueued = false;
+            }
+        });
+    }
 
-            // 파일에 저장
-            if (!root.isEmpty()) {
-                logDebug("Saving NBT data: " + stateCount + " states, " + blockCount + " blocks, " + snapshotCount + " snapshots.");
-                try {
-                    NbtIo.writeCompressed(root, saveFile.toPath());
-                    logInfo("안개 데이터 저장 완료: " + saveFile.getName());
-                } catch (Exception e) {
-                    logError("데이터 파일 쓰기 실패: " + e.getMessage(), e);
+    /** 저널 열기 (I/O 스레드) */
+    private void openJournal(File journalFile, long validLength, File baseFile) {
+        closeJournal();
+        try {
+            journal = FogJournal.open(journalFile.toPath(), validLength);
+            journalBaseFile = baseFile;
+            journalSizeBytes = journal.size();
+            logDebug("Journal opened: " + journalFile.getName() + " (" + journalSizeBytes + " bytes)");
+        } catch (Exception e) {
+            logError("저널 열기 실패: " + e.getMessage(), e);
+        }
+    }
+
+    /** 저널 닫기 (I/O 스레드) */
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (Exception e) {
+            logError("저널 닫기 실패: " + e.getMessage(), e);
+        }
+        journal = null;
+        journalBaseFile = null;
+    }
+
+    /** 청크 변경을 다음 저널 기록 대상으로 표시 */
+    private void markJournalDirty(ChunkPosition pos, boolean snapshotChanged) {
+        journalDirty.merge(pos, snapshotChanged, Boolean::logicalOr);
+    }
+
+    /**
+     * 저널을 재생해 로드 데이터에 반영합니다. (I/O 스레드)
+     * 재생에 실패하면 원본을 .bad 파일로 복사해 두고, 적용을 마친 레코드까지의 길이를 돌려줍니다.
+     * (loaded에는 그 레코드들까지만 반영되어 있으므로 저널도 그 지점부터 이어 씀)
+     * @return 유효한 저널 길이
+     */
+    private long replayJournal(File journalFile, Map<ChunkPosition, LoadedChunk> loaded) {
+        // 저널 안에 데이터로 포함된 섹션 (재생 중에만 임시 참조 보유)
+        Long2IntOpenHashMap inlinedSections = new Long2IntOpenHashMap();
+        inlinedSections.defaultReturnValue(SnapshotArena.NO_BLOCK);
+        ChunkState[] stateValues = ChunkState.values();
+        int[] recordCount = {0};
+        try {
+            long validLength = FogJournal.replay(journalFile.toPath(), record -> {
+                recordCount[0]++;
+                ChunkPosition pos = new ChunkPosition(ChunkPos.getPackedX(record.chunkKey), ChunkPos.getPackedZ(record.chunkKey));
+                LoadedChunk chunk = loaded.computeIfAbsent(pos, LoadedChunk::new);
+                byte state = record.state;
+                chunk.state = (state >= 0 && state < stateValues.length && stateValues[state] != ChunkState.VISIBLE) ? stateValues[state] : null;
+                chunk.fogBlock = null;
+                if (!record.fogBlockId.isEmpty()) {
+                    Identifier blockIdentifier = safeCreateIdentifier(record.fogBlockId);
+                    Block block = blockIdentifier != null ? Registries.BLOCK.get(blockIdentifier) : Blocks.AIR;
+                    if (block != Blocks.AIR) chunk.fogBlock = block.getDefaultState();
                 }
-            } else {
-                 logInfo("저장할 안개 데이터가 없습니다. 파일 삭제 시도: " + saveFile.getName());
-                 if(saveFile.exists() && saveFile.delete()) {
-                      logDebug("  Previous save file deleted.");
-                 }
+                if (record.snapshotMode != FogJournal.SNAPSHOT_UNCHANGED && chunk.snapshot != null) {
+                    chunk.snapshot.release(snapshotStore);
+                    chunk.snapshot = null;
+                }
+                if (record.snapshotMode == FogJournal.SNAPSHOT_SET) {
+                    int[] handles = new int[record.sectionCount];
+                    for (int s = 0; s < record.sectionCount; s++) {
+                        handles[s] = SnapshotArena.NO_BLOCK;
+                        if (record.sectionKinds[s] == FogJournal.SECTION_INLINE) {
+                            handles[s] = snapshotStore.intern(record.data, record.sectionOffsets[s]);
+                            if (!inlinedSections.containsKey(record.sectionHashes[s])) {
+                                snapshotStore.retain(handles[s]);
+                                inlinedSections.put(record.sectionHashes[s], handles[s]);
+                            }
+                        } else if (record.sectionKinds[s] == FogJournal.SECTION_REF) {
+                            int handle = inlinedSections.get(record.sectionHashes[s]);
+                            if (handle != SnapshotArena.NO_BLOCK) {
+                                snapshotStore.retain(handle);
+                                handles[s] = handle;
+                            } else {
+                                logWarn("    저널의 스냅샷 섹션 참조를 찾을 수 없음: " + Long.toHexString(record.sectionHashes[s]) + " at " + pos);
+                            }
+                        }
+                    }
+                    chunk.snapshot = new ChunkSnapshot(record.bottomY, handles);
+                }
+                if (chunk.state == null && chunk.fogBlock == null && chunk.snapshot == null) {
+                    loaded.remove(pos);
+                }
+            });
+            if (recordCount[0] > 0) {
+                logInfo("저널 재생 완료: " + recordCount[0] + "개 변경 (" + journalFile.getName() + ")");
+            }
+            return validLength;
+        } catch (Exception e) {
+            long appliedLength = e instanceof FogJournal.ReplayException replayError ? replayError.getAppliedLength() : 0;
+            File backup = backupBadFile(journalFile);
+            logError("저널 재생 실패: " + e.getMessage() + " (" + recordCount[0] + "개 변경까지 적용, 원본은 "
+                    + (backup != null ? backup.getName() : "백업 실패") + ")", e);
+            return appliedLength;
+        } finally {
+            for (int handle : inlinedSections.values()) {
+                snapshotStore.release(handle);
             }
+        }
+    }
 
+    /** 읽지 못한 저장 파일을 같은 폴더에 .bad로 복사 (I/O 스레드) */
+    private File backupBadFile(File file) {
+        File backup = new File(file.getPath() + ".bad");
+        try {
+            Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return backup;
         } catch (Exception e) {
-            logError("전장의 안개 데이터 저장 실패: " + e.getMessage(), e);
+            logError("손상된 저장 파일 백업 실패: " + file.getName() + " (" + e.getMessage() + ")", e);
+            return null;
         }
     }
 
-    /** 게임 시작 시 안개 상태 및 스냅샷 불러오기 */
+    /**
+     * 게임 시작 시 안개 상태 및 스냅샷 불러오기
+     * 파일 읽기/파싱은 백그라운드 스레드에서 수행하고, 플레이어와 가까운 청크부터
+     * LOAD_BATCH_SIZE개씩 메인 스레드에 공개합니다. 공개된 청크 열은 바로 리빌드됩니다.
+     * 아직 공개되지 않은 청크는 isLoadingChunk()가 true이며, 그동안은 HIDDEN으로 취급됩니다.
+     */
     public void loadData() {
         logDebug("loadData() called.");
         try {
@@ -490,118 +1210,530 @@ public class FogOfWarClient implements ClientModInitializer {
                 return;
             }
 
-            Path saveDir = net.fabricmc.loader.api.FabricLoader.getInstance().getConfigDir().resolve("fog_data");
-            String worldId = client.world.getRegistryKey().getValue().toString().replace(':', '_').replace('/', '_');
-            String playerName = client.player.getGameProfile().getName();
-            File saveFile = saveDir.resolve(worldId + "_" + playerName + ".dat").toFile();
+            File saveFile = getSaveFile(client);
+            File legacyFile = getLegacySaveFile(client);
+            File journalFile = getJournalFile(client);
             logDebug("Attempting to load data from: " + saveFile.getAbsolutePath());
 
-            if (!saveFile.exists()) {
+            if (!saveFile.exists() && !legacyFile.exists() && !journalFile.exists()) {
                  logInfo("저장된 안개 데이터 파일 없음: " + saveFile.getName());
+                 compactionDisabled = false;
+                 File saveDir = getSaveDir().toFile();
+                 ioExecutor.execute(() -> {
+                     if (!saveDir.exists() && !saveDir.mkdirs()) {
+                         logError("데이터 저장 폴더 생성 실패: " + saveDir);
+                     }
+                     openJournal(journalFile, 0, saveFile);
+                 });
+                 dataLoaded = true;
                 return;
             }
 
             clearFogData(); // 로드 전 기존 데이터 클리어
+            this.worldBottomY = client.world.getBottomY();
+            this.worldTotalHeight = client.world.getHeight();
+
+            final int generation = ++loadGeneration;
+            final int bottomY = this.worldBottomY;
+            final int originX = client.player.getChunkPos().x;
+            final int originZ = client.player.getChunkPos().z;
+            loadInProgress = true;
+
+            ioExecutor.execute(() -> {
+                long startTime = System.nanoTime();
+                Map<ChunkPosition, LoadedChunk> loaded = null;
+                if (saveFile.exists()) {
+                    loaded = readSaveFile(saveFile);
+                } else if (legacyFile.exists()) {
+                    loaded = migrateLegacySaveFile(legacyFile, saveFile, bottomY);
+                }
+                compactionDisabled = loaded == null && (saveFile.exists() || legacyFile.exists());
+                if (compactionDisabled) {
+                    // 읽지 못한 기본 파일을 부분 상태로 덮어쓰지 않도록 이번 세션은 저널에만 기록
+                    backupBadFile(saveFile.exists() ? saveFile : legacyFile);
+                    logWarn("기본 저장 파일을 읽지 못해 이번 세션에서는 압축하지 않습니다: " + saveFile.getName());
+                }
+                if (loaded == null) loaded = new HashMap<>(); // 기본 파일이 없거나 읽기 실패: 저널만 재생
+                // 기본 파일 이후의 변경 재생 후, 같은 저널에 이어 쓰기
+                long journalLength = replayJournal(journalFile, loaded);
+                openJournal(journalFile, journalLength, saveFile);
+                if (generation != loadGeneration) {
+                    // 이미 월드를 떠남: 읽어 둔 스냅샷 참조 해제
+                    releaseLoadedSnapshots(loaded.values());
+                    return;
+                }
 
-            try {
-                NbtCompound root = NbtIo.readCompressed(saveFile.toPath(), NbtSizeTracker.ofUnlimitedBytes());
-                logInfo("안개 데이터 로드 시작: " + saveFile.getName());
-                 int stateCount = 0, blockCount = 0, snapshotCount = 0;
-
-                // 청크 상태 불러오기
-                if (root.contains("chunkStates", NbtList.COMPOUND_TYPE)) {
-                    NbtList chunkStatesNbt = root.getList("chunkStates", NbtCompound.COMPOUND_TYPE);
-                     logDebug("  Loading " + chunkStatesNbt.size() + " chunk states...");
-                    for (int i = 0; i < chunkStatesNbt.size(); i++) {
-                        NbtCompound chunkData = chunkStatesNbt.getCompound(i);
-                        // 필수 키 존재 여부 확인 강화
-                        if (chunkData.contains("x") && chunkData.contains("z") && chunkData.contains("state")) {
-                            int x = chunkData.getInt("x");
-                            int z = chunkData.getInt("z");
-                            String stateName = chunkData.getString("state");
-                            try {
-                                ChunkState state = ChunkState.valueOf(stateName);
-                                if (state != ChunkState.VISIBLE) { // VISIBLE은 저장 안했으므로 로드할 필요 없음
-                                    chunkStates.put(new ChunkPosition(x, z), state);
-                                    stateCount++;
-                                }
-                            } catch (IllegalArgumentException e) {
-                                logWarn("    저장된 데이터에 잘못된 청크 상태 값: " + stateName + " at ("+x+","+z+")");
+                // 플레이어와 가까운 청크부터 공개
+                List<LoadedChunk> ordered = new ArrayList<>(loaded.values());
+                ordered.sort(Comparator.comparingLong(c -> distanceSq(c.pos, originX, originZ)));
+                for (LoadedChunk chunk : ordered) {
+                    if (liveUpdatedDuringLoad.contains(chunk.pos)) continue; // 공개 시점에 버려짐
+                    pendingLoad.put(chunk.pos, chunk);
+                }
+                logDebug("Parsed " + ordered.size() + " saved chunks in " + (System.nanoTime() - startTime) / 1_000_000 + " ms, publishing nearest first.");
+
+                for (int from = 0; from < ordered.size(); from += LOAD_BATCH_SIZE) {
+                    List<LoadedChunk> batch = ordered.subList(from, Math.min(from + LOAD_BATCH_SIZE, ordered.size()));
+                    client.execute(() -> publishLoadedBatch(generation, batch));
+                }
+                client.execute(() -> finishLoad(generation));
+            });
+
+        } catch (Exception e) {
+            logError("전장의 안개 데이터 로드 중 오류: " + e.getMessage(), e);
+            loadInProgress = false;
+        }
+    }
+
+    /**
+     * 컬럼 형식 저장 파일을 읽어 청크별 데이터로 변환합니다. (백그라운드 스레드)
+     * 스냅샷 섹션은 저장소에 바로 넣으며, 반환된 스냅샷들이 참조를 보유합니다.
+     * @return 청크별 로드 데이터, 실패 시 null
+     */
+    private Map<ChunkPosition, LoadedChunk> readSaveFile(File saveFile) {
+        Map<ChunkPosition, LoadedChunk> loaded = new HashMap<>();
+        try {
+            long startTime = System.nanoTime();
+            FogSaveFormat.Columns columns = FogSaveFormat.read(saveFile.toPath());
+            logInfo("안개 데이터 로드 시작: " + saveFile.getName());
+
+            // 팔레트는 항목당 한 번만 해석
+            BlockState[] palette = new BlockState[columns.fogBlockPalette.length + 1];
+            for (int i = 0; i < columns.fogBlockPalette.length; i++) {
+                Identifier blockIdentifier = safeCreateIdentifier(columns.fogBlockPalette[i]);
+                Block block = blockIdentifier != null ? Registries.BLOCK.get(blockIdentifier) : Blocks.AIR;
+                if (block != Blocks.AIR) {
+                    palette[i + 1] = block.getDefaultState();
+                } else {
+                    logWarn("    저장된 데이터에 잘못된 블록 ID: " + columns.fogBlockPalette[i]);
+                }
+            }
+
+            ChunkState[] stateValues = ChunkState.values();
+            for (int i = 0; i < columns.chunkKeys.length; i++) {
+                long key = columns.chunkKeys[i];
+                LoadedChunk chunk = new LoadedChunk(new ChunkPosition(ChunkPos.getPackedX(key), ChunkPos.getPackedZ(key)));
+                byte state = columns.states[i];
+                if (state != FogSaveFormat.NO_STATE && state >= 0 && state < stateValues.length && stateValues[state] != ChunkState.VISIBLE) {
+                    chunk.state = stateValues[state];
+                }
+                int paletteIndex = columns.fogBlockIndices[i] & 0xFFFF;
+                if (paletteIndex != FogSaveFormat.DEFAULT_FOG_BLOCK && paletteIndex < palette.length) {
+                    chunk.fogBlock = palette[paletteIndex];
+                }
+                if (chunk.state != null || chunk.fogBlock != null) {
+                    loaded.put(chunk.pos, chunk);
+                }
+            }
+
+            // 고유 섹션 테이블 (로드 중에만 임시 참조를 하나 보유)
+            int sectionCount = columns.sectionBytes == SnapshotArena.BLOCK_BYTES ? columns.sectionTable.length / SnapshotArena.BLOCK_BYTES : 0;
+            int[] sectionTable = new int[sectionCount];
+            for (int i = 0; i < sectionCount; i++) {
+                sectionTable[i] = snapshotStore.intern(columns.sectionTable, i * SnapshotArena.BLOCK_BYTES);
+            }
+            int refOffset = 0;
+            for (int i = 0; i < columns.snapshotKeys.length; i++) {
+                long key = columns.snapshotKeys[i];
+                int[] handles = new int[columns.snapshotSectionCounts[i]];
+                for (int s = 0; s < handles.length; s++) {
+                    int ref = columns.snapshotSectionRefs[refOffset++];
+                    handles[s] = (ref >= 0 && ref < sectionTable.length) ? sectionTable[ref] : SnapshotArena.NO_BLOCK;
+                    snapshotStore.retain(handles[s]);
+                }
+                ChunkPosition pos = new ChunkPosition(ChunkPos.getPackedX(key), ChunkPos.getPackedZ(key));
+                loaded.computeIfAbsent(pos, LoadedChunk::new).snapshot = new ChunkSnapshot(columns.snapshotBottomY[i], handles);
+            }
+            for (int handle : sectionTable) {
+                snapshotStore.release(handle);
+            }
+
+            logInfo("안개 데이터 읽기 완료: " + columns.chunkKeys.length + "개 청크, " + columns.snapshotKeys.length + "개 스냅샷 ("
+                    + (System.nanoTime() - startTime) / 1_000_000 + " ms)");
+            return loaded;
+
+        } catch (Exception e) {
+            logError("안개 데이터 파일 읽기/파싱 실패: " + e.getMessage(), e);
+            releaseLoadedSnapshots(loaded.values());
+            return null;
+        }
+    }
+
+    /**
+     * 이전 NBT 형식 파일을 읽고 컬럼 형식으로 변환해 저장합니다. (백그라운드 스레드)
+     * 변환에 성공하면 이전 파일은 .bak으로 이름을 바꿔 보관합니다.
+     */
+    private Map<ChunkPosition, LoadedChunk> migrateLegacySaveFile(File legacyFile, File saveFile, int defaultBottomY) {
+        Map<ChunkPosition, LoadedChunk> loaded = readLegacySaveFile(legacyFile, defaultBottomY);
+        if (loaded == null) return null;
+        try {
+            Map<ChunkPosition, ChunkState> states = new HashMap<>();
+            Map<ChunkPosition, BlockState> blocks = new HashMap<>();
+            Map<ChunkPosition, ChunkSnapshot> snapshots = new HashMap<>();
+            for (LoadedChunk chunk : loaded.values()) {
+                if (chunk.state != null) states.put(chunk.pos, chunk.state);
+                if (chunk.fogBlock != null) blocks.put(chunk.pos, chunk.fogBlock);
+                if (chunk.snapshot != null && chunk.state == ChunkState.FOGGED) snapshots.put(chunk.pos, chunk.snapshot);
+            }
+            FogSaveFormat.write(saveFile.toPath(), buildSaveColumns(states, blocks, snapshots));
+            File backup = new File(legacyFile.getPath() + ".bak");
+            if (legacyFile.renameTo(backup)) {
+                logInfo("이전 형식 안개 데이터를 변환했습니다: " + legacyFile.getName() + " → " + saveFile.getName());
+            } else {
+                logWarn("이전 형식 파일 이름 변경 실패 (다음 로드는 새 형식 파일 사용): " + legacyFile.getName());
+            }
+        } catch (Exception e) {
+            logError("이전 형식 안개 데이터 변환 실패 (데이터는 그대로 사용): " + e.getMessage(), e);
+        }
+        return loaded;
+    }
+
+    /**
+     * 이전 NBT 형식 저장 파일을 읽어 청크별 데이터로 파싱합니다. (백그라운드 스레드)
+     * @return 청크별 로드 데이터, 실패 시 null
+     */
+    private Map<ChunkPosition, LoadedChunk> readLegacySaveFile(File saveFile, int defaultBottomY) {
+        Map<ChunkPosition, LoadedChunk> loaded = new HashMap<>();
+        try {
+            NbtCompound root = NbtIo.readCompressed(saveFile.toPath(), NbtSizeTracker.ofUnlimitedBytes());
+            logInfo("안개 데이터 로드 시작: " + saveFile.getName());
+            int stateCount = 0, blockCount = 0, snapshotCount = 0;
+
+            // 청크 상태 불러오기
+            if (root.contains("chunkStates", NbtList.COMPOUND_TYPE)) {
+                NbtList chunkStatesNbt = root.getList("chunkStates", NbtCompound.COMPOUND_TYPE);
+                 logDebug("  Loading " + chunkStatesNbt.size() + " chunk states...");
+                for (int i = 0; i < chunkStatesNbt.size(); i++) {
+                    NbtCompound chunkData = chunkStatesNbt.getCompound(i);
+                    // 필수 키 존재 여부 확인 강화
+                    if (chunkData.contains("x") && chunkData.contains("z") && chunkData.contains("state")) {
+                        int x = chunkData.getInt("x");
+                        int z = chunkData.getInt("z");
+                        String stateName = chunkData.getString("state");
+                        try {
+                            ChunkState state = ChunkState.valueOf(stateName);
+                            if (state != ChunkState.VISIBLE) { // VISIBLE은 저장 안했으므로 로드할 필요 없음
+                                loaded.computeIfAbsent(new ChunkPosition(x, z), LoadedChunk::new).state = state;
+                                stateCount++;
                             }
-                        } else {
-                             logWarn("    Invalid chunk state data found in NBT: " + chunkData);
+                        } catch (IllegalArgumentException e) {
+                            logWarn("    저장된 데이터에 잘못된 청크 상태 값: " + stateName + " at ("+x+","+z+")");
                         }
+                    } else {
+                         logWarn("    Invalid chunk state data found in NBT: " + chunkData);
                     }
                 }
+            }
 
-                // 안개 블록 불러오기
-                 if (root.contains("fogBlocks", NbtList.COMPOUND_TYPE)) {
-                    NbtList fogBlocksNbt = root.getList("fogBlocks", NbtCompound.COMPOUND_TYPE);
-                     logDebug("  Loading " + fogBlocksNbt.size() + " custom fog blocks...");
-                    for (int i = 0; i < fogBlocksNbt.size(); i++) {
-                        NbtCompound blockData = fogBlocksNbt.getCompound(i);
-                         if (blockData.contains("x") && blockData.contains("z") && blockData.contains("block")) {
-                            int x = blockData.getInt("x");
-                            int z = blockData.getInt("z");
-                            String blockId = blockData.getString("block");
-                            Identifier blockIdentifier = safeCreateIdentifier(blockId);
-                            if (blockIdentifier != null) {
-                                Block block = Registries.BLOCK.get(blockIdentifier);
-                                if (block != Blocks.AIR) {
-                                    fogBlocks.put(new ChunkPosition(x, z), block.getDefaultState());
-                                    blockCount++;
-                                } else {
-                                     logWarn("    저장된 데이터에 잘못된 블록 ID(AIR): " + blockId + " at ("+x+","+z+")");
-                                }
+            // 안개 블록 불러오기
+             if (root.contains("fogBlocks", NbtList.COMPOUND_TYPE)) {
+                NbtList fogBlocksNbt = root.getList("fogBlocks", NbtCompound.COMPOUND_TYPE);
+                 logDebug("  Loading " + fogBlocksNbt.size() + " custom fog blocks...");
+                for (int i = 0; i < fogBlocksNbt.size(); i++) {
+                    NbtCompound blockData = fogBlocksNbt.getCompound(i);
+                     if (blockData.contains("x") && blockData.contains("z") && blockData.contains("block")) {
+                        int x = blockData.getInt("x");
+                        int z = blockData.getInt("z");
+                        String blockId = blockData.getString("block");
+                        Identifier blockIdentifier = safeCreateIdentifier(blockId);
+                        if (blockIdentifier != null) {
+                            Block block = Registries.BLOCK.get(blockIdentifier);
+                            if (block != Blocks.AIR) {
+                                loaded.computeIfAbsent(new ChunkPosition(x, z), LoadedChunk::new).fogBlock = block.getDefaultState();
+                                blockCount++;
                             } else {
-                                 logWarn("    저장된 데이터에 잘못된 블록 ID 형식: " + blockId + " at ("+x+","+z+")");
+                                 logWarn("    저장된 데이터에 잘못된 블록 ID(AIR): " + blockId + " at ("+x+","+z+")");
                             }
                         } else {
-                             logWarn("    Invalid fog block data found in NBT: " + blockData);
+                             logWarn("    저장된 데이터에 잘못된 블록 ID 형식: " + blockId + " at ("+x+","+z+")");
                         }
+                    } else {
+                         logWarn("    Invalid fog block data found in NBT: " + blockData);
                     }
                 }
+            }
 
-                // 스냅샷 데이터 불러오기 (byte[] 사용)
-                if (root.contains("snapshots", NbtList.COMPOUND_TYPE)) {
-                    NbtList snapshotsNbt = root.getList("snapshots", NbtCompound.COMPOUND_TYPE);
-                     logDebug("  Loading " + snapshotsNbt.size() + " snapshots...");
-                    for (int i = 0; i < snapshotsNbt.size(); i++) {
-                        NbtCompound snapshotData = snapshotsNbt.getCompound(i);
-                         if (snapshotData.contains("x") && snapshotData.contains("z") && snapshotData.contains("data", NbtElement.BYTE_ARRAY_TYPE)) {
-                            int x = snapshotData.getInt("x");
-                            int z = snapshotData.getInt("z");
-                            // NBT에서 byte[] 데이터를 로드
-                            byte[] data = snapshotData.getByteArray("data");
-                            if (data != null && data.length > 0) { // 데이터 유효성 검사 (선택적)
-                                chunkSnapshots.put(new ChunkPosition(x, z), data);
-                                snapshotCount++;
-                            } else {
-                                logWarn("    청크 (" + x + ", " + z + ")의 스냅샷 데이터가 비어 있거나 유효하지 않습니다.");
-                            }
-                        } else {
-                            logWarn("    Invalid snapshot data found in NBT: " + snapshotData);
+            // 고유 섹션 테이블 불러오기 (각 섹션은 로드 중에만 임시 참조를 하나 보유)
+            int[] sectionTable = new int[0];
+            if (root.contains("snapshotSections", NbtElement.BYTE_ARRAY_TYPE)) {
+                byte[] tableData = root.getByteArray("snapshotSections");
+                sectionTable = new int[tableData.length / SnapshotArena.BLOCK_BYTES];
+                for (int i = 0; i < sectionTable.length; i++) {
+                    sectionTable[i] = snapshotStore.intern(tableData, i * SnapshotArena.BLOCK_BYTES);
+                }
+                logDebug("  Loaded " + sectionTable.length + " unique snapshot sections.");
+            }
+
+            // 스냅샷 데이터 불러오기 (섹션 테이블 참조, 또는 이전 형식의 byte[])
+            if (root.contains("snapshots", NbtList.COMPOUND_TYPE)) {
+                NbtList snapshotsNbt = root.getList("snapshots", NbtCompound.COMPOUND_TYPE);
+                 logDebug("  Loading " + snapshotsNbt.size() + " snapshots...");
+                for (int i = 0; i < snapshotsNbt.size(); i++) {
+                    NbtCompound snapshotData = snapshotsNbt.getCompound(i);
+                    if (!snapshotData.contains("x") || !snapshotData.contains("z")) {
+                        logWarn("    Invalid snapshot data found in NBT: " + snapshotData);
+                        continue;
+                    }
+                    int x = snapshotData.getInt("x");
+                    int z = snapshotData.getInt("z");
+                    // bottomY가 없는 이전 파일은 현재 월드 기준
+                    int bottomY = snapshotData.contains("bottomY") ? snapshotData.getInt("bottomY") : defaultBottomY;
+                    ChunkSnapshot snapshot = null;
+                    if (snapshotData.contains("sections", NbtElement.INT_ARRAY_TYPE)) {
+                        int[] sectionRefs = snapshotData.getIntArray("sections");
+                        int[] handles = new int[sectionRefs.length];
+                        for (int s = 0; s < sectionRefs.length; s++) {
+                            int ref = sectionRefs[s];
+                            handles[s] = (ref >= 0 && ref < sectionTable.length) ? sectionTable[ref] : SnapshotArena.NO_BLOCK;
+                            snapshotStore.retain(handles[s]);
+                        }
+                        snapshot = new ChunkSnapshot(bottomY, handles);
+                    } else if (snapshotData.contains("data", NbtElement.BYTE_ARRAY_TYPE)) {
+                        byte[] data = snapshotData.getByteArray("data");
+                        if (data != null && data.length > 0) {
+                            snapshot = ChunkSnapshot.fromLegacyBytes(snapshotStore, bottomY, data);
                         }
                     }
+                    if (snapshot != null) {
+                        LoadedChunk chunk = loaded.computeIfAbsent(new ChunkPosition(x, z), LoadedChunk::new);
+                        if (chunk.snapshot != null) chunk.snapshot.release(snapshotStore);
+                        chunk.snapshot = snapshot;
+                        snapshotCount++;
+                    } else {
+                        logWarn("    청크 (" + x + ", " + z + ")의 스냅샷 데이터가 비어 있거나 유효하지 않습니다.");
+                    }
                 }
+            }
+            // 섹션 테이블의 임시 참조 해제 (어떤 스냅샷도 참조하지 않는 섹션은 여기서 회수)
+            for (int handle : sectionTable) {
+                snapshotStore.release(handle);
+            }
 
-                logInfo("안개 데이터 로드 완료: " + stateCount + "개 상태, "
-                                   + blockCount + "개 커스텀 블록, " + snapshotCount + "개 스냅샷");
+            logInfo("안개 데이터 읽기 완료: " + stateCount + "개 상태, "
+                               + blockCount + "개 커스텀 블록, " + snapshotCount + "개 스냅샷");
+            return loaded;
 
-            } catch (Exception e) {
-                logError("안개 데이터 파일 읽기/파싱 실패: " + e.getMessage(), e);
-                clearFogData(); // 로드 실패 시 확실히 초기화
+        } catch (Exception e) {
+            logError("안개 데이터 파일 읽기/파싱 실패: " + e.getMessage(), e);
+            releaseLoadedSnapshots(loaded.values());
+            return null;
+        }
+    }
+
+    /**
+     * 로드된 청크 묶음을 실제 상태에 공개합니다. (메인 스레드)
+     * 로드 중에 서버/NPC에 의해 이미 갱신된 청크(liveUpdatedDuringLoad)는 덮어쓰지 않습니다.
+     */
+    private void publishLoadedBatch(int generation, List<LoadedChunk> batch) {
+        if (generation != loadGeneration) return; // 월드를 떠났거나 다시 로드됨
+        int published = 0;
+        LongOpenHashSet reloadColumns = new LongOpenHashSet(batch.size());
+        for (LoadedChunk chunk : batch) {
+            if (!pendingLoad.remove(chunk.pos, chunk) || liveUpdatedDuringLoad.contains(chunk.pos)) {
+                // 로드 중 실시간으로 갱신된 청크: 로드된 데이터는 버림 (스냅샷 참조는 여기서만 해제)
+                if (chunk.snapshot != null) chunk.snapshot.release(snapshotStore);
+                continue;
+            }
+            if (chunk.state != null) {
+                chunkStates.put(chunk.pos, chunk.state);
+                stateVersion.incrementAndGet();
             }
+            if (chunk.fogBlock != null) fogBlocks.put(chunk.pos, chunk.fogBlock);
+            if (chunk.snapshot != null) {
+                ChunkSnapshot previous = chunkSnapshots.put(chunk.pos, chunk.snapshot);
+                if (previous != null) previous.release(snapshotStore);
+            }
+            if (chunk.state != null) {
+                reloadColumns.add(ChunkPos.toLong(chunk.pos.x, chunk.pos.z));
+            }
+            published++;
+        }
+        ChunkReloadManager.requestChunkReloads(reloadColumns); // 묶음 단위로 요청 (묶음 안의 이웃끼리는 경계 리빌드 생략)
+        logDebug("Published " + published + " loaded chunks (" + pendingLoad.size() + " remaining).");
+    }
+
+    /** 로드 완료 처리 (메인 스레드) */
+    private void finishLoad(int generation) {
+        if (generation != loadGeneration) return;
+        loadInProgress = false;
+        liveUpdatedDuringLoad.clear();
+        dataLoaded = true;
+        logInfo("안개 데이터 로드 완료: " + chunkStates.size() + "개 상태, " + chunkSnapshots.size() + "개 스냅샷");
+    }
 
+    /** 진행 중인 로드를 취소하고, 공개되지 않은 스냅샷 참조를 해제합니다. */
+    private void cancelPendingLoad() {
+        loadGeneration++;
+        loadInProgress = false;
+        liveUpdatedDuringLoad.clear();
+        releaseLoadedSnapshots(pendingLoad.values());
+        pendingLoad.clear();
+    }
+
+    /**
+     * I/O 스레드에 이미 들어간 작업(로드, 압축 등)이 끝날 때까지 기다립니다. (메인 스레드)
+     * 저장소를 비우기 전에 호출해, 진행 중인 작업이 해제된 핸들을 읽거나 새 월드의 핸들을 건드리지 않게 합니다.
+     * @return 시간 안에 끝났으면 true
+     */
+    private boolean awaitIoIdle() {
+        try {
+            ioExecutor.submit(() -> { }).get(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
-            logError("전장의 안개 데이터 로드 중 오류: " + e.getMessage(), e);
+            logError("I/O 작업 대기 실패: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void releaseLoadedSnapshots(Iterable<LoadedChunk> chunks) {
+        for (LoadedChunk chunk : chunks) {
+            if (chunk.snapshot != null) chunk.snapshot.release(snapshotStore);
+        }
+    }
+
+    /** 실시간 갱신이 일어난 청크는 로드 대기 목록에서 제외 (로드 데이터가 최신 상태를 덮어쓰지 않도록) */
+    private void markLiveUpdate(ChunkPosition pos) {
+        if (!pendingFogState.isEmpty()) {
+            pendingFogState.remove(pos); // 상태가 정해짐: 메싱 보류 해제 (리빌드는 호출한 쪽에서 요청)
+        }
+        if (loadInProgress) {
+            liveUpdatedDuringLoad.add(pos); // 아직 파싱 중인 청크도 공개 시점에 버림
+        }
+        if (pendingLoad.isEmpty()) return;
+        pendingLoad.remove(pos); // 스냅샷 참조는 publishLoadedBatch에서 해제
+    }
+
+    private static long distanceSq(ChunkPosition pos, int originX, int originZ) {
+        long dx = pos.x - originX;
+        long dz = pos.z - originZ;
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * 상태/안개 블록/스냅샷 맵을 저장용 컬럼으로 변환합니다.
+     * 청크 키는 정렬되며, 고유 스냅샷 섹션은 한 번만 기록됩니다.
+     */
+    private FogSaveFormat.Columns buildSaveColumns(Map<ChunkPosition, ChunkState> states,
+                                                   Map<ChunkPosition, BlockState> blocks,
+                                                   Map<ChunkPosition, ChunkSnapshot> snapshots) {
+        FogSaveFormat.Columns columns = new FogSaveFormat.Columns();
+
+        // 청크 상태 (VISIBLE 제외) + 커스텀 안개 블록 (기본 블록과 다른 경우만)
+        LongOpenHashSet keySet = new LongOpenHashSet();
+        for (Map.Entry<ChunkPosition, ChunkState> entry : states.entrySet()) {
+            if (entry.getValue() != ChunkState.VISIBLE) keySet.add(ChunkPos.toLong(entry.getKey().x, entry.getKey().z));
+        }
+        for (Map.Entry<ChunkPosition, BlockState> entry : blocks.entrySet()) {
+            if (!entry.getValue().equals(defaultFogBlock)) keySet.add(ChunkPos.toLong(entry.getKey().x, entry.getKey().z));
+        }
+        long[] keys = keySet.toLongArray();
+        Arrays.sort(keys);
+        columns.chunkKeys = keys;
+        columns.states = new byte[keys.length];
+        columns.fogBlockIndices = new short[keys.length];
+        Map<BlockState, Integer> paletteIndex = new HashMap<>();
+        List<String> palette = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            ChunkPosition pos = new ChunkPosition(ChunkPos.getPackedX(keys[i]), ChunkPos.getPackedZ(keys[i]));
+            ChunkState state = states.get(pos);
+            columns.states[i] = (state == null || state == ChunkState.VISIBLE) ? FogSaveFormat.NO_STATE : (byte) state.ordinal();
+            BlockState fogBlock = blocks.get(pos);
+            if (fogBlock != null && !fogBlock.equals(defaultFogBlock)) {
+                Integer index = paletteIndex.get(fogBlock);
+                if (index == null) {
+                    palette.add(Registries.BLOCK.getId(fogBlock.getBlock()).toString());
+                    index = palette.size(); // 0은 기본 블록
+                    paletteIndex.put(fogBlock, index);
+                }
+                columns.fogBlockIndices[i] = (short) (int) index;
+            }
+        }
+        columns.fogBlockPalette = palette.toArray(new String[0]);
+
+        // 스냅샷: 섹션 테이블 인덱스로 참조
+        long[] snapshotKeys = new long[snapshots.size()];
+        int n = 0;
+        for (ChunkPosition pos : snapshots.keySet()) {
+            snapshotKeys[n++] = ChunkPos.toLong(pos.x, pos.z);
+        }
+        Arrays.sort(snapshotKeys);
+        columns.snapshotKeys = snapshotKeys;
+        columns.snapshotBottomY = new int[snapshotKeys.length];
+        columns.snapshotSectionCounts = new int[snapshotKeys.length];
+        IntArrayList refs = new IntArrayList();
+        Int2IntOpenHashMap sectionTableIndex = new Int2IntOpenHashMap();
+        sectionTableIndex.defaultReturnValue(-1);
+        ByteArrayOutputStream sectionTable = new ByteArrayOutputStream();
+        byte[] packedSection = new byte[SnapshotArena.BLOCK_BYTES];
+        for (int i = 0; i < snapshotKeys.length; i++) {
+            ChunkSnapshot snapshot = snapshots.get(new ChunkPosition(ChunkPos.getPackedX(snapshotKeys[i]), ChunkPos.getPackedZ(snapshotKeys[i])));
+            columns.snapshotBottomY[i] = snapshot.getBottomY();
+            columns.snapshotSectionCounts[i] = snapshot.getSectionCount();
+            for (int s = 0; s < snapshot.getSectionCount(); s++) {
+                int handle = snapshot.getSectionHandle(s);
+                if (handle == SnapshotArena.NO_BLOCK) {
+                    refs.add(-1);
+                    continue;
+                }
+                int tableIndex = sectionTableIndex.get(handle);
+                if (tableIndex == -1) {
+                    tableIndex = sectionTableIndex.size();
+                    sectionTableIndex.put(handle, tableIndex);
+                    snapshotStore.copyOut(handle, packedSection, 0);
+                    sectionTable.write(packedSection, 0, packedSection.length);
+                }
+                refs.add(tableIndex);
+            }
+        }
+        columns.sectionBytes = SnapshotArena.BLOCK_BYTES;
+        columns.sectionTable = sectionTable.toByteArray();
+        columns.snapshotSectionRefs = refs.toIntArray();
+        return columns;
+    }
+
+    private static File getSaveFile(MinecraftClient client) {
+        return getSaveDir().resolve(getSaveFileBaseName(client) + ".fog").toFile();
+    }
+
+    /** 기본 저장 파일 이후의 변경 저널 */
+    private static File getJournalFile(MinecraftClient client) {
+        return getSaveDir().resolve(getSaveFileBaseName(client) + ".fog.journal").toFile();
+    }
+
+    /** 이전 NBT 형식 저장 파일 (첫 로드 시 변환) */
+    private static File getLegacySaveFile(MinecraftClient client) {
+        return getSaveDir().resolve(getSaveFileBaseName(client) + ".dat").toFile();
+    }
+
+    private static Path getSaveDir() {
+        return net.fabricmc.loader.api.FabricLoader.getInstance().getConfigDir().resolve("fog_data");
+    }
+
+    private static String getSaveFileBaseName(MinecraftClient client) {
+        String worldId = client.world.getRegistryKey().getValue().toString().replace(':', '_').replace('/', '_');
+        String playerName = client.player.getGameProfile().getName();
+        return worldId + "_" + playerName;
+    }
+
+    /** 저장 파일에서 읽은 청크 하나의 데이터 (공개 전) */
+    private static final class LoadedChunk {
+        final ChunkPosition pos;
+        ChunkState state;
+        BlockState fogBlock;
+        ChunkSnapshot snapshot;
+
+        LoadedChunk(ChunkPosition pos) {
+            this.pos = pos;
         }
     }
 
     // --- 상태 조회 메서드 (Mixin 등에서 사용) ---
 
     /** 주어진 청크의 스냅샷 데이터를 가져옵니다. */
-    public static byte[] getChunkSnapshot(int x, int y, int z) {
+    public static ChunkSnapshot getChunkSnapshot(int x, int y, int z) {
         if (instance == null) {
              // logStaticWarn("getChunkSnapshot called before instance is ready."); // 너무 빈번하게 호출될 수 있음
             return null;
@@ -611,11 +1743,81 @@ public class FogOfWarClient implements ClientModInitializer {
              return null;
         }
         ChunkPosition pos = new ChunkPosition(x >> 4, z >> 4);
-        byte[] snapshot = instance.chunkSnapshots.get(pos);
+        ChunkSnapshot snapshot = instance.chunkSnapshots.get(pos);
         // logStaticDebug("getChunkSnapshot(" + pos + ") -> " + (snapshot != null ? "Found" : "Not Found")); // 매우 빈번하므로 주석 처리
         return snapshot;
     }
 
+    /** 서버에서 받았지만 안개 상태가 아직 정해지지 않아 메싱을 보류 중인 청크인지 확인 */
+    public static boolean isAwaitingFogState(int x, int z) {
+        if (instance == null || instance.pendingFogState.isEmpty()) return false;
+        return instance.pendingFogState.containsKey(new ChunkPosition(x, z));
+    }
+
+    /**
+     * 마지막으로 보였던 메시를 유지 중인 FOGGED 청크인지 확인 (fogFrozenMesh)
+     * 이런 청크는 리빌드가 억제되며, 그래도 다시 메싱되면 그 직전에 스냅샷을 캡처합니다. (captureFrozenSnapshot)
+     */
+    public static boolean isFrozenChunk(int x, int z) {
+        if (instance == null || instance.frozenChunks.isEmpty()) return false;
+        return instance.frozenChunks.contains(new ChunkPosition(x, z));
+    }
+
+    /**
+     * 고정 메시 청크를 다시 메싱하기 직전에 호출 (렌더 스레드, 소듐 메싱 작업 생성 시점)
+     * 스냅샷 캡처를 미뤄 둔 청크면 지금 캡처해 실시간 블록 대신 스냅샷으로 그려지게 합니다.
+     */
+    public static void captureFrozenSnapshot(int x, int z) {
+        if (instance == null || instance.frozenChunks.isEmpty()) return;
+        ChunkPosition pos = new ChunkPosition(x, z);
+        if (!instance.frozenChunks.contains(pos) || instance.chunkSnapshots.containsKey(pos)) return;
+        if (instance.generateAndStoreChunkSnapshot(pos) != null) {
+            instance.markJournalDirty(pos, true);
+        }
+    }
+
+    /** 캡처를 미뤄 둔 고정 메시 청크를 모두 캡처 (저장 직전, 메인 스레드) */
+    private void captureDeferredFrozenSnapshots() {
+        if (frozenChunks.isEmpty()) return;
+        int captured = 0;
+        for (ChunkPosition pos : frozenChunks) {
+            if (chunkSnapshots.containsKey(pos)) continue;
+            if (generateAndStoreChunkSnapshot(pos) != null) {
+                markJournalDirty(pos, true);
+                captured++;
+            }
+        }
+        if (captured > 0) {
+            logDebug("저장 전 고정 메시 청크 스냅샷 " + captured + "개 캡처");
+        }
+    }
+
+    /** 청크 상태 버전: 값이 같으면 그 사이 어떤 청크 상태도 바뀌지 않았음 */
+    public static int getStateVersion() {
+        return instance != null ? instance.stateVersion.get() : 0;
+    }
+
+    /** 클라이언트 월드의 블록 변경 (WorldChunkMixin): 추적 중인 스냅샷(FOGGED 또는 보관 중)이 있으면 해당 섹션을 변경됨으로 표시 */
+    public static void onClientBlockChanged(int chunkX, int chunkZ, int sectionIndex) {
+        if (instance == null) return;
+        instance.dirtyTracker.markDirty(ChunkPos.toLong(chunkX, chunkZ), sectionIndex);
+        NPCChunkManager.getInstance().invalidateChunkHeight(chunkX, chunkZ); // 시야선 높이 캐시
+    }
+
+    /** 스냅샷 섹션 저장소 (메싱 스레드에서 읽기 전용으로 사용) */
+    public static SnapshotStore getSnapshotStore() {
+        return instance != null ? instance.snapshotStore : null;
+    }
+
+    /**
+     * 저장 데이터가 아직 로드(공개)되지 않은 청크인지 확인
+     * 로드 중인 청크는 HIDDEN으로 취급되며, 공개되는 즉시 해당 열이 리빌드됩니다.
+     */
+    public static boolean isLoadingChunk(int x, int z) {
+        if (instance == null || instance.pendingLoad.isEmpty()) return false;
+        return instance.pendingLoad.containsKey(new ChunkPosition(x, z));
+    }
+
     /** 특정 청크가 숨겨진 상태인지 확인 */
     public static boolean isHiddenChunk(int x, int z) {
         if (instance == null || !instance.initialized) return true; // 기본값을 HIDDEN으로 변경
@@ -663,25 +1865,13 @@ public class FogOfWarClient implements ClientModInitializer {
         ChunkPosition chunkPos = new ChunkPosition(chunkX, chunkZ);
         
         // 해당 청크의 스냅샷 가져오기
-        byte[] snapshot = instance.chunkSnapshots.get(chunkPos);
+        ChunkSnapshot snapshot = instance.chunkSnapshots.get(chunkPos);
         if (snapshot == null) return null; // 스냅샷 자체가 없음
         
         try {
-            // 청크 내 상대 좌표 계산
-            int relX = x & 15;
-            int relZ = z & 15;
-            int relY = y - instance.worldBottomY;
-
-            // Y 좌표가 스냅샷 범위 내에 있는지 확인
-            if (relY < 0 || relY >= instance.worldTotalHeight) {
-                // logStaticDebug("getOriginalBlockState: Y out of bounds. y:" + y + " relY:" + relY); // 너무 빈번할 수 있음
-                return null; // Y 좌표가 스냅샷 범위를 벗어남
-            }
-            
-            int index = (relY * 16 * 16) + (relX * 16) + relZ;
-
-            if (index >= 0 && index < snapshot.length) {
-                byte blockType = snapshot[index];
+            // 아레나에서 복사 없이 직접 읽음 (Y 범위를 벗어나면 -1)
+            int blockType = snapshot.getBlockType(instance.snapshotStore, x, y, z);
+            if (blockType >= 0) {
                 if (blockType == 1) { // Solid
                     return Blocks.STONE.getDefaultState(); // 고체 마커
                 } else if (blockType == 2) { // Liquid
@@ -718,12 +1908,56 @@ public class FogOfWarClient implements ClientModInitializer {
 
     /** 내부 데이터 초기화 */
     private void clearFogData() {
+         cancelPendingLoad(); // 진행 중인 비동기 로드 취소 (저장소 해제 전에 수행)
+         journalDirty.clear();
+         journalWrittenHashes.clear();
+         ioExecutor.execute(this::closeJournal);
+         // 로더/압축 작업이 끝난 뒤에만 저장소를 통째로 비움
+         // 끝나지 않았으면 작업이 보유한 참조는 남겨 두고, 맵이 가진 참조만 하나씩 해제
+         boolean ioIdle = awaitIoIdle();
+         if (!ioIdle) {
+             logWarn("I/O 작업이 끝나지 않아 스냅샷 참조를 개별 해제합니다.");
+             for (ChunkSnapshot snapshot : chunkSnapshots.values()) snapshot.release(snapshotStore);
+             for (ChunkSnapshot snapshot : retainedSnapshots.values()) snapshot.release(snapshotStore);
+         }
          chunkStates.clear();
+         frozenChunks.clear();
+         pendingFogState.clear();
+         columnReloadBatch.clear();
+         evictionCandidates.clear();
+         for (ChunkSnapshot snapshot : evictedChunks.values()) snapshot.release(snapshotStore);
+         evictedChunks.clear();
+         placeholderChunks.clear();
+         everVisibleChunks.clear();
+         unloadCapturedChunks.clear();
+         retainedSnapshots.clear(); // 섹션은 아래 releaseAll에서 한 번에 해제 (또는 위에서 개별 해제)
+         dirtyTracker.clear();
+         FogRebuildFilter.clearAllSuppressed();
+         NpcPositionStream.getInstance().clear();
+         NPCChunkManager.getInstance().clearLineOfSight();
+         stateVersion.incrementAndGet();
          fogBlocks.clear();
          chunkSnapshots.clear();
+         pendingServerSnapshots.clear();
+         pendingServerSnapshotSince.clear();
+         requestedSectionHashes.clear();
+         if (ioIdle) {
+             snapshotStore.releaseAll(); // 스냅샷 direct 메모리 해제
+         }
+         FogSectionTransform.clearCache();
+         ChunkReloadManager.clearBorderHashes();
          logInfo("내부 안개 데이터 초기화 완료.");
     }
 
+    /** 청크의 스냅샷을 맵에서 제거하고 섹션 참조를 해제 */
+    private void releaseSnapshot(ChunkPosition pos) {
+        ChunkSnapshot removed = chunkSnapshots.remove(pos);
+        if (removed != null) {
+            removed.release(snapshotStore);
+            if (!retainedSnapshots.containsKey(pos)) dirtyTracker.untrack(ChunkPos.toLong(pos.x, pos.z)); // 기준 스냅샷이 없음
+        }
+    }
+
     /** 안전하게 월드 렌더러 리로드 */
     private void safeReloadWorldRenderer() {
         MinecraftClient client = MinecraftClient.getInstance();
@@ -777,17 +2011,48 @@ public class FogOfWarClient implements ClientModInitializer {
     public void setChunkState(int x, int z, ChunkState state) {
         logDebug("setChunkState(" + x + ", " + z + ", " + state + ") 호출됨. Thread: " + Thread.currentThread().getName());
         ChunkPosition pos = new ChunkPosition(x, z);
+        markLiveUpdate(pos); // 실시간 상태가 로드 중인 저장 데이터보다 우선
+        markJournalDirty(pos, true);
         ChunkState previousState = chunkStates.get(pos); // 이전 상태 확인 (로깅용)
+        // 메모리에서 내린 청크는 스냅샷 대체 청크로 되살림 (참조는 아래에서 스냅샷 맵으로 넘김)
+        ChunkSnapshot restored = state != ChunkState.HIDDEN && !evictedChunks.isEmpty() ? restoreEvictedChunk(pos) : null;
 
         switch (state) {
             case VISIBLE:
                 chunkStates.put(pos, ChunkState.VISIBLE);
+                everVisibleChunks.add(pos);
+                frozenChunks.remove(pos);
                 fogBlocks.remove(pos);   // Visible 청크는 커스텀 안개 블록이 필요 없음
-                chunkSnapshots.remove(pos); // Visible 청크는 스냅샷이 필요 없음
+                if (!unloadCapturedChunks.contains(pos)) {
+                    retainSnapshot(pos); // Visible 청크는 스냅샷이 필요 없지만, 다시 FOGGED가 될 때 재사용하도록 보관
+                }
+                if (restored != null) {
+                    ChunkSnapshot previous = retainedSnapshots.put(pos, restored); // 대체 청크와 같은 내용이므로 그대로 재사용
+                    if (previous != null) previous.release(snapshotStore);
+                }
                 break;
             case FOGGED:
                 chunkStates.put(pos, ChunkState.FOGGED);
                 fogBlocks.put(pos, defaultFogBlock);
+                if (unloadCapturedChunks.contains(pos)) {
+                    frozenChunks.remove(pos);
+                    break; // 언로드된 청크: 언로드 시점 스냅샷 사용 (월드에서 다시 읽을 수 없음)
+                }
+                if (previousState == ChunkState.VISIBLE && FogRebuildFilter.isFrozenMeshEnabled()) {
+                    // 고정 메시 모드: 마지막으로 보였던 메시를 유지 (리빌드 없음)
+                    frozenChunks.add(pos);
+                    if (!retainedSnapshots.containsKey(pos)) {
+                        break; // 미리 캡처한 스냅샷이 없으면 캡처를 미룸 (언로드/실제 리빌드/저장 시점)
+                    }
+                    // 미리 캡처해 둔 스냅샷은 바뀐 섹션만 다시 읽으면 되므로 지금 확정
+                } else {
+                    frozenChunks.remove(pos);
+                }
+                if (restored != null) {
+                    ChunkSnapshot previous = chunkSnapshots.put(pos, restored); // 대체 청크를 만든 스냅샷을 그대로 사용
+                    if (previous != null) previous.release(snapshotStore);
+                    break;
+                }
                 // 스냅샷 생성 및 저장
                 generateAndStoreChunkSnapshot(pos);
                 break;
@@ -798,10 +2063,15 @@ public class FogOfWarClient implements ClientModInitializer {
                     // 맵에 없었으므로 (기본 HIDDEN), 별도 로그는 불필요하거나, 원한다면 추가
                 }
                 chunkStates.remove(pos); // HIDDEN은 기본 상태이므로 맵에서 제거하여 메모리 절약
+                frozenChunks.remove(pos);
                 fogBlocks.remove(pos);   // 관련 안개 블록 정보도 제거
-                chunkSnapshots.remove(pos); // 관련 스냅샷 정보도 제거
+                if (!unloadCapturedChunks.contains(pos)) {
+                    releaseSnapshot(pos); // 관련 스냅샷 정보도 제거 (언로드된 청크는 마지막 모습 유지)
+                }
+                discardRetainedSnapshot(pos);
                 break;
         }
+        stateVersion.incrementAndGet();
         // 상태 변경이 실제로 일어났거나, VISIBLE/FOGGED로 설정된 경우 로그 (HIDDEN으로의 변경은 위에서 상세 로깅)
         if ((previousState != state) || (state == ChunkState.VISIBLE || state == ChunkState.FOGGED)) {
              logDebug("청크 (" + x + ", " + z + ") 상태 최종 설정: " + state + (previousState == state ? " (변경 없음, 상태 유지)" : ""));
@@ -811,9 +2081,9 @@ public class FogOfWarClient implements ClientModInitializer {
     /**
      * 지정된 청크의 스냅샷을 생성하고 chunkSnapshots 맵에 저장합니다.
      * @param chunkPosition 스냅샷을 생성할 청크의 위치
-     * @return 생성된 스냅샷 데이터, 실패 시 null
+     * @return 생성된 스냅샷, 실패 시 null
      */
-    private byte[] generateAndStoreChunkSnapshot(ChunkPosition chunkPosition) {
+    private ChunkSnapshot generateAndStoreChunkSnapshot(ChunkPosition chunkPosition) {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client == null || client.world == null) {
             logWarn("월드 또는 클라이언트가 null이므로 청크 (" + chunkPosition.x + ", " + chunkPosition.z + ") 스냅샷을 생성/저장할 수 없습니다.");
@@ -826,13 +2096,24 @@ public class FogOfWarClient implements ClientModInitializer {
         this.worldBottomY = world.getBottomY();
         this.worldTotalHeight = world.getHeight();
 
-        // 고체/액체 블록 위치만 저장하는 스냅샷 생성
-        byte[] snapshotData = internalCreateChunkSnapshotData(world, mcChunkPos);
+        // 고체/액체 블록 위치만 저장하는 스냅샷 생성 (보관 중인 스냅샷이 있으면 바뀐 섹션만 다시 읽음)
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(mcChunkPos.x, mcChunkPos.z);
+        ChunkSnapshot snapshot = captureSnapshot(world, chunk, chunkPosition);
+        if (snapshot == null && chunk == null) {
+            logWarn("청크 (" + mcChunkPos.x + ", " + mcChunkPos.z + ")가 로드되지 않아 스냅샷을 생성할 수 없습니다.");
+        }
 
-        if (snapshotData != null) {
-            chunkSnapshots.put(chunkPosition, snapshotData);
-            logDebug("청크 (" + chunkPosition.x + ", " + chunkPosition.z + ")의 스냅샷 저장됨. 배열 크기: " + snapshotData.length + " bytes");
-            return snapshotData;
+        if (snapshot != null) {
+            ChunkSnapshot previous = chunkSnapshots.put(chunkPosition, snapshot);
+            if (previous != null) {
+                previous.release(snapshotStore);
+            }
+            if (chunk != null) {
+                dirtyTracker.track(ChunkPos.toLong(chunkPosition.x, chunkPosition.z)); // FOGGED 동안의 변경도 기록 (다음 VISIBLE → FOGGED 때 재사용)
+            }
+            logDebug("청크 (" + chunkPosition.x + ", " + chunkPosition.z + ")의 스냅샷 저장됨. 아레나 사용량: "
+                    + snapshotStore.getLiveBlockCount() + " 블록 / " + (snapshotStore.getReservedBytes() >> 10) + " KiB");
+            return snapshot;
         } else {
             logWarn("청크 (" + chunkPosition.x + ", " + chunkPosition.z + ") 스냅샷 생성 실패.");
             return null;
@@ -840,57 +2121,87 @@ public class FogOfWarClient implements ClientModInitializer {
     }
 
     /**
-     * 청크 내 고체 및 액체 블록의 위치 정보를 담은 스냅샷 데이터를 생성합니다.
-     * @param world 클라이언트 월드
-     * @param chunkPos 청크 위치
-     * @return 스냅샷 데이터 (byte 배열, 0: 공기/기타, 1: 고체 블록, 2: 액체 블록), 실패 시 null
+     * 청크 내 고체 및 액체 블록의 위치 정보를 담은 스냅샷을 생성합니다.
+     * 월드 좌표 조회 대신 청크 섹션 팔레트에서 직접 읽고, 블록 상태별 분류 결과는 캐시합니다.
+     * 빈 섹션은 아레나 블록을 할당하지 않고, 나머지 섹션은 내용 해시로 저장소에 넣어 공유합니다.
+     * 이미 가지고 있는 청크 객체를 받으므로 언로드 이벤트처럼 청크 맵에서 빠지는 중일 때도 사용할 수 있습니다.
+     * @param base 섹션을 공유할 이전 스냅샷 (없으면 null)
+     * @param dirtySections base 이후 바뀐 섹션 (여기 없는 섹션은 base에서 공유, null이면 전부 다시 읽음)
+     * @return 스냅샷 (섹션별 0: 공기/기타, 1: 고체 블록, 2: 액체 블록), 실패 시 null
      */
-    private byte[] internalCreateChunkSnapshotData(ClientWorld world, ChunkPos chunkPos) {
+    private ChunkSnapshot internalCreateChunkSnapshot(ClientWorld world, WorldChunk chunk, ChunkSnapshot base, BitSet dirtySections) {
+        ChunkPos chunkPos = chunk.getPos();
         int minX = chunkPos.getStartX();
         int minZ = chunkPos.getStartZ();
-        int minY = world.getBottomY();
-        int worldHeight = world.getHeight(); // Y 범위 크기 (예: 384)
-        int arraySize = 16 * worldHeight * 16;
-        byte[] snapshot = new byte[arraySize];
+        ChunkSection[] sections = chunk.getSectionArray();
+        int[] handles = new int[sections.length];
+        Arrays.fill(handles, SnapshotArena.NO_BLOCK);
+        Reference2ByteOpenHashMap<BlockState> typeCache = new Reference2ByteOpenHashMap<>();
+        typeCache.defaultReturnValue((byte) -1);
 
+        byte[] packedSection = new byte[SnapshotArena.BLOCK_BYTES]; // 섹션 패킹용 스크래치 버퍼
         BlockPos.Mutable mutablePos = new BlockPos.Mutable();
         long startTime = System.nanoTime(); // 성능 측정 시작
+        boolean reuseBase = base != null && dirtySections != null
+                && base.getSectionCount() == sections.length && base.getBottomY() == world.getBottomY();
 
         try {
-            for (int relY = 0; relY < worldHeight; relY++) {
-                int worldY = minY + relY;
-                for (int relX = 0; relX < 16; relX++) {
-                    for (int relZ = 0; relZ < 16; relZ++) {
-                        mutablePos.set(minX + relX, worldY, minZ + relZ);
-                        BlockState blockState = world.getBlockState(mutablePos);
-
-                        int valueToStore = 0; // 기본값: 공기 또는 기타
-                        if (!blockState.getFluidState().isEmpty()) {
-                            valueToStore = 2; // 액체 블록
-                        } else if (blockState.isSolidBlock(world, mutablePos)) {
-                            valueToStore = 1; // 고체 블록
-                        }
-
-                        if (valueToStore != 0) {
-                            // 인덱스 계산: Y가 가장 바깥쪽 루프이므로 Y축 우선 (Y * width * depth + X * depth + Z)
-                            int index = (relY * 16 * 16) + (relX * 16) + relZ;
-                            if (index >= 0 && index < arraySize) { // 배열 범위 확인 (필수)
-                                snapshot[index] = (byte) valueToStore;
+            for (int s = 0; s < sections.length; s++) {
+                if (reuseBase && !dirtySections.get(s)) {
+                    handles[s] = base.getSectionHandle(s); // 바뀌지 않은 섹션은 이전 스냅샷과 공유
+                    snapshotStore.retain(handles[s]);
+                    continue;
+                }
+                ChunkSection section = sections[s];
+                if (section == null || section.isEmpty()) {
+                    continue; // 전부 공기인 섹션은 핸들 없이 표시
+                }
+                int sectionMinY = world.sectionIndexToCoord(s) << 4;
+                boolean hasContent = false;
+                Arrays.fill(packedSection, (byte) 0);
+                for (int relY = 0; relY < 16; relY++) {
+                    for (int relX = 0; relX < 16; relX++) {
+                        for (int relZ = 0; relZ < 16; relZ++) {
+                            BlockState blockState = section.getBlockState(relX, relY, relZ);
+                            int valueToStore = typeCache.getByte(blockState);
+                            if (valueToStore < 0) {
+                                mutablePos.set(minX + relX, sectionMinY + relY, minZ + relZ);
+                                valueToStore = classifyBlock(world, blockState, mutablePos);
+                                typeCache.put(blockState, (byte) valueToStore);
+                            }
+                            if (valueToStore != 0) {
+                                SnapshotStore.setPacked(packedSection, SnapshotArena.getIndex(relX, relY, relZ), valueToStore);
+                                hasContent = true;
                             }
                         }
-                        // 0은 기본값이므로 else 처리는 불필요
                     }
                 }
+                if (hasContent) {
+                    handles[s] = snapshotStore.intern(packedSection, 0); // 같은 내용의 섹션이 있으면 공유
+                }
             }
             long endTime = System.nanoTime();
             logDebug("청크 (" + chunkPos.x + ", " + chunkPos.z + ") 스냅샷 생성 완료. 소요 시간: " + (endTime - startTime) / 1_000_000 + " ms");
-            return snapshot;
+            return new ChunkSnapshot(world.getBottomY(), handles);
         } catch (Exception e) {
             logError("청크 (" + chunkPos.x + ", " + chunkPos.z + ") 스냅샷 생성 중 오류 발생", e);
+            for (int handle : handles) {
+                snapshotStore.release(handle); // 이미 얻은 섹션 참조 회수
+            }
             return null;
         }
     }
 
+    /** 블록 상태 분류: 0 공기/기타, 1 고체, 2 액체 */
+    private static int classifyBlock(ClientWorld world, BlockState blockState, BlockPos pos) {
+        if (!blockState.getFluidState().isEmpty()) {
+            return 2; // 액체 블록
+        } else if (blockState.isSolidBlock(world, pos)) {
+            return 1; // 고체 블록
+        }
+        return 0; // 기본값: 공기 또는 기타
+    }
+
     // --- 기타 설정 관련 메서드 ---
 
     /** 기본 안개 블록 설정 */
@@ -1,21 +1,29 @@
 package net.civarmymod;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import it.unimi.dsi.fastutil.HashCommon;
+import net.civarmymod.config.FogConfig;
+import net.civarmymod.network.NpcPositionStream;
+import net.civarmymod.render.NpcEntity;
+import net.civarmymod.visibility.ChunkHeightCache;
+import net.civarmymod.visibility.ChunkVisibilityGrid;
+import net.civarmymod.visibility.LineOfSightTracker;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.entity.Entity;
+import net.minecraft.client.world.ClientChunkManager;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
@@ -36,11 +44,46 @@ public class NPCChunkManager {
 
     // 청크 상태 관리는 FogOfWarClient에서 직접 수행
 
-    // 업데이트 주기 (밀리초)
+    // 업데이트 주기 (밀리초): 관찰자(NPC)가 청크를 넘나드는 동안은 매 틱, 움직임이 없으면 최대 주기까지 두 배씩 늘림
     public static final long UPDATE_INTERVAL_MS = 2000;
-
-    // 스케줄러
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private static final long MIN_UPDATE_INTERVAL_MS = 50; // 1틱
+
+    private static final boolean SODIUM_LOADED = isClassPresent("net.caffeinemc.mods.sodium.client.render.SodiumWorldRenderer");
+
+    // 스냅샷 미리 캡처: 몇 번의 업데이트 뒤까지 NPC 이동을 예측할지, 업데이트당 시간 예산 (상태 전환에 쓴 시간만큼 차감)
+    // 캡처는 클라이언트 월드의 청크 섹션을 읽으므로 다른 스레드로 옮기지 않고 틱 안에서 시간으로 제한함
+    private static final int PREFETCH_LOOKAHEAD_UPDATES = 2;
+    private static final long PREFETCH_TIME_BUDGET_NANOS = 1_000_000L; // 1ms (틱 50ms 기준)
+
+    // NPC별 이동 추정 (UUID → {x, z, 측정 시각(ms), vx, vz}, 속도는 블록/ms) - 메인 스레드 전용
+    private final Map<UUID, double[]> npcMotion = new HashMap<>();
+
+    // 가시성 히스테리시스: 이 매니저가 VISIBLE로 바꾼 시각 (최소 유지 시간 판단용) - 메인 스레드 전용
+    private final Map<ChunkPosition, Long> visibleSince = new HashMap<>();
+    // 지난 업데이트에서 FOGGED 전환이 보류된 청크 (보류가 이어지는 동안은 한 번만 세기 위함) - 메인 스레드 전용
+    private final Set<ChunkPosition> heldChunks = new HashSet<>();
+    // 통계: 실제 상태 전환 수, 히스테리시스로 막은 FOGGED 전환 수 (나가기 반경 / 최소 유지 시간, 보류 구간당 한 번)
+    private final AtomicLong stateFlips = new AtomicLong();
+    private final AtomicLong suppressedByExitRadius = new AtomicLong();
+    private final AtomicLong suppressedByDwell = new AtomicLong();
+
+    // 틱 기반 스케줄링 상태 (메인 스레드 전용, rosterChanged만 다른 스레드에서 설정)
+    private long currentIntervalMs = MIN_UPDATE_INTERVAL_MS;
+    private long lastUpdateMs = 0;
+    private long lastNpcChunkSignature = Long.MIN_VALUE;
+    private int lastRemoteSequence = 0; // 마지막으로 반영한 서버 위치 프레임 (0: 없음/만료)
+
+    // 시야선 모드 (fogLineOfSight) - 메인 스레드 전용
+    private final ChunkHeightCache heightCache = new ChunkHeightCache();
+    private final LineOfSightTracker lineOfSight = new LineOfSightTracker();
+    private boolean lineOfSightPending = false; // 예산 때문에 계산을 미룬 관찰자가 있으면 다음 틱에 다시 업데이트
+    private ChunkVisibilityGrid lineOfSightGrid; // 시야선 결과로 만든 격자 (결과 배열이 같으면 재사용)
+    private int[] lineOfSightGridSource;
+    private long lineOfSightGridNanos = 0; // 마지막 격자 계산 시간 (시야선 예산에서 미리 떼어 둠)
+    private ChunkVisibilityGrid lastScanGrid; // 마지막 업데이트의 스캔 격자 (NPC가 없으면 null) - HIDDEN 청크 해제 판단용
+    private volatile boolean rosterChanged = true;
+    private boolean chunkLoadPending = false; // 상태를 모르는 청크가 로드됨 (로드되지 않은 청크는 상태를 바꾸지 않으므로 다음 틱에 다시 결정)
+    private volatile boolean stopped = false;
 
     /**
      * 싱글톤 인스턴스 가져오기
@@ -53,16 +96,13 @@ public class NPCChunkManager {
     }
 
     private NPCChunkManager() {
-        // 주기적으로 청크 상태 업데이트
-        scheduler.scheduleAtFixedRate(this::updateChunkStates, 0, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
-
-        // NPCManager에 리스너 등록 - NPC 추가/제거 시 청크 업데이트 트리거
+        // NPCManager에 리스너 등록 - NPC 추가/제거 시 다음 틱에 한 번 업데이트 (연속 변경은 합쳐짐)
         try {
             NPCManager npcManager = NPCManager.getInstance();
             if (npcManager != null) {
                 npcManager.setNpcUpdateCallback(uuids -> {
-                    logInfo("[NPC 변경 감지] " + uuids.size() + "개의 NPC UUID 변경 감지, 청크 업데이트 트리거");
-                    updateChunkStates(); // NPC 변경시 청크 업데이트 즉시 실행
+                    logDebug("[NPC 변경 감지] " + uuids.size() + "개의 NPC UUID 변경 감지, 다음 틱에 청크 업데이트");
+                    rosterChanged = true;
                 });
                 logInfo("[NPC 변경 감지] NPCManager에 청크 업데이트 콜백 등록 완료");
             }
@@ -70,23 +110,61 @@ public class NPCChunkManager {
             LOGGER.error("[NPC 변경 감지] NPCManager에 콜백 등록 중 오류", e);
         }
 
-        logInfo("NPC 청크 매니저 초기화 완료. 업데이트 주기: " + UPDATE_INTERVAL_MS + "ms");
+        logInfo("NPC 청크 매니저 초기화 완료. 업데이트 주기: " + MIN_UPDATE_INTERVAL_MS + "~" + UPDATE_INTERVAL_MS + "ms (틱 기반)");
     }
 
     /**
      * 클라이언트 종료 시 정리 작업
      */
     public void shutdown() {
-        scheduler.shutdown();
+        stopped = true;
+        logInfo("NPC 청크 매니저 종료됨");
+    }
+
+    /**
+     * 매 클라이언트 틱 호출 (FogOfWarClient.onClientTick, 메인 스레드)
+     * NPC가 있는 청크 집합의 서명만 가볍게 비교해, 바뀌었거나 NPC 목록이 바뀌었으면 바로 업데이트하고
+     * 그렇지 않으면 현재 주기가 지났을 때만 업데이트합니다. 움직임이 없으면 주기는 최대 UPDATE_INTERVAL_MS까지 늘어납니다.
+     */
+    public void onClientTick(MinecraftClient client) {
+        if (stopped || client.world == null || client.player == null) return;
+        long now = System.currentTimeMillis();
+        long signature = computeNpcChunkSignature(client);
+        boolean crossed = signature != lastNpcChunkSignature;
+        NpcPositionStream.Frame remote = NpcPositionStream.getInstance().getLiveFrame(now);
+        int remoteSequence = remote == null ? 0 : remote.sequence;
+        boolean forced = rosterChanged || remoteSequence != lastRemoteSequence // 새 프레임 도착 또는 만료
+                || lineOfSightPending || chunkLoadPending;
+        if (!crossed && !forced && now - lastUpdateMs < currentIntervalMs) return;
+
+        lastNpcChunkSignature = signature;
+        lastRemoteSequence = remoteSequence;
+        rosterChanged = false;
+        chunkLoadPending = false;
+        currentIntervalMs = crossed ? MIN_UPDATE_INTERVAL_MS : Math.min(UPDATE_INTERVAL_MS, currentIntervalMs * 2);
+        lastUpdateMs = now;
+        updateChunkStates();
+    }
+
+    /** NPC들이 있는 청크 집합의 순서 무관 서명 (NPC 수 포함) */
+    private static long computeNpcChunkSignature(MinecraftClient client) {
+        long signature = 0;
+        int count = 0;
+        for (PlayerEntity player : client.world.getPlayers()) {
+            if (!((NpcEntity) player).civarmymod$isNpc()) continue;
+            signature += HashCommon.mix(ChunkPos.toLong(player.getChunkPos().x, player.getChunkPos().z));
+            count++;
+        }
+        return signature ^ HashCommon.mix((long) count);
+    }
+
+    private static boolean isClassPresent(String className) {
         try {
-            if (!scheduler.awaitTermination(500, TimeUnit.MILLISECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
+            Class.forName(className, false, NPCChunkManager.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
         }
-        logInfo("NPC 청크 매니저 종료됨");
     }
 
     /**
@@ -113,90 +191,334 @@ public class NPCChunkManager {
 
             // 1. NPC 엔티티 목록 가져오기
             List<PlayerEntity> npcEntities = getNpcEntities();
-            if (npcEntities.isEmpty()) {
+            Map<UUID, ChunkPosition> remoteNpcs = getRemoteNpcs(client, npcEntities);
+            if (npcEntities.isEmpty() && remoteNpcs.isEmpty()) {
                 logDebug("NPC가 없습니다. 청크 상태 업데이트 건너뛰.");
+                npcMotion.clear();
+                heldChunks.clear();
+                lastScanGrid = null;
+                lineOfSightPending = false;
                 return;
             }
 
-            logDebug(npcEntities.size() + "개의 NPC 발견. 청크 상태 업데이트 시작...");
+            logDebug(npcEntities.size() + "개의 NPC 발견 (서버 위치 " + remoteNpcs.size() + "개). 청크 상태 업데이트 시작...");
 
-            // 2. 모든 청크를 기본적으로 HIDDEN으로 설정할 준비
-            Set<ChunkPosition> allChunks = new HashSet<>();
+            // 2. 상태를 바꿀 청크 목록 (스캔 범위 안에서 표시되지 않은 청크는 HIDDEN)
             Set<ChunkPosition> visibleChunks = new HashSet<>();
             Set<ChunkPosition> foggedChunks = new HashSet<>();
 
-            // 3. 각 NPC의 청크 위치 계산
-            Map<ChunkPosition, Boolean> npcChunks = new HashMap<>();
+            // 3. 각 NPC의 청크 위치 계산 (같은 청크의 NPC는 한 번만)
+            Set<ChunkPosition> npcChunks = new HashSet<>();
             for (PlayerEntity npc : npcEntities) {
                 int npcChunkX = (int) Math.floor(npc.getX()) >> 4;
                 int npcChunkZ = (int) Math.floor(npc.getZ()) >> 4;
-                npcChunks.put(new ChunkPosition(npcChunkX, npcChunkZ), true);
+                npcChunks.add(new ChunkPosition(npcChunkX, npcChunkZ));
             }
-
-            // 4. 모든 NPC 주변 5x5 청크 스캔
-            for (ChunkPosition npcChunk : npcChunks.keySet()) {
-                for (int dx = -NPC_SCAN_RADIUS; dx <= NPC_SCAN_RADIUS; dx++) {
-                    for (int dz = -NPC_SCAN_RADIUS; dz <= NPC_SCAN_RADIUS; dz++) {
-                        ChunkPosition scanPos = new ChunkPosition(npcChunk.x + dx, npcChunk.z + dz);
-                        allChunks.add(scanPos);
-                    }
-                }
+            npcChunks.addAll(remoteNpcs.values()); // 추적 거리 밖 NPC는 서버가 보낸 청크 좌표 사용
+            int npcChunkCount = npcChunks.size();
+            int[] npcChunkXs = new int[npcChunkCount];
+            int[] npcChunkZs = new int[npcChunkCount];
+            int npcIndex = 0;
+            for (ChunkPosition npcChunk : npcChunks) {
+                npcChunkXs[npcIndex] = npcChunk.x;
+                npcChunkZs[npcIndex] = npcChunk.z;
+                npcIndex++;
             }
-
-            // 5. 각 청크에 대해 3x3 범위 내에 NPC가 있는지 확인
-            for (ChunkPosition chunk : allChunks) {
-                boolean hasNearbyNpc = false;
-
-                // 청크 주변 3x3 범위 확인
-                for (int dx = -NPC_CHECK_RADIUS; dx <= NPC_CHECK_RADIUS; dx++) {
-                    for (int dz = -NPC_CHECK_RADIUS; dz <= NPC_CHECK_RADIUS; dz++) {
-                        ChunkPosition checkPos = new ChunkPosition(chunk.x + dx, chunk.z + dz);
-                        if (npcChunks.containsKey(checkPos)) {
-                            hasNearbyNpc = true;
-                            break;
-                        }
-                    }
-                    if (hasNearbyNpc)
-                        break;
-                }
-
-                // 상태 결정
-                if (hasNearbyNpc) {
+            updateNpcMotion(npcEntities, System.currentTimeMillis());
+            visibleSince.keySet().removeIf(pos -> !FogOfWarClient.isVisibleChunk(pos.x, pos.z)); // 다른 경로로 상태가 바뀐 청크
+
+            // 히스테리시스 설정: 들어올 때는 NPC_CHECK_RADIUS, 나갈 때는 exitRadius 밖이어야 하고 최소 유지 시간이 지나야 함
+            int exitRadius = Math.max(NPC_CHECK_RADIUS, FogConfig.getConfig().fogVisibilityExitRadius);
+            long minDwellMs = Math.max(0, FogConfig.getConfig().fogVisibilityMinDwellMs);
+            boolean lineOfSightMode = FogConfig.getConfig().fogLineOfSight;
+            int lineOfSightRadius = Math.max(1, FogConfig.getConfig().fogLineOfSightRadius);
+            int visionRadius = lineOfSightMode ? Math.max(exitRadius, lineOfSightRadius) : exitRadius;
+            int scanRadius = Math.max(NPC_SCAN_RADIUS, visionRadius + 1); // 시야/나가기 반경 바로 바깥까지 확인
+            long now = System.currentTimeMillis();
+
+            // 4. 반경별 가시성 격자 계산 (NPC가 많으면 공간 타일 단위로 나눠 병렬 계산)
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            ChunkVisibilityGrid scanGrid = ChunkVisibilityGrid.compute(npcChunkXs, npcChunkZs, npcChunkCount, scanRadius, pool);
+            lastScanGrid = scanGrid;
+            ChunkVisibilityGrid enterGrid;
+            ChunkVisibilityGrid exitGrid;
+            if (lineOfSightMode) {
+                // 시야선 모드: 보이는 청크 집합 자체가 들어오는 조건이며, 나가기 반경 없이 최소 유지 시간만 적용
+                enterGrid = updateLineOfSight(client, npcEntities, remoteNpcs, lineOfSightRadius, pool);
+                exitGrid = enterGrid;
+            } else {
+                lineOfSightPending = false;
+                enterGrid = ChunkVisibilityGrid.compute(npcChunkXs, npcChunkZs, npcChunkCount, NPC_CHECK_RADIUS, pool);
+                exitGrid = ChunkVisibilityGrid.compute(npcChunkXs, npcChunkZs, npcChunkCount, exitRadius, pool);
+            }
+            int scannedChunks = scanGrid.cardinality();
+
+            // 5. 격자로 청크 상태 결정 (상태 적용은 메인 스레드에서)
+            List<ChunkPosition> inVisionChunks = new ArrayList<>();
+            int[] held = new int[2]; // 새로 보류된 청크 수 {나가기 반경, 최소 유지 시간}
+            Set<ChunkPosition> heldNow = new HashSet<>();
+            ClientChunkManager chunkManager = client.world.getChunkManager();
+            scanGrid.forEachSet((chunkX, chunkZ) -> {
+                // 로드되지 않은 청크는 새로 VISIBLE로 만들지 않음 (로드되면 requestUpdateForLoadedChunk로 다시 결정)
+                // VISIBLE → FOGGED는 언로드 시점 스냅샷으로 그대로 진행 (그렇지 않으면 언로드된 VISIBLE 청크가 계속 VISIBLE로 남음)
+                // 메모리에서 내린 청크는 서버가 다시 보내지 않으므로 스냅샷 대체 청크로 복원해 상태를 바꿈
+                boolean loaded = chunkManager.isChunkLoaded(chunkX, chunkZ) || FogOfWarClient.isEvictedChunk(chunkX, chunkZ);
+                if (enterGrid.isSet(chunkX, chunkZ)) {
+                    if (!loaded) return;
+                    ChunkPosition chunk = new ChunkPosition(chunkX, chunkZ);
+                    inVisionChunks.add(chunk);
                     // 주변에 NPC가 있으면 VISIBLE
-                    if (!fogClient.isVisibleChunk(chunk.x, chunk.z)) {
+                    if (!fogClient.isVisibleChunk(chunkX, chunkZ)) {
                         // 현재 VISIBLE 상태가 아닌 경우에만 추가
                         visibleChunks.add(chunk);
                     }
-                } else if (fogClient.isVisibleChunk(chunk.x, chunk.z)) {
-                    // 원래 VISIBLE이었는데 지금은 주변에 NPC가 없으면 FOGGED
-                    if (!fogClient.isFoggedChunk(chunk.x, chunk.z)) {
+                } else if (fogClient.isVisibleChunk(chunkX, chunkZ)) {
+                    // 원래 VISIBLE이었는데 지금은 주변에 NPC가 없으면 FOGGED (히스테리시스 조건을 만족할 때만)
+                    ChunkPosition chunk = new ChunkPosition(chunkX, chunkZ);
+                    Long since = visibleSince.get(chunk);
+                    if (exitGrid.isSet(chunkX, chunkZ)) {
+                        if (heldNow.add(chunk) && !heldChunks.contains(chunk)) held[0]++; // 아직 나가기 반경 안
+                        if (loaded) inVisionChunks.add(chunk);
+                    } else if (since != null && now - since < minDwellMs) {
+                        if (heldNow.add(chunk) && !heldChunks.contains(chunk)) held[1]++; // VISIBLE이 된 지 얼마 안 됨
+                        if (loaded) inVisionChunks.add(chunk);
+                    } else if (!fogClient.isFoggedChunk(chunkX, chunkZ)) {
                         // 현재 FOGGED 상태가 아닌 경우에만 추가
                         foggedChunks.add(chunk);
                     }
                 }
                 // 그 외의 청크는 HIDDEN (여기서는 별도의 작업이 필요 없음)
+            });
+            heldChunks.clear();
+            heldChunks.addAll(heldNow); // 이번에 보류되지 않은 청크는 보류 구간이 끝남
+            int heldByRadius = held[0];
+            int heldByDwell = held[1];
+            suppressedByExitRadius.addAndGet(heldByRadius);
+            suppressedByDwell.addAndGet(heldByDwell);
+            stateFlips.addAndGet(visibleChunks.size() + foggedChunks.size());
+            for (ChunkPosition pos : visibleChunks) {
+                visibleSince.put(pos, now);
+            }
+            for (ChunkPosition pos : foggedChunks) {
+                visibleSince.remove(pos);
             }
 
             // 6. 청크 상태 업데이트
-            updateFogOfWarChunkStates(visibleChunks, foggedChunks, allChunks);
+            long transitionStartNanos = System.nanoTime();
+            updateFogOfWarChunkStates(visibleChunks, foggedChunks, scannedChunks);
+
+            // 7. 남은 시간 예산만큼 곧 시야를 벗어날 청크의 스냅샷을 미리 캡처
+            long prefetchBudgetNanos = PREFETCH_TIME_BUDGET_NANOS - (System.nanoTime() - transitionStartNanos);
+            if (prefetchBudgetNanos > 0) {
+                prefetchLeavingChunks(fogClient, inVisionChunks, remoteNpcs.values(), prefetchBudgetNanos, exitRadius);
+            }
 
             logDebug("청크 상태 업데이트 완료: " + visibleChunks.size() + "개 VISIBLE, " +
                     foggedChunks.size() + "개 FOGGED, " +
-                    (allChunks.size() - visibleChunks.size() - foggedChunks.size()) + "개 HIDDEN");
+                    (scannedChunks - visibleChunks.size() - foggedChunks.size()) + "개 HIDDEN");
+            if (heldByRadius + heldByDwell > 0) {
+                logDebug("[히스테리시스] 새 FOGGED 전환 보류: 나가기 반경 " + heldByRadius + "개, 최소 유지 시간 " + heldByDwell
+                        + "개 (보류 중 " + heldChunks.size() + "개, 누적 전환 " + stateFlips.get() + ", 누적 보류 " + getSuppressedFlipCount() + ")");
+            }
 
         } catch (Exception e) {
             logError("청크 상태 업데이트 중 오류 발생: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 시야선 모드에서 모든 관찰자(추적 중인 NPC + 서버 위치 NPC)의 보이는 청크 격자를 만듭니다.
+     * 관찰자가 청크를 옮기거나 시야 범위 안 청크의 높이가 바뀐 경우만 다시 계산합니다.
+     * 높이 캐시 갱신, 시야선 계산, 격자 계산을 합쳐 틱당 fogLineOfSightBudgetMicros 안에서 처리하며,
+     * 격자는 결과가 바뀐 경우에만 다시 만들고 그 시간은 직전 측정값만큼 예산에서 미리 떼어 둡니다.
+     */
+    private ChunkVisibilityGrid updateLineOfSight(MinecraftClient client, List<PlayerEntity> npcEntities,
+            Map<UUID, ChunkPosition> remoteNpcs, int radius, ForkJoinPool pool) {
+        long budgetNanos = Math.max(0, FogConfig.getConfig().fogLineOfSightBudgetMicros) * 1000L;
+        long deadlineNanos = System.nanoTime() + budgetNanos;
+        boolean heightsPending = heightCache.refresh(client.world, deadlineNanos, lineOfSight::invalidateChunk);
+        int count = npcEntities.size() + remoteNpcs.size();
+        UUID[] uuids = new UUID[count];
+        int[] chunkXs = new int[count];
+        int[] chunkZs = new int[count];
+        double[] eyeYs = new double[count];
+        int index = 0;
+        for (PlayerEntity npc : npcEntities) {
+            uuids[index] = npc.getUuid();
+            chunkXs[index] = (int) Math.floor(npc.getX()) >> 4;
+            chunkZs[index] = (int) Math.floor(npc.getZ()) >> 4;
+            eyeYs[index] = npc.getEyeY();
+            index++;
+        }
+        for (Map.Entry<UUID, ChunkPosition> remote : remoteNpcs.entrySet()) {
+            uuids[index] = remote.getKey();
+            chunkXs[index] = remote.getValue().x;
+            chunkZs[index] = remote.getValue().z;
+            eyeYs[index] = Double.NaN; // 서버 스트림에는 높이가 없음: 자기 청크 최고 높이 기준
+            index++;
+        }
+
+        LineOfSightTracker.Result result = lineOfSight.update(uuids, chunkXs, chunkZs, eyeYs, count, radius,
+                heightCache, heightCache.getEpoch(), deadlineNanos - lineOfSightGridNanos);
+        if (lineOfSightGrid == null || result.chunkXs != lineOfSightGridSource) {
+            long gridStart = System.nanoTime();
+            lineOfSightGrid = ChunkVisibilityGrid.compute(result.chunkXs, result.chunkZs, result.count, 0, pool);
+            lineOfSightGridSource = result.chunkXs;
+            lineOfSightGridNanos = System.nanoTime() - gridStart;
+        }
+        lineOfSightPending = result.pending > 0 || heightsPending;
+        if (lineOfSightPending) {
+            logDebug("[시야선] 예산 초과로 " + result.pending + "명 계산 보류" + (heightsPending ? ", 높이 갱신 보류" : "")
+                    + " (누적 계산 " + lineOfSight.getTracedCount() + ", 재사용 " + lineOfSight.getReusedCount() + ")");
+        }
+        return lineOfSightGrid;
+    }
+
+    /** 상태를 모르거나 VISIBLE인 청크가 로드됨: 다음 틱에 주기와 관계없이 상태를 다시 결정 (메인 스레드) */
+    public void requestUpdateForLoadedChunk() {
+        chunkLoadPending = true;
+    }
+
+    /** 마지막 업데이트에서 어느 NPC의 스캔 반경(시야/나가기 반경 + 1) 안에 있던 청크인지 확인 (메인 스레드) */
+    public boolean isWithinNpcScan(int chunkX, int chunkZ) {
+        ChunkVisibilityGrid grid = lastScanGrid;
+        return grid != null && grid.isSet(chunkX, chunkZ);
+    }
+
+    /** 블록 변경/청크 수신으로 청크 최고 높이가 바뀌었을 수 있음 (메인 스레드) */
+    public void invalidateChunkHeight(int chunkX, int chunkZ) {
+        heightCache.invalidate(chunkX, chunkZ);
+    }
+
+    /** 월드를 떠날 때 시야선 캐시 초기화 */
+    public void clearLineOfSight() {
+        heightCache.clear();
+        lineOfSight.clear();
+        lineOfSightPending = false;
+        lineOfSightGrid = null;
+        lineOfSightGridSource = null;
+        lastScanGrid = null;
+    }
+
+    /**
+     * 서버 위치 스트림에서 엔티티로 추적되지 않는 NPC의 UUID별 청크
+     * 추적 중인 NPC는 실제 엔티티 위치가 더 정확하므로 제외하고, 다른 월드의 프레임이나 만료된 프레임은 무시합니다.
+     */
+    private Map<UUID, ChunkPosition> getRemoteNpcs(MinecraftClient client, List<PlayerEntity> npcEntities) {
+        NpcPositionStream.Frame frame = NpcPositionStream.getInstance().getLiveFrame(System.currentTimeMillis());
+        if (frame == null || frame.size == 0) return Map.of();
+        if (frame.world != null && !frame.world.equals(client.world.getRegistryKey().getValue().toString())) return Map.of();
+
+        Set<UUID> tracked = new HashSet<>();
+        for (PlayerEntity npc : npcEntities) {
+            tracked.add(npc.getUuid());
+        }
+        NPCManager npcManager = NPCManager.getInstance();
+        Map<UUID, ChunkPosition> remoteNpcs = new LinkedHashMap<>();
+        for (int i = 0; i < frame.size; i++) {
+            UUID uuid = frame.uuids[i];
+            if (tracked.contains(uuid) || !npcManager.isNpcUuid(uuid)) continue;
+            remoteNpcs.put(uuid, new ChunkPosition(frame.chunkXs[i], frame.chunkZs[i]));
+        }
+        return remoteNpcs;
+    }
+
+    /**
+     * 연속된 스캔 사이의 위치 변화로 NPC별 속도를 추정합니다. (직전 추정과 절반씩 섞어 흔들림 완화)
+     * 이번 스캔에 없는 NPC의 기록은 버립니다.
+     */
+    private void updateNpcMotion(List<PlayerEntity> npcEntities, long now) {
+        Set<UUID> seen = new HashSet<>();
+        for (PlayerEntity npc : npcEntities) {
+            UUID uuid = npc.getUuid();
+            seen.add(uuid);
+            double[] motion = npcMotion.get(uuid);
+            if (motion == null) {
+                npcMotion.put(uuid, new double[] { npc.getX(), npc.getZ(), now, 0.0, 0.0 });
+                continue;
+            }
+            double dt = now - motion[2];
+            if (dt <= 0) continue;
+            motion[3] = 0.5 * motion[3] + 0.5 * (npc.getX() - motion[0]) / dt;
+            motion[4] = 0.5 * motion[4] + 0.5 * (npc.getZ() - motion[1]) / dt;
+            motion[0] = npc.getX();
+            motion[1] = npc.getZ();
+            motion[2] = now;
+        }
+        npcMotion.keySet().retainAll(seen);
+    }
+
+    /**
+     * 추정 속도로 다음 몇 번의 업데이트 동안 NPC 위치를 예측하고,
+     * 지금은 시야 안이지만 예측 위치 기준으로 시야를 벗어나는 청크의 스냅샷을 미리 캡처합니다.
+     * 예측 구간은 현재 업데이트 주기(currentIntervalMs) 단위이며, 엔티티로 추적되지 않는 서버 위치 NPC는 속도를 모르므로 제자리에 있다고 봅니다.
+     * 실제로 FOGGED가 될 때는 보관된 스냅샷을 재사용하므로 전환 순간의 캡처 비용이 사라집니다.
+     * 메인 스레드에서 실행되므로 캡처 수가 아니라 경과 시간으로 제한합니다. (예산을 넘기면 다음 업데이트에서 이어 감)
+     */
+    private void prefetchLeavingChunks(FogOfWarClient fogClient, List<ChunkPosition> inVisionChunks,
+                                       Collection<ChunkPosition> remoteNpcChunks, long budgetNanos, int exitRadius) {
+        if ((npcMotion.isEmpty() && remoteNpcChunks.isEmpty()) || inVisionChunks.isEmpty()) return;
+        long startNanos = System.nanoTime();
+        int prefetched = 0;
+        for (int step = 1; step <= PREFETCH_LOOKAHEAD_UPDATES && System.nanoTime() - startNanos < budgetNanos; step++) {
+            double horizonMs = step * (double) currentIntervalMs; // 다음 업데이트까지의 시간 단위로 예측
+            Set<ChunkPosition> predictedNpcChunks = new HashSet<>(remoteNpcChunks); // 서버 위치 NPC는 속도 0
+            for (double[] motion : npcMotion.values()) {
+                int chunkX = (int) Math.floor(motion[0] + motion[3] * horizonMs) >> 4;
+                int chunkZ = (int) Math.floor(motion[1] + motion[4] * horizonMs) >> 4;
+                predictedNpcChunks.add(new ChunkPosition(chunkX, chunkZ));
+            }
+            for (ChunkPosition chunk : inVisionChunks) {
+                if (System.nanoTime() - startNanos >= budgetNanos) break;
+                if (nearestNpcDistance(chunk, predictedNpcChunks, exitRadius) <= exitRadius) continue;
+                if (fogClient.prefetchSnapshot(chunk.x, chunk.z)) {
+                    prefetched++;
+                }
+            }
+        }
+        if (prefetched > 0) {
+            logDebug("[스냅샷 미리 캡처] 곧 시야를 벗어날 청크 " + prefetched + "개");
+        }
+    }
+
+    /**
+     * 청크에서 가장 가까운 NPC 청크까지의 체비쇼프 거리
+     * @return maxRadius 안에 NPC 청크가 없으면 Integer.MAX_VALUE
+     */
+    private static int nearestNpcDistance(ChunkPosition chunk, Set<ChunkPosition> npcChunks, int maxRadius) {
+        // 반경을 안쪽부터 넓혀 가며 링 위의 청크만 확인
+        if (npcChunks.contains(chunk)) return 0;
+        for (int radius = 1; radius <= maxRadius; radius++) {
+            for (int d = -radius; d <= radius; d++) {
+                if (npcChunks.contains(new ChunkPosition(chunk.x + d, chunk.z - radius))
+                        || npcChunks.contains(new ChunkPosition(chunk.x + d, chunk.z + radius))
+                        || npcChunks.contains(new ChunkPosition(chunk.x - radius, chunk.z + d))
+                        || npcChunks.contains(new ChunkPosition(chunk.x + radius, chunk.z + d))) {
+                    return radius;
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /** 누적 상태 전환 수 (VISIBLE/FOGGED 설정) */
+    public long getStateFlipCount() {
+        return stateFlips.get();
+    }
+
+    /** 히스테리시스로 보류된 누적 FOGGED 전환 수 (청크가 보류되어 있는 동안은 한 번만 셈) */
+    public long getSuppressedFlipCount() {
+        return suppressedByExitRadius.get() + suppressedByDwell.get();
+    }
+
     /**
      * FogOfWarClient의 청크 상태 업데이트
      */
     private void updateFogOfWarChunkStates(Set<ChunkPosition> visibleChunks, Set<ChunkPosition> foggedChunks,
-            Set<ChunkPosition> allChunks) {
-        logInfo("[청크 상태 설정] 청크 상태 업데이트 시작");
-        logInfo("[청크 상태 통계] VISIBLE: " + visibleChunks.size() + "개, FOGGED: " +
-                foggedChunks.size() + "개, 총 청크: " + allChunks.size() + "개");
+            int scannedChunks) {
+        logDebug("[청크 상태 설정] 청크 상태 업데이트 시작");
+        logDebug("[청크 상태 통계] VISIBLE: " + visibleChunks.size() + "개, FOGGED: " +
+                foggedChunks.size() + "개, 총 청크: " + scannedChunks + "개");
 
         FogOfWarClient fogClient = FogOfWarClient.getInstance();
         if (fogClient == null) {
@@ -213,7 +535,7 @@ public class NPCChunkManager {
 
         // VISIBLE 청크 설정 - 이미 visibleChunks에는 현재 VISIBLE이 아닌 청크만 포함되어 있음
         for (ChunkPosition pos : visibleChunks) {
-            logInfo("[청크 상태 설정] 청크 (" + pos.x + ", " + pos.z + ")를 VISIBLE로 설정 시도");
+            logDebug("[청크 상태 설정] 청크 (" + pos.x + ", " + pos.z + ")를 VISIBLE로 설정 시도");
             setChunkState(fogClient, pos.x, pos.z, FogOfWarClient.ChunkState.VISIBLE);
             changedChunks.add(pos);
             hasChanges = true;
@@ -221,7 +543,7 @@ public class NPCChunkManager {
 
         // FOGGED 청크 설정 - 이미 foggedChunks에는 현재 FOGGED가 아닌 청크만 포함되어 있음
         for (ChunkPosition pos : foggedChunks) {
-            logInfo("[청크 상태 설정] 청크 (" + pos.x + ", " + pos.z + ")를 FOGGED로 설정 시도");
+            logDebug("[청크 상태 설정] 청크 (" + pos.x + ", " + pos.z + ")를 FOGGED로 설정 시도");
             setChunkState(fogClient, pos.x, pos.z, FogOfWarClient.ChunkState.FOGGED);
             changedChunks.add(pos);
             hasChanges = true;
@@ -235,33 +557,24 @@ public class NPCChunkManager {
             try {
                 MinecraftClient client = MinecraftClient.getInstance();
                 if (client != null && client.world != null) {
-                    logInfo("청크 단위 리렌더링 요청 (청크 수: " + changedChunks.size() + ")");
-
-                    // Sodium 지원 확인
-                    boolean isSodiumLoaded = false;
-                    try {
-                        Class.forName("net.caffeinemc.mods.sodium.client.render.SodiumWorldRenderer");
-                        isSodiumLoaded = true;
-                        logInfo("Sodium 모드가 감지되었습니다. Sodium 호환 청크 리로드 사용");
-                    } catch (ClassNotFoundException e) {
-                        logInfo("Sodium 모드가 감지되지 않았습니다. 기본 청크 리로드 사용");
-                    }
+                    logDebug("청크 단위 리렌더링 요청 (청크 수: " + changedChunks.size() + ")");
+
+                    // Sodium 지원 확인 (클래스 로드 시 한 번)
+                    boolean isSodiumLoaded = SODIUM_LOADED;
 
                     for (ChunkPosition pos : changedChunks) {
                         final int x = pos.x;
                         final int z = pos.z;
 
                         if (isSodiumLoaded) {
-                            // MinecraftClient.execute를 사용하여 메인 스레드에서 실행
-                            MinecraftClient.getInstance().execute(() -> {
-                                ChunkReloadManager.requestChunkReload(x, z);
-                                logInfo("[청크 execute]");
-                            });
+                            // 틱 처리 중(메인 스레드)이므로 바로 리빌드 요청
+                            if (FogOfWarClient.isFrozenChunk(x, z)) continue; // 고정 메시 FOGGED: 리빌드 없이 유지
+                            ChunkReloadManager.requestChunkReload(x, z);
                         } 
                     }
 
                     if (isSodiumLoaded && !changedChunks.isEmpty()) {
-                        logInfo("Sodium 호환 청크 리로드 요청 완료 (" + changedChunks.size() + "개 청크)");
+                        logDebug("Sodium 호환 청크 리로드 요청 완료 (" + changedChunks.size() + "개 청크)");
                     }
 
                 } else {
@@ -275,7 +588,7 @@ public class NPCChunkManager {
                 logError("청크 리프레시 요청 중 오류 발생: " + e.getMessage(), e);
             }
         } else {
-            logInfo("변경사항 없음");
+            logDebug("변경사항 없음");
         }
     }
 
@@ -306,35 +619,17 @@ public class NPCChunkManager {
             return npcEntities;
         }
 
-        NPCManager npcManager = NPCManager.getInstance();
-        if (npcManager == null) {
-            LOGGER.debug("[NPC 엔티티 검색] NPCManager가 초기화되지 않음");
-            return npcEntities;
-        }
-
-        // NPCManager에서 관리하는 UUID 목록 가져오기
-        Set<UUID> npcUuids = npcManager.getAllNpcUuids();
-        LOGGER.debug("[NPC 엔티티 검색] NPCManager에서 " + npcUuids.size() + "개의 NPC UUID 가져옴");
-
-        // 월드에서 모든 플레이어 엔티티 검색
+        // 월드의 플레이어 목록만 검색 (NPC 여부는 엔티티별로 캐시되어 NPC 목록이 바뀔 때만 다시 조회)
         int totalPlayers = 0;
-        for (Entity entity : client.world.getEntities()) {
-            if (entity instanceof PlayerEntity) {
-                totalPlayers++;
-                PlayerEntity player = (PlayerEntity) entity;
-
-                // 플레이어가 NPC인지 확인
-                if (player.getUuid() != null && npcUuids.contains(player.getUuid())) {
-                    npcEntities.add(player);
-                    LOGGER.debug("[NPC 엔티티 검색] NPC 발견: " + player.getName().getString() +
-                            " (UUID: " + player.getUuid() + "), 위치: (" +
-                            (int) player.getX() + ", " + (int) player.getZ() + "), 청크: (" +
-                            ((int) player.getX() >> 4) + ", " + ((int) player.getZ() >> 4) + ")");
-                }
-            }
+        for (PlayerEntity player : client.world.getPlayers()) {
+            totalPlayers++;
+            if (!((NpcEntity) player).civarmymod$isNpc()) continue;
+            // 월드 경계 밖 위치는 잘못된 데이터 (서버 위치 스트림과 같은 기준)
+            if (!NpcPositionStream.isWithinWorldBorder((long) Math.floor(player.getX()) >> 4, (long) Math.floor(player.getZ()) >> 4)) continue;
+            npcEntities.add(player);
         }
 
-        logInfo("[NPC 엔티티 검색] 전체 플레이어 " + totalPlayers + "명 중 " +
+        logDebug("[NPC 엔티티 검색] 전체 플레이어 " + totalPlayers + "명 중 " +
                 npcEntities.size() + "개의 NPC 발견");
         return npcEntities;
     }
@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -40,6 +41,7 @@ public class NPCManager {
 
     private static NPCManager instance;
     private final Set<UUID> npcUuids = new CopyOnWriteArraySet<>();
+    private final AtomicInteger rosterVersion = new AtomicInteger(); // NPC 목록이 바뀔 때마다 증가
     private Consumer<Set<UUID>> npcUpdateCallback;
 
     /**
@@ -137,9 +139,15 @@ public class NPCManager {
             LOGGER.debug("[NPC UUID 확인] null UUID 전달됨");
             return false;
         }
-        boolean isNpc = npcUuids.contains(uuid);
-        LOGGER.info("[NPC UUID 확인] UUID: " + uuid + ", NPC 여부: " + isNpc);
-        return isNpc;
+        return npcUuids.contains(uuid); // 렌더링 중에도 호출되므로 로그를 남기지 않음
+    }
+
+    /**
+     * NPC 목록 버전 가져오기
+     * 값이 같으면 그 사이 NPC 목록이 바뀌지 않았으므로 이전 isNpcUuid 결과를 그대로 사용할 수 있습니다.
+     */
+    public int getRosterVersion() {
+        return rosterVersion.get();
     }
 
     /**
@@ -170,6 +178,7 @@ public class NPCManager {
      * NPC UUID 업데이트 리스너에게 알림
      */
     private void notifyUpdateListeners() {
+        rosterVersion.incrementAndGet();
         LOGGER.debug("[NPC 업데이트] 리스너에게 알림 시작");
         if (npcUpdateCallback != null) {
             LOGGER.debug("[NPC 업데이트] 콜백 호출, NPC 개수: " + npcUuids.size());
@@ -346,6 +355,7 @@ public class NPCManager {
             // 기존 데이터 초기화
             LOGGER.info("[NPC UUID 로드] 기존 데이터 초기화");
             npcUuids.clear();
+            rosterVersion.incrementAndGet();
 
             // NBT 형식으로 로드
             LOGGER.info("[NPC UUID 로드] NBT 파일 읽기 시작");
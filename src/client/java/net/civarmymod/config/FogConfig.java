@@ -1,6 +1,10 @@
 package net.civarmymod.config;
 
 import net.civarmymod.FogOfWarClient;
+import net.civarmymod.render.FogFlatLighting;
+import net.civarmymod.render.FogObjectCulling;
+import net.civarmymod.render.FogRebuildFilter;
+import net.civarmymod.render.FogSectionTransform;
 import net.fabricmc.loader.api.FabricLoader;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -30,6 +34,24 @@ public class FogConfig {
     private static final String DEFAULT_WEBSOCKET_ENDPOINT = "ws://localhost:8080/api/fog/ws";
     private static final String DEFAULT_FOG_BLOCK_ID = "minecraft:gray_concrete"; // 기본값: 회색 콘크리트
     private static final boolean DEFAULT_DEBUG_MODE = false;
+    private static final long DEFAULT_JOURNAL_FLUSH_INTERVAL_MS = 1000; // 저널 기록/동기화 주기
+    private static final long DEFAULT_JOURNAL_COMPACT_THRESHOLD_BYTES = 4L * 1024 * 1024; // 이 크기를 넘으면 기본 파일로 압축
+    private static final String DEFAULT_FOG_MESHING_MODE = FogSectionTransform.MODE_SLICE;
+    private static final boolean DEFAULT_FOG_FLAT_LIGHTING = false;
+    private static final int DEFAULT_FOG_FLAT_LIGHT_LEVEL = 12; // 평면 조명 밝기 (0~15)
+    private static final boolean DEFAULT_FOG_FROZEN_MESH = false;
+    private static final long DEFAULT_FOG_STATE_WAIT_MS = 3000; // 새 청크의 안개 상태를 기다리는 최대 시간
+    private static final boolean DEFAULT_FOG_CULL_OBJECTS = true;
+    private static final boolean DEFAULT_FOG_EVICT_HIDDEN_CHUNKS = false;
+    private static final long DEFAULT_FOG_EVICT_HIDDEN_DELAY_MS = 10000; // 이 시간 이상 HIDDEN이면 메모리에서 내림
+    private static final int DEFAULT_FOG_VISIBILITY_EXIT_RADIUS = 2; // 들어오는 반경(1)보다 한 칸 크게
+    private static final long DEFAULT_FOG_VISIBILITY_MIN_DWELL_MS = 4000; // 업데이트 두 번
+    private static final boolean DEFAULT_FOG_LINE_OF_SIGHT = false;
+    private static final int DEFAULT_FOG_LINE_OF_SIGHT_RADIUS = 4;
+    // 반경 상한 (청크): 격자 계산은 ChunkVisibilityGrid.MAX_RADIUS까지 받지만, 관찰자마다 (2r+1)^2 칸을 추적/할당하므로 작게 제한
+    private static final int MAX_FOG_VISIBILITY_EXIT_RADIUS = 32;
+    private static final int MAX_FOG_LINE_OF_SIGHT_RADIUS = 32;
+    private static final long DEFAULT_FOG_LINE_OF_SIGHT_BUDGET_MICROS = 2000; // 틱(50ms)의 4%
 
     private static ConfigData config; // 로드된 설정 데이터 저장
 
@@ -46,6 +68,51 @@ public class FogConfig {
         // 기본 안개 블록 ID 추가
         public String defaultFogBlockId = DEFAULT_FOG_BLOCK_ID;
 
+        // 변경 저널 기록 주기 (밀리초)
+        public long journalFlushIntervalMs = DEFAULT_JOURNAL_FLUSH_INTERVAL_MS;
+
+        // 저널 압축 임계 크기 (바이트)
+        public long journalCompactThresholdBytes = DEFAULT_JOURNAL_COMPACT_THRESHOLD_BYTES;
+
+        // 소듐 메싱 시 안개 적용 방식 (SLICE: 섹션 복사 시 한 번, REDIRECT: 블록마다)
+        public String fogMeshingMode = DEFAULT_FOG_MESHING_MODE;
+
+        // FOGGED 청크를 AO/빛 샘플링 없이 일정한 밝기로 메싱
+        public boolean fogFlatLighting = DEFAULT_FOG_FLAT_LIGHTING;
+
+        // 평면 조명 밝기 (0~15)
+        public int fogFlatLightLevel = DEFAULT_FOG_FLAT_LIGHT_LEVEL;
+
+        // VISIBLE → FOGGED 전환 시 리빌드 없이 마지막으로 보였던 메시를 유지 (스냅샷은 미리 캡처해 둔 것을 쓰거나 언로드/리빌드/저장 시점까지 미룸)
+        public boolean fogFrozenMesh = DEFAULT_FOG_FROZEN_MESH;
+
+        // 상태를 모르는 새 청크의 첫 메싱을 보류하는 최대 시간 (밀리초, 0이면 보류 안 함)
+        public long fogStateWaitMs = DEFAULT_FOG_STATE_WAIT_MS;
+
+        // VISIBLE이 아닌 청크의 엔티티/블록 엔티티/파티클을 그리지 않음
+        public boolean fogCullObjects = DEFAULT_FOG_CULL_OBJECTS;
+
+        // 오래 HIDDEN인 청크를 클라이언트 메모리에서 내림 (서버가 다시 보낼 때까지 그려지지 않음)
+        public boolean fogEvictHiddenChunks = DEFAULT_FOG_EVICT_HIDDEN_CHUNKS;
+
+        // 메모리에서 내리기 전 HIDDEN 유지 시간 (밀리초)
+        public long fogEvictHiddenDelayMs = DEFAULT_FOG_EVICT_HIDDEN_DELAY_MS;
+
+        // NPC가 이 반경(청크) 밖으로 나가야 VISIBLE 청크를 FOGGED로 바꿈 (들어오는 반경은 1)
+        public int fogVisibilityExitRadius = DEFAULT_FOG_VISIBILITY_EXIT_RADIUS;
+
+        // VISIBLE이 된 뒤 FOGGED로 바꾸기까지 최소 유지 시간 (밀리초, 0이면 바로)
+        public long fogVisibilityMinDwellMs = DEFAULT_FOG_VISIBILITY_MIN_DWELL_MS;
+
+        // 시야선 모드: 청크별 최고 높이로 지형에 가려진 청크는 보이지 않게 함 (NPC 청크만 항상 VISIBLE)
+        public boolean fogLineOfSight = DEFAULT_FOG_LINE_OF_SIGHT;
+
+        // 시야선 모드의 시야 반경 (청크)
+        public int fogLineOfSightRadius = DEFAULT_FOG_LINE_OF_SIGHT_RADIUS;
+
+        // 시야선 계산에 쓸 틱당 최대 시간 (마이크로초, 넘으면 남은 NPC는 이전 결과를 쓰고 다음 틱에 계산)
+        public long fogLineOfSightBudgetMicros = DEFAULT_FOG_LINE_OF_SIGHT_BUDGET_MICROS;
+
         // 생성자 (기본값 설정) - 파일 없을 때 사용됨
         public ConfigData() {}
     }
@@ -84,6 +151,10 @@ public class FogConfig {
                     config.defaultFogBlockId = DEFAULT_FOG_BLOCK_ID;
                     needsSave = true;
                 }
+                if (config.fogMeshingMode == null) {
+                    config.fogMeshingMode = DEFAULT_FOG_MESHING_MODE;
+                    needsSave = true;
+                }
                 // 누락된 필드가 있었다면 파일 다시 저장
                 if (needsSave) {
                      System.out.println("[FogConfig] 설정 파일에 누락된 필드가 있어 기본값으로 채우고 다시 저장합니다.");
@@ -122,6 +193,16 @@ public class FogConfig {
              return;
         }
 
+        // 반경은 범위를 벗어나면 경계값으로 고쳐서 사용
+        config.fogVisibilityExitRadius = clampRadius("fogVisibilityExitRadius", config.fogVisibilityExitRadius, MAX_FOG_VISIBILITY_EXIT_RADIUS);
+        config.fogLineOfSightRadius = clampRadius("fogLineOfSightRadius", config.fogLineOfSightRadius, MAX_FOG_LINE_OF_SIGHT_RADIUS);
+
+        // 메싱 방식은 정적 설정이므로 인스턴스와 무관하게 적용 (변경 후에는 청크 리빌드가 필요)
+        FogSectionTransform.setMode(config.fogMeshingMode);
+        FogFlatLighting.configure(config.fogFlatLighting, config.fogFlatLightLevel);
+        FogRebuildFilter.configure(config.fogFrozenMesh);
+        FogObjectCulling.configure(config.fogCullObjects);
+
         // FogOfWarClient 인스턴스 존재 여부 확인 후 적용 (순환 참조 방지)
         FogOfWarClient clientInstance = FogOfWarClient.getInstance();
         if (clientInstance != null) {
@@ -155,6 +236,15 @@ public class FogConfig {
         }
     }
 
+    /** 반경 설정을 1~max 범위로 제한 (범위를 벗어나면 경고) */
+    private static int clampRadius(String name, int value, int max) {
+        int clamped = Math.max(1, Math.min(max, value));
+        if (clamped != value) {
+            System.err.println("[FogConfig] " + name + " 값 " + value + "이(가) 범위(1~" + max + ")를 벗어나 " + clamped + "(으)로 조정합니다.");
+        }
+        return clamped;
+    }
+
     /**
      * 설정 저장
      */
@@ -0,0 +1,31 @@
+package net.civarmymod.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.civarmymod.render.FogObjectCulling;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.render.block.entity.BlockEntityRenderDispatcher;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * VISIBLE이 아닌 청크의 블록 엔티티(상자, 표지판 등)는 그리지 않음
+ * 바닐라와 소듐 모두 이 메서드를 거쳐 블록 엔티티를 렌더링합니다.
+ */
+@Mixin(BlockEntityRenderDispatcher.class)
+public class BlockEntityRenderDispatcherMixin {
+
+    @Inject(method = "render(Lnet/minecraft/block/entity/BlockEntity;FLnet/minecraft/client/util/math/MatrixStack;Lnet/minecraft/client/render/VertexConsumerProvider;)V",
+            at = @At("HEAD"), cancellable = true)
+    private void cullFoggedBlockEntity(BlockEntity blockEntity, float tickDelta, MatrixStack matrices,
+                                       VertexConsumerProvider vertexConsumers, CallbackInfo ci) {
+        BlockPos pos = blockEntity.getPos();
+        if (FogObjectCulling.isCulled(pos.getX(), pos.getZ())) {
+            ci.cancel();
+        }
+    }
+}
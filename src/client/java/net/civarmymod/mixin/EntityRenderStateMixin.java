@@ -0,0 +1,27 @@
+package net.civarmymod.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+import net.civarmymod.render.NpcRenderState;
+import net.minecraft.client.render.entity.state.EntityRenderState;
+
+/**
+ * 렌더 상태에 NPC 여부 플래그를 추가
+ */
+@Mixin(EntityRenderState.class)
+public class EntityRenderStateMixin implements NpcRenderState {
+
+    @Unique
+    private boolean civarmymod$npc;
+
+    @Override
+    public boolean civarmymod$isNpc() {
+        return civarmymod$npc;
+    }
+
+    @Override
+    public void civarmymod$setNpc(boolean npc) {
+        civarmymod$npc = npc;
+    }
+}
@@ -0,0 +1,38 @@
+package net.civarmymod.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.civarmymod.render.FogObjectCulling;
+import net.minecraft.client.particle.Particle;
+import net.minecraft.client.particle.ParticleManager;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.util.math.Box;
+
+/**
+ * VISIBLE이 아닌 청크에서 생기는 파티클은 만들지 않음
+ * 효과 기반 생성은 파티클 객체를 만들기 전에, 직접 추가는 목록에 넣기 전에 걸러냅니다.
+ */
+@Mixin(ParticleManager.class)
+public class ParticleManagerMixin {
+
+    @Inject(method = "addParticle(Lnet/minecraft/particle/ParticleEffect;DDDDDD)Lnet/minecraft/client/particle/Particle;",
+            at = @At("HEAD"), cancellable = true)
+    private void cullFoggedEffect(ParticleEffect parameters, double x, double y, double z,
+                                  double velocityX, double velocityY, double velocityZ, CallbackInfoReturnable<Particle> cir) {
+        if (FogObjectCulling.isCulled(x, z)) {
+            cir.setReturnValue(null);
+        }
+    }
+
+    @Inject(method = "addParticle(Lnet/minecraft/client/particle/Particle;)V", at = @At("HEAD"), cancellable = true)
+    private void cullFoggedParticle(Particle particle, CallbackInfo ci) {
+        Box box = particle.getBoundingBox();
+        if (FogObjectCulling.isCulled((box.minX + box.maxX) * 0.5, (box.minZ + box.maxZ) * 0.5)) {
+            ci.cancel();
+        }
+    }
+}
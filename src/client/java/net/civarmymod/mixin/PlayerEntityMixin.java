@@ -0,0 +1,33 @@
+package net.civarmymod.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+import net.civarmymod.NPCManager;
+import net.civarmymod.render.NpcEntity;
+import net.minecraft.entity.player.PlayerEntity;
+
+/**
+ * 플레이어 엔티티마다 NPC 여부를 캐시
+ * NPC 목록 버전이 같으면 UUID 조회 없이 이전 결과를 반환합니다.
+ */
+@Mixin(PlayerEntity.class)
+public abstract class PlayerEntityMixin implements NpcEntity {
+
+    @Unique
+    private int civarmymod$rosterVersion = -1;
+
+    @Unique
+    private boolean civarmymod$npc;
+
+    @Override
+    public boolean civarmymod$isNpc() {
+        NPCManager npcManager = NPCManager.getInstance();
+        int version = npcManager.getRosterVersion();
+        if (version != civarmymod$rosterVersion) {
+            civarmymod$npc = npcManager.isNpcUuid(((PlayerEntity) (Object) this).getUuid());
+            civarmymod$rosterVersion = version;
+        }
+        return civarmymod$npc;
+    }
+}
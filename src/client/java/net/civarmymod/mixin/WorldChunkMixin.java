@@ -0,0 +1,28 @@
+package net.civarmymod.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.civarmymod.FogOfWarClient;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * 클라이언트 월드의 블록 변경을 안개 스냅샷 변경 추적에 알림
+ * 서버 패킷(단일/섹션 단위 갱신)과 클라이언트 예측 변경 모두 이 메서드를 거칩니다.
+ * 통합 서버도 같은 클래스를 사용하므로 클라이언트 월드만 처리합니다.
+ */
+@Mixin(WorldChunk.class)
+public class WorldChunkMixin {
+
+    @Inject(method = "setBlockState", at = @At("RETURN"))
+    private void onBlockChanged(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> cir) {
+        if (cir.getReturnValue() == null) return; // 바뀐 것이 없음
+        WorldChunk chunk = (WorldChunk) (Object) this;
+        if (!chunk.getWorld().isClient()) return;
+        FogOfWarClient.onClientBlockChanged(chunk.getPos().x, chunk.getPos().z, chunk.getSectionIndex(pos.getY()));
+    }
+}
@@ -0,0 +1,72 @@
+package net.civarmymod.mixin.compat.sodium;
+
+import java.util.Arrays;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.caffeinemc.mods.sodium.client.model.light.LightMode;
+import net.caffeinemc.mods.sodium.client.model.light.data.QuadLightData;
+import net.caffeinemc.mods.sodium.client.render.frapi.helper.ColorHelper;
+import net.caffeinemc.mods.sodium.client.render.frapi.mesh.MutableQuadViewImpl;
+import net.caffeinemc.mods.sodium.client.render.frapi.render.AbstractBlockRenderContext;
+import net.caffeinemc.mods.sodium.client.world.LevelSlice;
+import net.civarmymod.render.FogFlatLighting;
+import net.fabricmc.fabric.api.renderer.v1.material.ShadeMode;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * FOGGED 청크 블록의 평면 조명 처리 (fogFlatLighting 설정)
+ * - prepareAoInfo: AO를 끄고 FLAT 모드로 고정 (발광 여부 조회도 생략)
+ * - shadeQuad: 빛 샘플링 대신 고정 라이트맵과 면 방향 음영만 적용
+ */
+@Mixin(value = AbstractBlockRenderContext.class, remap = false)
+public abstract class SodiumBlockRenderContextMixin {
+
+    @Shadow
+    protected BlockPos pos;
+
+    @Shadow
+    protected LevelSlice slice;
+
+    @Shadow
+    @Final
+    protected QuadLightData quadLightData;
+
+    @Shadow
+    protected boolean useAmbientOcclusion;
+
+    @Shadow
+    protected LightMode defaultLightMode;
+
+    // 현재 블록이 평면 조명 대상인지 (prepareAoInfo에서 블록마다 갱신)
+    @Unique
+    private boolean civarmymod$flatFog;
+
+    @Inject(method = "prepareAoInfo", at = @At("HEAD"), cancellable = true)
+    private void prepareFlatFog(boolean modelAo, CallbackInfo ci) {
+        civarmymod$flatFog = FogFlatLighting.isFlatLit(pos.getX(), pos.getZ());
+        if (civarmymod$flatFog) {
+            useAmbientOcclusion = false;
+            defaultLightMode = LightMode.FLAT;
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "shadeQuad", at = @At("HEAD"), cancellable = true)
+    private void shadeFlatFog(MutableQuadViewImpl quad, LightMode lightMode, boolean emissive, ShadeMode shadeMode, CallbackInfo ci) {
+        if (!civarmymod$flatFog) return;
+        float shade = quad.hasShade() ? slice.getBrightness(quad.lightFace(), true) : 1.0f;
+        Arrays.fill(quadLightData.br, shade);
+        int lightmap = FogFlatLighting.getLightmap();
+        for (int i = 0; i < 4; i++) {
+            quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), lightmap));
+        }
+        ci.cancel();
+    }
+}
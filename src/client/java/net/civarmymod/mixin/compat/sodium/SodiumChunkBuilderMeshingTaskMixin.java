@@ -2,15 +2,28 @@ package net.civarmymod.mixin.compat.sodium;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import net.caffeinemc.mods.sodium.client.render.chunk.compile.ChunkBuildContext;
+import net.caffeinemc.mods.sodium.client.render.chunk.compile.ChunkBuildOutput;
 import net.caffeinemc.mods.sodium.client.render.chunk.compile.tasks.ChunkBuilderMeshingTask;
+import net.caffeinemc.mods.sodium.client.util.task.CancellationToken;
 import net.caffeinemc.mods.sodium.client.world.LevelSlice;
+import net.caffeinemc.mods.sodium.client.world.cloned.ChunkRenderContext;
 import net.civarmymod.FogOfWarClient;
+import net.civarmymod.FogOfWarClient.ChunkState;
+import net.civarmymod.render.FogMeshContext;
+import net.civarmymod.render.FogSectionTransform;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkSectionPos;
 
 /**
  * 청크 상태에 따라 블록 렌더링을 수정
@@ -23,15 +36,45 @@ public class SodiumChunkBuilderMeshingTaskMixin {
     
     private static final Logger LOGGER = LogManager.getLogger("CivArmyMod/SodiumCompatMixin");
 
+    private static final String EXECUTE = "execute(Lnet/caffeinemc/mods/sodium/client/render/chunk/compile/ChunkBuildContext;Lnet/caffeinemc/mods/sodium/client/util/task/CancellationToken;)Lnet/caffeinemc/mods/sodium/client/render/chunk/compile/ChunkBuildOutput;";
+
     static {
         LOGGER.info("SodiumChunkBuilderMeshingTaskMixin 클래스가 로드되었습니다!");
     }
 
+    @Shadow(remap = false)
+    @Final
+    private ChunkRenderContext renderContext;
+
+    // 이 작업 동안의 3x3 청크 상태/스냅샷 (REDIRECT 모드에서만 생성)
+    @Unique
+    private FogMeshContext civarmymod$fogContext;
+
+    // 섹션 전체가 불투명 안개 블록이면 true: 내부 블록은 모든 면이 가려지므로 순회를 건너뜀 (SLICE 모드)
+    @Unique
+    private boolean civarmymod$solidFogSection;
+
+    @Inject(method = EXECUTE, at = @At("HEAD"), remap = false)
+    private void createFogContext(ChunkBuildContext buildContext, CancellationToken cancellationToken, CallbackInfoReturnable<ChunkBuildOutput> cir) {
+        ChunkSectionPos origin = renderContext.getOrigin();
+        if (FogSectionTransform.isSliceMode()) {
+            civarmymod$solidFogSection = FogSectionTransform.getUniformKind(origin.getSectionX(), origin.getSectionY(), origin.getSectionZ()) == FogSectionTransform.UNIFORM_SOLID;
+            return;
+        }
+        civarmymod$fogContext = FogMeshContext.create(origin.getSectionX(), origin.getSectionZ());
+    }
+
+    @Inject(method = EXECUTE, at = @At("RETURN"), remap = false)
+    private void clearFogContext(ChunkBuildContext buildContext, CancellationToken cancellationToken, CallbackInfoReturnable<ChunkBuildOutput> cir) {
+        civarmymod$fogContext = null;
+    }
+
     /**
      * 청크 상태에 따라 블록 렌더링을 수정
      * - HIDDEN: 모든 블록을 공기로 변경 (완전히 숨김)
      * - FOGGED: 모든 블록을 흐흑 블록으로 변경 (과거 위치 유지)
      * - VISIBLE: 원래 블록 상태 유지
+     * fogMeshingMode가 REDIRECT일 때만 사용됩니다.
      */
     @Redirect(
             method = "execute",
@@ -41,6 +84,30 @@ public class SodiumChunkBuilderMeshingTaskMixin {
             )
     )
     private BlockState redirectGetBlockState(LevelSlice slice, int x, int y, int z) {
+        if (FogSectionTransform.isSliceMode()) {
+            // 슬라이스 복사 시 이미 섹션 단위로 안개가 적용됨 (SodiumLevelSliceMixin)
+            if (civarmymod$solidFogSection && isInteriorBlock(x, y, z)) {
+                // 순회에서만 공기로 보이게 함: 이웃 블록의 면 컬링은 슬라이스의 실제 (불투명) 블록을 읽음
+                return Blocks.AIR.getDefaultState();
+            }
+            return slice.getBlockState(x, y, z);
+        }
+
+        FogMeshContext context = civarmymod$fogContext;
+        ChunkState contextState = context != null ? context.getState(x >> 4, z >> 4) : null;
+        if (contextState != null) {
+            // 컨텍스트로 바로 판정: 보이지 않는 청크는 원래 블록을 읽지 않음
+            switch (contextState) {
+                case VISIBLE:
+                    return slice.getBlockState(x, y, z);
+                case FOGGED:
+                    return context.getFoggedState(x, y, z);
+                default:
+                    return Blocks.AIR.getDefaultState();
+            }
+        }
+
+        // 컨텍스트 범위 밖 (또는 컨텍스트 없음): 기존 방식으로 조회
         try {
             // 원래 블록 상태 가져오기
             BlockState originalState = slice.getBlockState(x, y, z);
@@ -111,4 +178,11 @@ public class SodiumChunkBuilderMeshingTaskMixin {
             }
         }
     }
+
+    /** 섹션 경계면(각 축 0, 15)에 닿지 않는 내부 블록인지 확인 */
+    @Unique
+    private static boolean isInteriorBlock(int x, int y, int z) {
+        int lx = x & 15, ly = y & 15, lz = z & 15;
+        return lx > 0 && lx < 15 && ly > 0 && ly < 15 && lz > 0 && lz < 15;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package net.civarmymod.mixin.compat.sodium;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.caffeinemc.mods.sodium.client.world.LevelSlice;
+import net.caffeinemc.mods.sodium.client.world.cloned.ChunkRenderContext;
+import net.caffeinemc.mods.sodium.client.world.cloned.ClonedChunkSection;
+import net.civarmymod.render.FogSectionTransform;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/**
+ * 슬라이스에 섹션 데이터가 복사될 때 안개를 한 번에 적용
+ * 원본 섹션(ClonedChunkSection)은 캐시에서 공유되므로 건드리지 않고, 슬라이스의 블록 배열만 교체합니다.
+ */
+@Mixin(value = LevelSlice.class, remap = false)
+public class SodiumLevelSliceMixin {
+
+    @Shadow
+    @Final
+    private BlockState[][] blockArrays;
+
+    @Inject(method = "copySectionData", at = @At("TAIL"))
+    private void applyFogToSection(ChunkRenderContext context, int sectionIndex, CallbackInfo ci) {
+        ClonedChunkSection section = context.getSections()[sectionIndex];
+        ChunkSectionPos pos = section.getPosition();
+        FogSectionTransform.apply(blockArrays[sectionIndex], pos.getSectionX(), pos.getSectionY(), pos.getSectionZ());
+    }
+}
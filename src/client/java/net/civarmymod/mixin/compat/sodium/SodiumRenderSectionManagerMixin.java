@@ -0,0 +1,43 @@
+package net.civarmymod.mixin.compat.sodium;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.caffeinemc.mods.sodium.client.render.chunk.RenderSection;
+import net.caffeinemc.mods.sodium.client.render.chunk.RenderSectionManager;
+import net.caffeinemc.mods.sodium.client.render.chunk.compile.tasks.ChunkBuilderMeshingTask;
+import net.civarmymod.FogOfWarClient;
+import net.civarmymod.render.FogRebuildFilter;
+import net.civarmymod.render.FogRegionVisibility;
+import net.civarmymod.render.FogSectionTransform;
+
+/**
+ * HIDDEN 청크 열의 섹션과 스냅샷이 전부 공기인 FOGGED 섹션은 메싱 작업을 만들지 않음
+ * 작업이 null이면 소듐은 슬라이스 복사 없이 곧바로 빈 섹션(BuiltSectionInfo.EMPTY)으로 처리하므로,
+ * 렌더 목록에도 들어가지 않고 가시성 탐색은 공기 섹션처럼 그대로 통과합니다.
+ * 안개 상태상 결과가 바뀌지 않는 리빌드 요청은 FogRebuildFilter로 걸러냅니다.
+ * 메싱 작업은 렌더 스레드에서 만들어지므로, 캡처를 미룬 고정 메시 청크의 스냅샷도 이 시점에 캡처합니다.
+ */
+@Mixin(value = RenderSectionManager.class, remap = false)
+public class SodiumRenderSectionManagerMixin {
+
+    @Inject(method = "createRebuildTask", at = @At("HEAD"), cancellable = true)
+    private void skipHiddenSection(RenderSection section, int frame, CallbackInfoReturnable<ChunkBuilderMeshingTask> cir) {
+        FogOfWarClient.captureFrozenSnapshot(section.getChunkX(), section.getChunkZ()); // 캡처를 미룬 고정 메시 청크는 메싱 전에 캡처
+        if (FogRegionVisibility.isHiddenColumn(section.getChunkX(), section.getChunkZ())) {
+            cir.setReturnValue(null);
+        } else if (FogSectionTransform.getUniformKind(section.getChunkX(), section.getChunkY(), section.getChunkZ()) == FogSectionTransform.UNIFORM_AIR) {
+            cir.setReturnValue(null); // 스냅샷이 전부 공기인 FOGGED 섹션도 그릴 것이 없음
+        }
+    }
+
+    @Inject(method = "scheduleRebuild", at = @At("HEAD"), cancellable = true)
+    private void filterRebuild(int x, int y, int z, boolean important, CallbackInfo ci) {
+        if (FogRebuildFilter.shouldSuppressRebuild(x, y, z)) {
+            ci.cancel();
+        }
+    }
+}
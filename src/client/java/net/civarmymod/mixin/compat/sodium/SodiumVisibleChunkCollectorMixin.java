@@ -0,0 +1,28 @@
+package net.civarmymod.mixin.compat.sodium;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.caffeinemc.mods.sodium.client.render.chunk.RenderSection;
+import net.caffeinemc.mods.sodium.client.render.chunk.lists.VisibleChunkCollector;
+import net.caffeinemc.mods.sodium.client.render.chunk.region.RenderRegion;
+import net.civarmymod.render.FogRegionVisibility;
+
+/**
+ * 전부 HIDDEN인 렌더 영역의 섹션은 렌더 목록/리빌드 목록 처리를 건너뜀
+ * 대기 중인 업데이트가 있는 섹션은 그대로 통과시켜 빈 섹션으로 빌드되게 합니다. (빌드 전 섹션은 탐색을 막으므로)
+ */
+@Mixin(value = VisibleChunkCollector.class, remap = false)
+public class SodiumVisibleChunkCollectorMixin {
+
+    @Inject(method = "visit", at = @At("HEAD"), cancellable = true)
+    private void skipHiddenRegion(RenderSection section, CallbackInfo ci) {
+        if (section.getPendingUpdate() != null) return;
+        RenderRegion region = section.getRegion();
+        if (FogRegionVisibility.isHiddenRegion(region.getChunkX(), region.getChunkZ(), RenderRegion.REGION_WIDTH)) {
+            ci.cancel();
+        }
+    }
+}
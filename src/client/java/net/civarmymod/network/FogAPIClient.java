@@ -5,6 +5,7 @@ import java.io.DataInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -325,6 +326,14 @@ public class FogAPIClient {
                     }
                 }
                 
+                // 서버가 보내는 NPC 위치 스트림 (엔티티 추적 거리 밖 NPC의 시야용)
+                if (jsonData.has("npcPositions") || jsonData.has("npcPositionIndex")) {
+                    int positionCount = NpcPositionStream.getInstance().processFromJson(jsonData);
+                    if (DEBUG_MODE && positionCount >= 0) {
+                        System.out.println("[FogWebSocketClient DEBUG] NPC 위치 " + positionCount + "개 수신");
+                    }
+                }
+                
                 // 안개 데이터 처리 (기존 로직)
                 if (dataConsumer != null) {
                     if (DEBUG_MODE) {
@@ -469,6 +478,47 @@ public class FogAPIClient {
         // }
     }
     
+    /**
+     * 로컬 저장소에 없는 스냅샷 섹션을 서버에 요청합니다.
+     * 서버는 해당 해시의 섹션 데이터를 다음 메시지의 snapshotSections로 보내줍니다.
+     *
+     * @param hashes 요청할 섹션 내용 해시 목록
+     */
+    public void requestSnapshotSections(Collection<Long> hashes) {
+        if (!isConnected()) {
+            if (DEBUG_MODE) {
+                System.out.println("[FogAPIClient DEBUG] 스냅샷 섹션 요청 실패: 웹소켓 연결 없음");
+            }
+            return;
+        }
+        if (hashes == null || hashes.isEmpty()) {
+            return;
+        }
+
+        try {
+            JsonObject jsonRequest = new JsonObject();
+            jsonRequest.addProperty("type", "snapshot_sections_request");
+            if (playerUuid != null) {
+                jsonRequest.addProperty("uuid", playerUuid.toString());
+            }
+            JsonArray hashArray = new JsonArray();
+            for (Long hash : hashes) {
+                hashArray.add(Long.toHexString(hash));
+            }
+            jsonRequest.add("hashes", hashArray);
+
+            webSocketClient.send(GSON.toJson(jsonRequest));
+            if (DEBUG_MODE) {
+                System.out.println("[FogAPIClient DEBUG] 스냅샷 섹션 요청 전송: " + hashArray.size() + "개 해시");
+            }
+        } catch (Exception e) {
+            System.err.println("[FogAPIClient ERROR] 스냅샷 섹션 요청 중 오류: " + e.getMessage());
+            if (DEBUG_MODE) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Base64로 인코딩된 스냅샷 데이터를 디코딩
      * JSON 형식과 NBT 형식 모두 지원
@@ -0,0 +1,194 @@
+package net.civarmymod.network;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * 서버가 보내는 아군 NPC 위치 스트림
+ * 엔티티 추적 거리 밖의 NPC도 시야 계산에 쓸 수 있도록 NPC가 있는 청크 좌표만 압축해 받습니다.
+ *
+ * 메시지 필드
+ * - npcPositionIndex: UUID 문자열 배열. 위치 항목의 인덱스가 가리키는 표이며, 목록이 바뀔 때만 보내면 됩니다.
+ * - npcPositions: Base64 프레임. 매번 전체 목록을 보내며 이전 프레임을 대체합니다.
+ * - npcPositionsWorld: (선택) 좌표가 속한 월드 ID (예: minecraft:overworld)
+ *
+ * 프레임 형식 (varint = 부호 없는 LEB128, zigzag = 부호 있는 값을 zigzag 변환한 varint)
+ *   varint 항목 수
+ *   항목마다: varint 인덱스 증가분, zigzag 청크 X 증가분, zigzag 청크 Z 증가분
+ * 항목은 인덱스 오름차순이며, 각 증가분은 직전 항목 기준입니다. (첫 항목은 0 기준)
+ *
+ * 웹소켓 스레드에서 받고 메인 스레드(NPCChunkManager)에서 읽으므로 프레임은 불변 객체로 교체합니다.
+ */
+public final class NpcPositionStream {
+    private static final Logger LOGGER = LogManager.getLogger("CivArmyMod/NpcPositionStream");
+    private static final NpcPositionStream INSTANCE = new NpcPositionStream();
+
+    // 이 시간 동안 새 프레임이 없으면 위치를 버림 (연결 끊김 등)
+    public static final long POSITION_TTL_MS = 10_000;
+    private static final int MAX_ENTRIES = 1 << 16;
+    // 월드 경계(±30,000,000 블록)를 청크 좌표로 바꾼 값: 이 밖의 좌표는 잘못된 데이터로 보고 버림
+    public static final int MAX_CHUNK_COORD = 30_000_000 >> 4;
+
+    private volatile UUID[] indexTable = new UUID[0];
+    private volatile Frame frame;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /** 디코딩된 위치 프레임 (불변) */
+    public static final class Frame {
+        public final int sequence; // 1부터 증가, 새 프레임인지 비교용
+        public final long receivedMs;
+        public final String world; // null이면 현재 월드로 간주
+        public final int size;
+        public final UUID[] uuids;
+        public final int[] chunkXs;
+        public final int[] chunkZs;
+
+        private Frame(int sequence, long receivedMs, String world, int size, UUID[] uuids, int[] chunkXs, int[] chunkZs) {
+            this.sequence = sequence;
+            this.receivedMs = receivedMs;
+            this.world = world;
+            this.size = size;
+            this.uuids = uuids;
+            this.chunkXs = chunkXs;
+            this.chunkZs = chunkZs;
+        }
+    }
+
+    private NpcPositionStream() {
+    }
+
+    public static NpcPositionStream getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 메시지의 npcPositionIndex / npcPositions 필드를 처리합니다. (웹소켓 스레드)
+     * @return 새 프레임의 항목 수 (프레임이 없거나 잘못되었으면 -1)
+     */
+    public int processFromJson(JsonObject json) {
+        if (json.has("npcPositionIndex") && json.get("npcPositionIndex").isJsonArray()) {
+            indexTable = parseIndex(json.getAsJsonArray("npcPositionIndex"));
+            LOGGER.debug("[NPC 위치 스트림] 인덱스 표 갱신: " + indexTable.length + "개");
+        }
+        if (!json.has("npcPositions") || !json.get("npcPositions").isJsonPrimitive()) return -1;
+
+        String world = json.has("npcPositionsWorld") && json.get("npcPositionsWorld").isJsonPrimitive()
+                ? json.get("npcPositionsWorld").getAsString() : null;
+        try {
+            byte[] data = Base64.getDecoder().decode(json.get("npcPositions").getAsString());
+            Frame decoded = decode(data, indexTable, world, sequence.incrementAndGet(), System.currentTimeMillis());
+            frame = decoded;
+            LOGGER.debug("[NPC 위치 스트림] 프레임 " + decoded.sequence + ": " + decoded.size + "개 위치 (" + data.length + "바이트)");
+            return decoded.size;
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("[NPC 위치 스트림] 잘못된 프레임 무시: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 유효 시간 안의 최신 프레임
+     * @return 없거나 만료되었으면 null
+     */
+    public Frame getLiveFrame(long now) {
+        Frame current = frame;
+        return current != null && now - current.receivedMs <= POSITION_TTL_MS ? current : null;
+    }
+
+    /** 월드 접속/종료 시 초기화 */
+    public void clear() {
+        indexTable = new UUID[0];
+        frame = null;
+    }
+
+    private static UUID[] parseIndex(JsonArray array) {
+        UUID[] table = new UUID[array.size()];
+        for (int i = 0; i < table.length; i++) {
+            JsonElement element = array.get(i);
+            if (!element.isJsonPrimitive()) continue;
+            try {
+                table[i] = UUID.fromString(element.getAsString());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("[NPC 위치 스트림] 잘못된 UUID 형식: " + element.getAsString());
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 프레임을 디코딩합니다. 인덱스 표에 없는 항목은 건너뜁니다.
+     * @throws IllegalArgumentException 형식이 잘못된 경우
+     */
+    static Frame decode(byte[] data, UUID[] table, String world, int sequence, long receivedMs) {
+        int[] cursor = { 0 };
+        int count = readVarInt(data, cursor);
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IllegalArgumentException("항목 수 범위 초과: " + count);
+        }
+        UUID[] uuids = new UUID[count];
+        int[] chunkXs = new int[count];
+        int[] chunkZs = new int[count];
+        int size = 0;
+        long index = 0;
+        long chunkX = 0; // long으로 누적해 int 넘침으로 경계 안쪽 좌표가 되는 일을 막음
+        long chunkZ = 0;
+        int outOfBorder = 0;
+        for (int i = 0; i < count; i++) {
+            index += readVarInt(data, cursor) & 0xFFFFFFFFL;
+            chunkX += zigzag(readVarInt(data, cursor));
+            chunkZ += zigzag(readVarInt(data, cursor));
+            if (index >= table.length || table[(int) index] == null) continue; // 표가 아직 도착하지 않았거나 오래됨
+            if (!isWithinWorldBorder(chunkX, chunkZ)) {
+                outOfBorder++; // 이후 항목은 차이값이므로 누적은 계속함
+                continue;
+            }
+            uuids[size] = table[(int) index];
+            chunkXs[size] = (int) chunkX;
+            chunkZs[size] = (int) chunkZ;
+            size++;
+        }
+        if (cursor[0] != data.length) {
+            throw new IllegalArgumentException("프레임 끝에 남은 바이트: " + (data.length - cursor[0]));
+        }
+        if (outOfBorder > 0) {
+            LOGGER.warn("[NPC 위치 스트림] 월드 경계 밖 좌표 " + outOfBorder + "개 무시 (프레임 " + sequence + ")");
+        }
+        if (size < count) {
+            uuids = Arrays.copyOf(uuids, size);
+            chunkXs = Arrays.copyOf(chunkXs, size);
+            chunkZs = Arrays.copyOf(chunkZs, size);
+        }
+        return new Frame(sequence, receivedMs, world, size, uuids, chunkXs, chunkZs);
+    }
+
+    /** 청크 좌표가 월드 경계 안에 있는지 */
+    public static boolean isWithinWorldBorder(long chunkX, long chunkZ) {
+        return Math.abs(chunkX) <= MAX_CHUNK_COORD && Math.abs(chunkZ) <= MAX_CHUNK_COORD;
+    }
+
+    private static int readVarInt(byte[] data, int[] cursor) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (cursor[0] >= data.length) {
+                throw new IllegalArgumentException("프레임이 중간에 끝남");
+            }
+            byte b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("varint가 너무 김");
+    }
+
+    private static int zigzag(int encoded) {
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
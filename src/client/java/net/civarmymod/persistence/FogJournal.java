@@ -0,0 +1,284 @@
+package net.civarmymod.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 안개 상태 변경 저널 (추가 전용)
+ * 기본 저장 파일(FogSaveFormat) 이후의 청크 변경을 레코드 단위로 이어 붙입니다.
+ * 레코드는 해당 청크의 최종 상태(상태, 안개 블록, 스냅샷)를 담으므로 같은 레코드를 다시 재생해도 결과가 같습니다.
+ *
+ * 프레임: int payloadLength, payload, int crc32(payload)
+ * 마지막 레코드가 잘려 있거나 CRC가 맞지 않으면 그 지점부터 버립니다. (충돌 복구)
+ *
+ * 이 클래스는 동기화되지 않으므로 하나의 I/O 스레드에서만 사용해야 합니다.
+ */
+public final class FogJournal implements Closeable {
+    public static final int MAGIC = 0x4A574F46; // "FOWJ"
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final byte RECORD_CHUNK = 1;
+
+    /** 스냅샷 변경 없음 */
+    public static final byte SNAPSHOT_UNCHANGED = 0;
+    /** 스냅샷 교체 */
+    public static final byte SNAPSHOT_SET = 1;
+    /** 스냅샷 제거 */
+    public static final byte SNAPSHOT_CLEARED = 2;
+
+    public static final byte SECTION_AIR = 0;
+    /** 섹션 데이터를 레코드에 직접 포함 */
+    public static final byte SECTION_INLINE = 1;
+    /** 같은 저널 파일에 앞서 포함된 섹션을 해시로 참조 */
+    public static final byte SECTION_REF = 2;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    private FogJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * 저널을 추가 모드로 엽니다. 유효한 레코드 뒤의 잘린 꼬리는 잘라냅니다.
+     * @param validLength replay()가 돌려준 유효 길이 (파일이 없거나 헤더가 없으면 0)
+     */
+    public static FogJournal open(Path file, long validLength) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (validLength < HEADER_BYTES) {
+            channel.truncate(0);
+            writeHeader(channel);
+        } else if (channel.size() > validLength) {
+            channel.truncate(validLength);
+        }
+        channel.position(channel.size());
+        return new FogJournal(file, channel);
+    }
+
+    /** 레코드 묶음을 이어 쓰고 디스크에 동기화합니다. */
+    public void append(Batch batch) throws IOException {
+        if (batch.isEmpty()) return;
+        ByteBuffer data = ByteBuffer.wrap(batch.buffer.array(), 0, batch.buffer.position());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        channel.force(false);
+    }
+
+    /** 기본 파일로 압축된 뒤 저널을 비웁니다. */
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        writeHeader(channel);
+        channel.force(false);
+    }
+
+    /** 현재 저널 크기 (바이트) */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * 저널 파일의 레코드를 순서대로 재생합니다.
+     * @return 마지막 유효 레코드까지의 길이 (open()에 전달), 파일이 없으면 0
+     * @throws ReplayException 헤더를 알 수 없거나 레코드 적용에 실패한 경우 (적용을 마친 레코드까지의 길이 포함)
+     * @throws IOException 파일을 읽지 못한 경우
+     */
+    public static long replay(Path file, ChunkRecordVisitor visitor) throws IOException {
+        if (!Files.exists(file)) return 0;
+        byte[] raw = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        if (raw.length < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new ReplayException("알 수 없는 저널 헤더", 0, null);
+        }
+        CRC32 crc = new CRC32();
+        ChunkRecord record = new ChunkRecord();
+        long validLength = HEADER_BYTES;
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + 4) break; // 잘린 레코드
+            crc.reset();
+            crc.update(raw, start + 4, length);
+            int storedCrc = buffer.getInt(start + 4 + length);
+            if ((int) crc.getValue() != storedCrc) break; // 손상된 레코드
+            ByteBuffer payload = ByteBuffer.wrap(raw, start + 4, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                if (payload.get() == RECORD_CHUNK) {
+                    record.read(payload);
+                    visitor.visitChunk(record);
+                }
+            } catch (RuntimeException e) {
+                throw new ReplayException("레코드 적용 실패 (오프셋 " + start + ")", validLength, e);
+            }
+            buffer.position(start + 4 + length + 4);
+            validLength = buffer.position();
+        }
+        return validLength;
+    }
+
+    /** 재생 실패: 이 길이까지의 레코드는 모두 적용됨 (그 뒤는 적용되지 않음) */
+    public static final class ReplayException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final long appliedLength;
+
+        ReplayException(String message, long appliedLength, Throwable cause) {
+            super(message, cause);
+            this.appliedLength = appliedLength;
+        }
+
+        /** 적용을 마친 마지막 레코드까지의 길이 (헤더가 잘못되었으면 0) */
+        public long getAppliedLength() {
+            return appliedLength;
+        }
+    }
+
+    /** 재생 시 청크 레코드를 받는 콜백 */
+    public interface ChunkRecordVisitor {
+        void visitChunk(ChunkRecord record);
+    }
+
+    /** 재생 중인 청크 레코드 (재사용되므로 콜백 밖으로 보관하지 말 것) */
+    public static final class ChunkRecord {
+        public long chunkKey;
+        public byte state;
+        public String fogBlockId; // 비어 있으면 기본 안개 블록
+        public byte snapshotMode;
+        public int bottomY;
+        public int sectionCount;
+        public byte[] sectionKinds = new byte[0];
+        public long[] sectionHashes = new long[0];
+        public int[] sectionOffsets = new int[0]; // SECTION_INLINE일 때 data 내 오프셋
+        public byte[] data;
+
+        private void read(ByteBuffer payload) {
+            chunkKey = payload.getLong();
+            state = payload.get();
+            byte[] idBytes = new byte[payload.getShort() & 0xFFFF];
+            payload.get(idBytes);
+            fogBlockId = new String(idBytes, StandardCharsets.UTF_8);
+            snapshotMode = payload.get();
+            sectionCount = 0;
+            if (snapshotMode != SNAPSHOT_SET) return;
+            bottomY = payload.getInt();
+            sectionCount = payload.getInt();
+            if (sectionKinds.length < sectionCount) {
+                sectionKinds = new byte[sectionCount];
+                sectionHashes = new long[sectionCount];
+                sectionOffsets = new int[sectionCount];
+            }
+            data = payload.array();
+            for (int s = 0; s < sectionCount; s++) {
+                sectionKinds[s] = payload.get();
+                if (sectionKinds[s] == SECTION_REF) {
+                    sectionHashes[s] = payload.getLong();
+                } else if (sectionKinds[s] == SECTION_INLINE) {
+                    sectionHashes[s] = payload.getLong();
+                    int sectionBytes = payload.getInt();
+                    sectionOffsets[s] = payload.arrayOffset() + payload.position();
+                    payload.position(payload.position() + sectionBytes);
+                }
+            }
+        }
+    }
+
+    /** I/O 스레드로 넘기기 전에 메인 스레드에서 레코드를 쌓는 버퍼 */
+    public static final class Batch {
+        private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private int recordStart = -1;
+        private int recordCount = 0;
+
+        /** 청크 레코드 시작 */
+        public void beginChunk(long chunkKey, byte state, String fogBlockId, byte snapshotMode) {
+            byte[] idBytes = fogBlockId == null ? new byte[0] : fogBlockId.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + 1 + 8 + 1 + 2 + idBytes.length + 1);
+            recordStart = buffer.position();
+            buffer.putInt(0); // 길이는 endChunk에서 기록
+            buffer.put(RECORD_CHUNK).putLong(chunkKey).put(state);
+            buffer.putShort((short) idBytes.length).put(idBytes);
+            buffer.put(snapshotMode);
+        }
+
+        /** SNAPSHOT_SET일 때 섹션 목록 앞에 호출 */
+        public void snapshotHeader(int bottomY, int sectionCount) {
+            ensure(8);
+            buffer.putInt(bottomY).putInt(sectionCount);
+        }
+
+        public void airSection() {
+            ensure(1);
+            buffer.put(SECTION_AIR);
+        }
+
+        public void inlineSection(long hash, byte[] data, int offset, int length) {
+            ensure(1 + 8 + 4 + length);
+            buffer.put(SECTION_INLINE).putLong(hash).putInt(length).put(data, offset, length);
+        }
+
+        public void refSection(long hash) {
+            ensure(1 + 8);
+            buffer.put(SECTION_REF).putLong(hash);
+        }
+
+        /** 청크 레코드 종료: 길이와 CRC를 기록 */
+        public void endChunk() {
+            int payloadLength = buffer.position() - recordStart - 4;
+            buffer.putInt(recordStart, payloadLength);
+            crc.reset();
+            crc.update(buffer.array(), recordStart + 4, payloadLength);
+            ensure(4);
+            buffer.putInt((int) crc.getValue());
+            recordStart = -1;
+            recordCount++;
+        }
+
+        public boolean isEmpty() {
+            return recordCount == 0;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        public int getByteSize() {
+            return buffer.position();
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), newCapacity)).order(ByteOrder.LITTLE_ENDIAN);
+                grown.position(buffer.position());
+                buffer = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package net.civarmymod.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 안개 데이터 저장 파일의 컬럼 형식
+ * 청크별 객체 대신 정렬된 청크 키(ChunkPos.toLong)를 델타 인코딩한 long 배열과
+ * 같은 순서의 상태/팔레트 배열을 통째로 기록합니다. 파일 전체는 deflate로 압축됩니다.
+ *
+ * 레이아웃 (version 2, little endian):
+ *   int magic, int version
+ *   int chunkCount, varlong[chunkCount] 키 델타, byte[chunkCount] 상태, short[chunkCount] 안개 블록 팔레트 인덱스
+ *   int paletteSize, (int length, UTF-8 bytes)[paletteSize] 블록 ID
+ *   int sectionBytes, int sectionCount, byte[sectionCount * sectionBytes] 고유 스냅샷 섹션
+ *   int snapshotCount, varlong[snapshotCount] 키 델타, int[snapshotCount] bottomY, int[snapshotCount] 섹션 수
+ *   int refCount, int[refCount] 섹션 테이블 인덱스 (스냅샷 순서대로 이어 붙임, -1은 공기 섹션)
+ * varlong은 zigzag 변환한 LEB128이며, 인접한 청크의 키 델타는 1~3바이트로 줄어듭니다.
+ * version 1은 키 델타를 고정 8바이트 long으로 기록했으며 읽기만 지원합니다.
+ *
+ * 읽을 때는 모든 개수를 남은 바이트 수와 비교한 뒤에 배열을 할당하므로, 손상된 파일은 IOException이 됩니다.
+ */
+public final class FogSaveFormat {
+    public static final int MAGIC = 0x46574F46; // "FOWF"
+    public static final int VERSION = 2;
+    private static final int VERSION_FIXED_KEYS = 1;
+    // 압축 해제 후 최대 크기 (손상/악성 파일로 인한 메모리 고갈 방지)
+    private static final int MAX_RAW_BYTES = 1 << 30;
+    /** 상태가 없는 청크 (커스텀 안개 블록만 있는 경우) */
+    public static final byte NO_STATE = -1;
+    /** 팔레트 인덱스 0은 기본 안개 블록 */
+    public static final short DEFAULT_FOG_BLOCK = 0;
+
+    private FogSaveFormat() {
+    }
+
+    /** 파일 하나에 담기는 컬럼 데이터 */
+    public static final class Columns {
+        public long[] chunkKeys = new long[0];      // 정렬된 청크 키
+        public byte[] states = new byte[0];         // ChunkState ordinal 또는 NO_STATE
+        public short[] fogBlockIndices = new short[0];
+        public String[] fogBlockPalette = new String[0]; // 인덱스 1부터 사용 (0은 기본 블록)
+        public int sectionBytes;
+        public byte[] sectionTable = new byte[0];
+        public long[] snapshotKeys = new long[0];   // 정렬된 청크 키
+        public int[] snapshotBottomY = new int[0];
+        public int[] snapshotSectionCounts = new int[0];
+        public int[] snapshotSectionRefs = new int[0];
+    }
+
+    /**
+     * 컬럼 데이터를 임시 파일에 쓴 뒤 원자적으로 교체합니다.
+     * chunkKeys와 snapshotKeys는 오름차순으로 정렬되어 있어야 합니다.
+     */
+    public static void write(Path file, Columns columns) throws IOException {
+        byte[][] paletteBytes = new byte[columns.fogBlockPalette.length][];
+        int paletteLength = 0;
+        for (int i = 0; i < paletteBytes.length; i++) {
+            paletteBytes[i] = columns.fogBlockPalette[i].getBytes(StandardCharsets.UTF_8);
+            paletteLength += 4 + paletteBytes[i].length;
+        }
+        int chunkCount = columns.chunkKeys.length;
+        int snapshotCount = columns.snapshotKeys.length;
+        int sectionCount = columns.sectionBytes == 0 ? 0 : columns.sectionTable.length / columns.sectionBytes;
+        long size = 8L
+                + 4 + chunkCount * 10L + chunkCount + chunkCount * 2L
+                + 4 + paletteLength
+                + 8 + columns.sectionTable.length
+                + 4 + snapshotCount * 18L
+                + 4 + columns.snapshotSectionRefs.length * 4L;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Fog save data too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION);
+
+        buffer.putInt(chunkCount);
+        putVarLongs(buffer, deltaEncode(columns.chunkKeys));
+        buffer.put(columns.states);
+        buffer.asShortBuffer().put(columns.fogBlockIndices);
+        buffer.position(buffer.position() + chunkCount * 2);
+
+        buffer.putInt(paletteBytes.length);
+        for (byte[] entry : paletteBytes) {
+            buffer.putInt(entry.length).put(entry);
+        }
+
+        buffer.putInt(columns.sectionBytes).putInt(sectionCount);
+        buffer.put(columns.sectionTable);
+
+        buffer.putInt(snapshotCount);
+        putVarLongs(buffer, deltaEncode(columns.snapshotKeys));
+        putInts(buffer, columns.snapshotBottomY);
+        putInts(buffer, columns.snapshotSectionCounts);
+        buffer.putInt(columns.snapshotSectionRefs.length);
+        putInts(buffer, columns.snapshotSectionRefs);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED); // 델타/팔레트 컬럼은 빠른 압축으로도 충분히 줄어듦
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp), deflater, 1 << 16)) {
+            out.write(buffer.array(), 0, buffer.position());
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 파일을 읽어 컬럼 데이터로 복원합니다.
+     * @throws IOException 형식이 다르거나 손상된 파일
+     */
+    public static Columns read(Path file) throws IOException {
+        byte[] raw;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+            raw = in.readNBytes(MAX_RAW_BYTES);
+            if (in.read() != -1) {
+                throw new IOException("Fog save file too large: " + file.getFileName());
+            }
+        }
+        try {
+            return decode(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN), file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated fog save file: " + file.getFileName(), e);
+        }
+    }
+
+    private static Columns decode(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a fog save file: " + file.getFileName());
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != VERSION_FIXED_KEYS) {
+            throw new IOException("Unsupported fog save version " + version + ": " + file.getFileName());
+        }
+        boolean varKeys = version != VERSION_FIXED_KEYS;
+
+        Columns columns = new Columns();
+        int chunkCount = checkCount(buffer, buffer.getInt(), varKeys ? 4 : 11, "chunk"); // 키 + 상태 1 + 팔레트 2
+        columns.chunkKeys = deltaDecode(varKeys ? getVarLongs(buffer, chunkCount) : getLongs(buffer, chunkCount));
+        checkCount(buffer, chunkCount, 3, "chunk");
+        columns.states = new byte[chunkCount];
+        buffer.get(columns.states);
+        columns.fogBlockIndices = new short[chunkCount];
+        buffer.asShortBuffer().get(columns.fogBlockIndices);
+        buffer.position(buffer.position() + chunkCount * 2);
+
+        int paletteSize = checkCount(buffer, buffer.getInt(), 4, "palette");
+        columns.fogBlockPalette = new String[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            byte[] entry = new byte[checkCount(buffer, buffer.getInt(), 1, "palette entry")];
+            buffer.get(entry);
+            columns.fogBlockPalette[i] = new String(entry, StandardCharsets.UTF_8);
+        }
+
+        columns.sectionBytes = buffer.getInt();
+        int sectionCount = buffer.getInt();
+        if (columns.sectionBytes < 0 || sectionCount < 0
+                || (long) sectionCount * columns.sectionBytes > buffer.remaining()) {
+            throw new IOException("Invalid section table (" + sectionCount + " x " + columns.sectionBytes + " bytes)");
+        }
+        columns.sectionTable = new byte[sectionCount * columns.sectionBytes];
+        buffer.get(columns.sectionTable);
+
+        int snapshotCount = checkCount(buffer, buffer.getInt(), varKeys ? 9 : 16, "snapshot"); // 키 + bottomY 4 + 섹션 수 4
+        columns.snapshotKeys = deltaDecode(varKeys ? getVarLongs(buffer, snapshotCount) : getLongs(buffer, snapshotCount));
+        columns.snapshotBottomY = getInts(buffer, checkCount(buffer, snapshotCount, 8, "snapshot"));
+        columns.snapshotSectionCounts = getInts(buffer, snapshotCount);
+        columns.snapshotSectionRefs = getInts(buffer, checkCount(buffer, buffer.getInt(), 4, "section ref"));
+        long totalRefs = 0;
+        for (int count : columns.snapshotSectionCounts) {
+            if (count < 0) throw new IOException("Negative snapshot section count: " + count);
+            totalRefs += count;
+        }
+        if (totalRefs > columns.snapshotSectionRefs.length) {
+            throw new IOException("Snapshot section refs truncated: " + totalRefs + " > " + columns.snapshotSectionRefs.length);
+        }
+        return columns;
+    }
+
+    /** 개수가 음수이거나 남은 바이트로 담을 수 없으면 할당 전에 실패 */
+    private static int checkCount(ByteBuffer buffer, int count, int minElementBytes, String what) throws IOException {
+        if (count < 0 || count > buffer.remaining() / minElementBytes) {
+            throw new IOException("Invalid " + what + " count " + count + " (" + buffer.remaining() + " bytes left)");
+        }
+        return count;
+    }
+
+    /** 정렬된 키 → 첫 값과 이후 차이값 (오버플로는 복원 시 그대로 되돌려짐) */
+    static long[] deltaEncode(long[] sortedKeys) {
+        long[] deltas = new long[sortedKeys.length];
+        long previous = 0L;
+        for (int i = 0; i < sortedKeys.length; i++) {
+            deltas[i] = sortedKeys[i] - previous;
+            previous = sortedKeys[i];
+        }
+        return deltas;
+    }
+
+    static long[] deltaDecode(long[] deltas) {
+        long running = 0L;
+        for (int i = 0; i < deltas.length; i++) {
+            running += deltas[i];
+            deltas[i] = running;
+        }
+        return deltas;
+    }
+
+    private static void putVarLongs(ByteBuffer buffer, long[] values) {
+        for (long value : values) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            buffer.put((byte) zigzag);
+        }
+    }
+
+    private static long[] getVarLongs(ByteBuffer buffer, int count) throws IOException {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) throw new IOException("Malformed varlong");
+                b = buffer.get();
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        return values;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * 4);
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+}
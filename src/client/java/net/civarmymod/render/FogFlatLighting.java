@@ -0,0 +1,55 @@
+package net.civarmymod.render;
+
+import net.civarmymod.FogOfWarClient;
+import net.minecraft.client.render.LightmapTextureManager;
+
+/**
+ * FOGGED 청크의 평면 조명 메싱 설정
+ * 안개 지형은 과거 기억을 표현하는 것이므로 실제 월드의 빛/AO 대신 일정한 밝기로 그립니다.
+ * 켜져 있으면 FOGGED 블록은 빛 샘플링과 이웃 AO 조회 없이 면 방향 음영만 적용됩니다.
+ */
+public final class FogFlatLighting {
+    private static volatile boolean enabled = false;
+    private static volatile int lightmap = LightmapTextureManager.pack(15, 15);
+
+    // 메싱 스레드별 마지막 조회 결과 (같은 청크 안의 연속 블록은 맵 조회 생략)
+    private static final ThreadLocal<long[]> LAST_LOOKUP = ThreadLocal.withInitial(() -> new long[] { Long.MIN_VALUE, 0L });
+
+    private FogFlatLighting() {
+    }
+
+    /** 설정 적용 (lightLevel은 0~15로 제한) */
+    public static void configure(boolean flatLighting, int lightLevel) {
+        int level = Math.max(0, Math.min(15, lightLevel));
+        lightmap = LightmapTextureManager.pack(level, level);
+        enabled = flatLighting;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 평면 조명에 사용할 고정 라이트맵 값 */
+    public static int getLightmap() {
+        return lightmap;
+    }
+
+    /** 해당 블록 위치를 평면 조명으로 그려야 하는지 확인 (스냅샷 대체 청크는 빛 데이터가 없으므로 설정과 관계없이 평면 조명) */
+    public static boolean isFlatLit(int blockX, int blockZ) {
+        if (FogOfWarClient.getInstance() == null) return false;
+        int chunkX = blockX >> 4;
+        int chunkZ = blockZ >> 4;
+        if (FogOfWarClient.isPlaceholderChunk(chunkX, chunkZ)) return true;
+        if (!enabled) return false;
+        long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        long[] last = LAST_LOOKUP.get();
+        int version = FogOfWarClient.getStateVersion();
+        if (last[0] == key && (int) (last[1] >>> 1) == version) {
+            return (last[1] & 1L) != 0;
+        }
+        boolean fogged = FogOfWarClient.isFoggedChunk(chunkX, chunkZ);
+        last[0] = key;
+        last[1] = ((long) version << 1) | (fogged ? 1L : 0L);
+        return fogged;
+    }
+}
@@ -0,0 +1,92 @@
+package net.civarmymod.render;
+
+import net.civarmymod.FogOfWarClient;
+import net.civarmymod.FogOfWarClient.ChunkState;
+import net.civarmymod.snapshot.ChunkSnapshot;
+import net.civarmymod.snapshot.SnapshotStore;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+
+/**
+ * 메싱 작업 하나 동안 사용하는 안개 조회 컨텍스트
+ * 작업 시작 시 중심 청크 주변 3x3 열의 상태와 스냅샷을 한 번만 조회해 두고,
+ * 블록마다 호출되는 리다이렉트는 맵 조회 없이 배열 인덱스로 접근합니다.
+ * 작업 스레드 하나에서만 사용됩니다.
+ */
+public final class FogMeshContext {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+    private static final BlockState DIRT = Blocks.DIRT.getDefaultState();
+    private static final BlockState STONE = Blocks.STONE.getDefaultState();
+
+    private final int originChunkX; // 3x3 범위의 최소 청크 좌표
+    private final int originChunkZ;
+    private final ChunkState[] states = new ChunkState[9];
+    private final ChunkSnapshot[] snapshots = new ChunkSnapshot[9];
+    private final SnapshotStore store;
+
+    private FogMeshContext(int centerChunkX, int centerChunkZ, SnapshotStore store) {
+        this.originChunkX = centerChunkX - 1;
+        this.originChunkZ = centerChunkZ - 1;
+        this.store = store;
+    }
+
+    /**
+     * 중심 청크 기준으로 컨텍스트를 만듭니다.
+     * @return 안개 시스템이 준비되지 않았으면 null (기존 조회 방식 사용)
+     */
+    public static FogMeshContext create(int centerChunkX, int centerChunkZ) {
+        FogOfWarClient fogClient = FogOfWarClient.getInstance();
+        SnapshotStore store = FogOfWarClient.getSnapshotStore();
+        if (fogClient == null || store == null) return null;
+
+        FogMeshContext context = new FogMeshContext(centerChunkX, centerChunkZ, store);
+        for (int dx = 0; dx < 3; dx++) {
+            for (int dz = 0; dz < 3; dz++) {
+                int chunkX = context.originChunkX + dx;
+                int chunkZ = context.originChunkZ + dz;
+                int index = dx * 3 + dz;
+                // 정적 조회와 같은 규칙: 초기화 전이거나 맵에 없으면 HIDDEN
+                ChunkState state;
+                if (FogOfWarClient.isVisibleChunk(chunkX, chunkZ)) {
+                    state = ChunkState.VISIBLE;
+                } else if (FogOfWarClient.isFoggedChunk(chunkX, chunkZ)) {
+                    state = ChunkState.FOGGED;
+                    context.snapshots[index] = FogOfWarClient.getChunkSnapshot(chunkX << 4, 0, chunkZ << 4);
+                } else {
+                    state = ChunkState.HIDDEN;
+                }
+                context.states[index] = state;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 3x3 범위 안의 청크 상태를 반환합니다.
+     * @return 범위를 벗어나면 null
+     */
+    public ChunkState getState(int chunkX, int chunkZ) {
+        int index = indexOf(chunkX, chunkZ);
+        return index < 0 ? null : states[index];
+    }
+
+    /**
+     * FOGGED 청크의 메싱용 블록을 스냅샷에서 만듭니다. (고체 → 흙, 액체 → 돌, 그 외/스냅샷 없음 → 공기)
+     */
+    public BlockState getFoggedState(int x, int y, int z) {
+        int index = indexOf(x >> 4, z >> 4);
+        ChunkSnapshot snapshot = index < 0 ? null : snapshots[index];
+        if (snapshot == null) return AIR;
+        int type = snapshot.getBlockType(store, x, y, z);
+        if (type == 1) return DIRT;
+        if (type == 2) return STONE;
+        return AIR;
+    }
+
+    private int indexOf(int chunkX, int chunkZ) {
+        int dx = chunkX - originChunkX;
+        int dz = chunkZ - originChunkZ;
+        if (dx < 0 || dx > 2 || dz < 0 || dz > 2) return -1;
+        return dx * 3 + dz;
+    }
+}
@@ -0,0 +1,63 @@
+package net.civarmymod.render;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import net.civarmymod.FogOfWarClient;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * VISIBLE이 아닌 청크 안의 엔티티, 블록 엔티티, 파티클을 렌더링 전에 걸러냄
+ * 렌더 상태를 만들기 전에 호출되므로 청크별 결과를 상태 버전 기준으로 캐시해 맵 조회와 할당을 줄입니다.
+ * 틱(게임 로직)은 그대로 두고 렌더링만 건너뜁니다.
+ * 메인(렌더) 스레드에서만 사용합니다.
+ */
+public final class FogObjectCulling {
+    private static volatile boolean enabled = true;
+
+    // 청크 키(ChunkPos.toLong) → 컬링 여부
+    private static final Long2BooleanOpenHashMap CULLED_CHUNKS = new Long2BooleanOpenHashMap();
+    private static int cachedVersion = -1;
+
+    private FogObjectCulling() {
+    }
+
+    /** 설정의 fogCullObjects 적용 */
+    public static void configure(boolean cullObjects) {
+        enabled = cullObjects;
+    }
+
+    /** 블록/파티클 좌표가 VISIBLE이 아닌 청크에 있어 그리지 않아야 하는지 확인 */
+    public static boolean isCulled(double x, double z) {
+        if (!enabled || FogOfWarClient.getInstance() == null) return false;
+        return isCulledChunk(MathHelper.floor(x) >> 4, MathHelper.floor(z) >> 4);
+    }
+
+    /**
+     * 엔티티를 그리지 않아야 하는지 확인
+     * 카메라 엔티티와 플레이어가 탄 것/플레이어에 탄 것은 항상 그립니다.
+     */
+    public static boolean isCulled(Entity entity) {
+        if (!enabled || FogOfWarClient.getInstance() == null) return false;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (entity == client.getCameraEntity()) return false;
+        if (client.player != null && entity.isConnectedThroughVehicle(client.player)) return false;
+        return isCulledChunk(entity.getChunkPos().x, entity.getChunkPos().z);
+    }
+
+    private static boolean isCulledChunk(int chunkX, int chunkZ) {
+        int version = FogOfWarClient.getStateVersion();
+        if (version != cachedVersion) {
+            CULLED_CHUNKS.clear();
+            cachedVersion = version;
+        }
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        if (CULLED_CHUNKS.containsKey(key)) {
+            return CULLED_CHUNKS.get(key);
+        }
+        boolean culled = !FogOfWarClient.isVisibleChunk(chunkX, chunkZ);
+        CULLED_CHUNKS.put(key, culled);
+        return culled;
+    }
+}
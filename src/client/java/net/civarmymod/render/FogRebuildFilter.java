@@ -0,0 +1,115 @@
+package net.civarmymod.render;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.civarmymod.FogOfWarClient;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * 소듐 섹션 리빌드 요청 필터
+ * 안개 상태 때문에 결과가 달라지지 않는 리빌드를 걸러냅니다.
+ * - 고정 메시(frozen) FOGGED 청크: 마지막으로 보였던 메시를 유지하기 위해 모든 리빌드를 막음
+ * - FOGGED/HIDDEN 청크: 블록/빛 변경 리빌드는 스냅샷 또는 빈 결과와 같으므로 버림
+ * 버린 섹션은 청크 열별로 기억했다가, 열이 다시 VISIBLE이 되면 한 번만 리빌드합니다.
+ *
+ * 우리 쪽에서 상태 변경 후 요청하는 리빌드(ChunkReloadManager)는 bypass 구간 안에서 호출되어 항상 통과합니다.
+ * 렌더 스레드에서만 사용합니다.
+ */
+public final class FogRebuildFilter {
+    private static volatile boolean frozenMesh = false;
+    private static int bypassDepth = 0;
+
+    // 청크 열 키(ChunkPos.toLong) → 리빌드가 억제된 섹션 Y 목록
+    private static final Long2ObjectOpenHashMap<IntOpenHashSet> SUPPRESSED = new Long2ObjectOpenHashMap<>();
+    private static int lastDrainVersion = Integer.MIN_VALUE;
+
+    private FogRebuildFilter() {
+    }
+
+    /** 억제했던 섹션을 다시 리빌드할 때 호출되는 콜백 */
+    public interface SectionConsumer {
+        void accept(int sectionX, int sectionY, int sectionZ);
+    }
+
+    /** 설정의 fogFrozenMesh 적용 */
+    public static void configure(boolean frozenMeshEnabled) {
+        frozenMesh = frozenMeshEnabled;
+    }
+
+    /** VISIBLE → FOGGED 전환 시 메시를 고정할지 여부 */
+    public static boolean isFrozenMeshEnabled() {
+        return frozenMesh;
+    }
+
+    /** 이 호출 이후 endBypass()까지의 리빌드 요청은 필터링하지 않음 */
+    public static void beginBypass() {
+        bypassDepth++;
+    }
+
+    public static void endBypass() {
+        bypassDepth--;
+    }
+
+    /**
+     * 리빌드 요청을 버려야 하는지 확인하고, 버린 섹션은 기록합니다.
+     * @param sectionX 섹션(청크) X 좌표
+     * @param sectionY 섹션 Y 좌표
+     * @param sectionZ 섹션(청크) Z 좌표
+     */
+    public static boolean shouldSuppressRebuild(int sectionX, int sectionY, int sectionZ) {
+        if (bypassDepth > 0 || FogOfWarClient.getInstance() == null) return false;
+        if (!FogOfWarClient.isFrozenChunk(sectionX, sectionZ) && FogOfWarClient.isVisibleChunk(sectionX, sectionZ)) {
+            return false;
+        }
+        SUPPRESSED.computeIfAbsent(ChunkPos.toLong(sectionX, sectionZ), key -> new IntOpenHashSet()).add(sectionY);
+        return true;
+    }
+
+    /** 열 전체가 리빌드되므로 기록을 버림 (ChunkReloadManager) */
+    public static void clearSuppressed(int chunkX, int chunkZ) {
+        if (!SUPPRESSED.isEmpty()) {
+            SUPPRESSED.remove(ChunkPos.toLong(chunkX, chunkZ));
+        }
+    }
+
+    /** 월드를 떠날 때 모든 기록 초기화 */
+    public static void clearAllSuppressed() {
+        SUPPRESSED.clear();
+        lastDrainVersion = Integer.MIN_VALUE;
+    }
+
+    /**
+     * 다시 VISIBLE이 된 열의 억제된 섹션을 리빌드 콜백으로 넘기고 기록에서 제거합니다.
+     * 청크 상태가 바뀌지 않았으면 아무 것도 하지 않습니다.
+     * @return 넘긴 섹션 수
+     */
+    public static int drainVisible(SectionConsumer consumer) {
+        if (SUPPRESSED.isEmpty()) return 0;
+        int version = FogOfWarClient.getStateVersion();
+        if (version == lastDrainVersion) return 0;
+        lastDrainVersion = version;
+
+        int flushed = 0;
+        beginBypass();
+        try {
+            ObjectIterator<Long2ObjectMap.Entry<IntOpenHashSet>> it = SUPPRESSED.long2ObjectEntrySet().fastIterator();
+            while (it.hasNext()) {
+                Long2ObjectMap.Entry<IntOpenHashSet> entry = it.next();
+                int chunkX = ChunkPos.getPackedX(entry.getLongKey());
+                int chunkZ = ChunkPos.getPackedZ(entry.getLongKey());
+                if (FogOfWarClient.isFrozenChunk(chunkX, chunkZ) || !FogOfWarClient.isVisibleChunk(chunkX, chunkZ)) continue;
+                for (IntIterator ys = entry.getValue().iterator(); ys.hasNext(); ) {
+                    consumer.accept(chunkX, ys.nextInt(), chunkZ);
+                    flushed++;
+                }
+                it.remove();
+            }
+        } finally {
+            endBypass();
+        }
+        return flushed;
+    }
+}
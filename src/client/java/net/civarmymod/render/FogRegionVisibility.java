@@ -0,0 +1,54 @@
+package net.civarmymod.render;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import net.civarmymod.FogOfWarClient;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * 렌더 영역(소듐 RenderRegion, 8x8 청크 열) 단위로 전부 HIDDEN인지 캐시
+ * 청크 상태 버전이 바뀌면 캐시 전체를 버리고 다시 계산합니다.
+ * 렌더 스레드에서만 사용합니다.
+ */
+public final class FogRegionVisibility {
+    private static final Long2BooleanOpenHashMap HIDDEN_REGIONS = new Long2BooleanOpenHashMap();
+    private static int cachedVersion = -1;
+
+    private FogRegionVisibility() {
+    }
+
+    /** 해당 청크 열이 HIDDEN이거나 안개 상태를 기다리는 중이라 메싱이 필요 없는지 확인 */
+    public static boolean isHiddenColumn(int chunkX, int chunkZ) {
+        if (FogOfWarClient.getInstance() == null) return false;
+        return FogOfWarClient.isHiddenChunk(chunkX, chunkZ) || FogOfWarClient.isAwaitingFogState(chunkX, chunkZ);
+    }
+
+    /**
+     * 영역 안의 모든 청크 열이 HIDDEN인지 확인
+     * @param originChunkX 영역의 첫 청크 X
+     * @param originChunkZ 영역의 첫 청크 Z
+     * @param width 영역의 한 변 길이 (청크)
+     */
+    public static boolean isHiddenRegion(int originChunkX, int originChunkZ, int width) {
+        if (FogOfWarClient.getInstance() == null) return false;
+        int version = FogOfWarClient.getStateVersion();
+        if (version != cachedVersion) {
+            HIDDEN_REGIONS.clear();
+            cachedVersion = version;
+        }
+        long key = ChunkPos.toLong(originChunkX, originChunkZ);
+        if (HIDDEN_REGIONS.containsKey(key)) {
+            return HIDDEN_REGIONS.get(key);
+        }
+        boolean hidden = true;
+        for (int dx = 0; dx < width && hidden; dx++) {
+            for (int dz = 0; dz < width; dz++) {
+                if (!FogOfWarClient.isHiddenChunk(originChunkX + dx, originChunkZ + dz)) {
+                    hidden = false;
+                    break;
+                }
+            }
+        }
+        HIDDEN_REGIONS.put(key, hidden);
+        return hidden;
+    }
+}
@@ -0,0 +1,175 @@
+package net.civarmymod.render;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.civarmymod.FogOfWarClient;
+import net.civarmymod.snapshot.ChunkSnapshot;
+import net.civarmymod.snapshot.SnapshotArena;
+import net.civarmymod.snapshot.SnapshotStore;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+
+/**
+ * 메싱 전에 섹션 단위로 안개를 적용하는 변환기
+ * 소듐이 월드 슬라이스에 섹션 블록 배열을 복사한 직후 한 번만 호출되어,
+ * 이후 메싱은 블록마다 안개 상태를 조회하지 않고 원래 속도로 진행됩니다.
+ * - VISIBLE: 그대로 둠
+ * - FOGGED: 스냅샷에서 미리 만든 섹션 템플릿으로 교체 (고체 → 흙, 액체 → 돌, 나머지 → 공기)
+ * - HIDDEN: 전부 공기로 교체
+ *
+ * 메싱 작업 스레드에서 호출되므로 템플릿 캐시는 동기화된 LRU 맵으로 관리합니다.
+ */
+public final class FogSectionTransform {
+    public static final String MODE_SLICE = "SLICE";       // 슬라이스 복사 시 섹션 단위 변환
+    public static final String MODE_REDIRECT = "REDIRECT"; // 기존 블록별 getBlockState 리다이렉트
+
+    /** 블록 배열 인덱스와 같은 순서 (y << 8 | z << 4 | x, 소듐 LevelSlice 기준) */
+    private static final int SECTION_BLOCKS = 4096;
+    private static final int MAX_CACHED_TEMPLATES = 1024; // 템플릿 하나당 약 16KB
+
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    // 스냅샷 섹션 핸들 → 변환된 블록 배열 (핸들 재사용은 저장소 세대와 해시로 검증)
+    // 접근 순서 LRU: 가득 차면 가장 오래 쓰이지 않은 템플릿 하나만 내보냄
+    private static final Map<Integer, Template> TEMPLATES = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Template> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
+    /** 섹션 내용이 섞여 있음 (일반 메싱) */
+    public static final int MIXED = SnapshotStore.KIND_MIXED;
+    /** 섹션 전체가 공기 (메싱 불필요) */
+    public static final int UNIFORM_AIR = SnapshotStore.KIND_AIR;
+    /** 섹션 전체가 불투명 블록 (경계 면만 생길 수 있음) */
+    public static final int UNIFORM_SOLID = SnapshotStore.KIND_SOLID;
+
+    private static volatile boolean sliceMode = true;
+
+    private FogSectionTransform() {
+    }
+
+    private static final class Template {
+        final int generation;
+        final long hash;
+        final BlockState[] states;
+
+        Template(int generation, long hash, BlockState[] states) {
+            this.generation = generation;
+            this.hash = hash;
+            this.states = states;
+        }
+    }
+
+    /** 설정의 fogMeshingMode 적용 (알 수 없는 값은 SLICE로 취급) */
+    public static void setMode(String mode) {
+        sliceMode = !MODE_REDIRECT.equalsIgnoreCase(mode);
+    }
+
+    public static boolean isSliceMode() {
+        return sliceMode;
+    }
+
+    /** 스냅샷 저장소가 초기화될 때 호출 (핸들이 모두 무효화됨) */
+    public static void clearCache() {
+        synchronized (TEMPLATES) {
+            TEMPLATES.clear();
+        }
+    }
+
+    /**
+     * 슬라이스에 복사된 섹션 블록 배열에 안개를 적용합니다.
+     * @param blocks 소듐 슬라이스의 섹션 블록 배열 (제자리에서 수정)
+     * @return 배열을 수정했으면 true
+     */
+    public static boolean apply(BlockState[] blocks, int sectionX, int sectionY, int sectionZ) {
+        if (!sliceMode || FogOfWarClient.getInstance() == null) return false;
+        if (FogOfWarClient.isVisibleChunk(sectionX, sectionZ)) return false;
+
+        if (!FogOfWarClient.isFoggedChunk(sectionX, sectionZ)) {
+            Arrays.fill(blocks, AIR); // HIDDEN
+            return true;
+        }
+
+        Template template = getFoggedTemplate(sectionX, sectionY, sectionZ);
+        if (template == null) {
+            Arrays.fill(blocks, AIR); // 스냅샷이 없거나 범위를 벗어난 섹션
+        } else {
+            System.arraycopy(template.states, 0, blocks, 0, SECTION_BLOCKS);
+        }
+        return true;
+    }
+
+    /**
+     * FOGGED 섹션의 스냅샷이 균일한지 확인합니다.
+     * 저장소가 intern 시점에 계산한 값을 읽으므로 템플릿을 만들지 않습니다. (렌더 스레드에서 호출됨)
+     * @return UNIFORM_AIR, UNIFORM_SOLID 또는 MIXED (FOGGED가 아니면 MIXED)
+     */
+    public static int getUniformKind(int sectionX, int sectionY, int sectionZ) {
+        if (FogOfWarClient.getInstance() == null || !FogOfWarClient.isFoggedChunk(sectionX, sectionZ)) return MIXED;
+        SnapshotStore store = FogOfWarClient.getSnapshotStore();
+        int handle = resolveHandle(sectionX, sectionY, sectionZ);
+        if (store == null || handle == SnapshotArena.NO_BLOCK) return UNIFORM_AIR;
+        return store.getUniformKind(handle);
+    }
+
+    /** FOGGED 섹션의 스냅샷 섹션 핸들 (스냅샷이 없거나 범위를 벗어나면 NO_BLOCK) */
+    private static int resolveHandle(int sectionX, int sectionY, int sectionZ) {
+        ChunkSnapshot snapshot = FogOfWarClient.getChunkSnapshot(sectionX << 4, 0, sectionZ << 4);
+        if (snapshot == null) return SnapshotArena.NO_BLOCK;
+        int relY = (sectionY << 4) - snapshot.getBottomY();
+        if (relY < 0) return SnapshotArena.NO_BLOCK;
+        int sectionIndex = relY >> 4;
+        if (sectionIndex >= snapshot.getSectionCount()) return SnapshotArena.NO_BLOCK;
+        return snapshot.getSectionHandle(sectionIndex);
+    }
+
+    private static Template getFoggedTemplate(int sectionX, int sectionY, int sectionZ) {
+        SnapshotStore store = FogOfWarClient.getSnapshotStore();
+        if (store == null) return null;
+        int handle = resolveHandle(sectionX, sectionY, sectionZ);
+        if (handle == SnapshotArena.NO_BLOCK) return null;
+
+        // 월드를 떠나 저장소가 비워진 뒤에도 메싱 작업이 남아 있을 수 있음 → 공기로 취급
+        int generation = store.getGeneration();
+        if (!store.isLive(handle)) return null;
+        long hash = store.getHash(handle);
+        Template cached;
+        synchronized (TEMPLATES) {
+            cached = TEMPLATES.get(handle);
+        }
+        if (cached != null && cached.generation == generation && cached.hash == hash) {
+            return cached;
+        }
+
+        byte[] packed = new byte[SnapshotArena.BLOCK_BYTES];
+        store.copyOut(handle, packed, 0);
+        BlockState[] states = new BlockState[SECTION_BLOCKS];
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int type = SnapshotStore.getPacked(packed, 0, SnapshotArena.getIndex(x, y, z));
+                    states[(y << 8) | (z << 4) | x] = toFogState(type);
+                }
+            }
+        }
+        // 복사 도중 저장소가 비워졌으면 0으로 채워진 내용이므로 캐시하지 않음
+        if (store.getGeneration() != generation || !store.isLive(handle)) return null;
+
+        Template template = new Template(generation, hash, states);
+        synchronized (TEMPLATES) {
+            TEMPLATES.put(handle, template);
+        }
+        return template;
+    }
+
+    /** 스냅샷 블록 종류 → 안개 메시에 쓰일 블록 (기존 리다이렉트와 같은 매핑, 내린 청크의 대체 청크에도 사용) */
+    public static BlockState toFogState(int type) {
+        if (type == 1) return Blocks.DIRT.getDefaultState();  // 고체
+        if (type == 2) return Blocks.STONE.getDefaultState(); // 액체
+        return AIR;
+    }
+}
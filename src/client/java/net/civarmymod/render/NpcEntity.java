@@ -0,0 +1,9 @@
+package net.civarmymod.render;
+
+/**
+ * 플레이어 엔티티별 NPC 여부 캐시 (PlayerEntityMixin에서 구현)
+ * NPC 목록 버전이 바뀌었을 때만 UUID 목록을 다시 조회합니다.
+ */
+public interface NpcEntity {
+    boolean civarmymod$isNpc();
+}
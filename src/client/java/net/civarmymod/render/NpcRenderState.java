@@ -0,0 +1,11 @@
+package net.civarmymod.render;
+
+/**
+ * EntityRenderState에 추가되는 NPC 여부 플래그 (EntityRenderStateMixin에서 구현)
+ * updateRenderState에서 한 번 설정하고, 이름표 등 렌더링 경로에서는 할당 없이 읽기만 합니다.
+ */
+public interface NpcRenderState {
+    boolean civarmymod$isNpc();
+
+    void civarmymod$setNpc(boolean npc);
+}
@@ -0,0 +1,84 @@
+package net.civarmymod.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * 청크 하나의 스냅샷
+ * 실제 데이터는 SnapshotStore(아레나)에 있고, 이 객체는 섹션별 블록 핸들만 가집니다.
+ * 같은 내용의 섹션은 다른 스냅샷과 핸들을 공유하며, 각 핸들마다 참조를 하나씩 보유합니다.
+ * 전부 공기인 섹션은 핸들 없이 SnapshotArena.NO_BLOCK으로 표시합니다.
+ */
+public final class ChunkSnapshot {
+    private final int bottomY; // 스냅샷 생성 시점의 월드 최저 Y
+    private final int[] sectionHandles;
+
+    public ChunkSnapshot(int bottomY, int[] sectionHandles) {
+        this.bottomY = bottomY;
+        this.sectionHandles = sectionHandles;
+    }
+
+    /**
+     * 월드 좌표의 블록 종류를 읽습니다.
+     * @return 0: 공기/기타, 1: 고체, 2: 액체, 범위를 벗어나면 -1
+     */
+    public int getBlockType(SnapshotStore store, int x, int y, int z) {
+        int relY = y - bottomY;
+        if (relY < 0) return -1;
+        int sectionIndex = relY >> 4;
+        if (sectionIndex >= sectionHandles.length) return -1;
+        int handle = sectionHandles[sectionIndex];
+        if (handle == SnapshotArena.NO_BLOCK) return 0;
+        return store.get(handle, SnapshotArena.getIndex(x & 15, relY & 15, z & 15));
+    }
+
+    public int getBottomY() {
+        return bottomY;
+    }
+
+    public int getSectionCount() {
+        return sectionHandles.length;
+    }
+
+    public int getSectionHandle(int sectionIndex) {
+        return sectionHandles[sectionIndex];
+    }
+
+    /** 섹션마다 참조를 하나씩 추가합니다. (다른 스레드에서 잠시 사용할 때) */
+    public void retain(SnapshotStore store) {
+        for (int handle : sectionHandles) {
+            store.retain(handle);
+        }
+    }
+
+    /** 이 스냅샷이 보유한 섹션 참조를 모두 해제합니다. */
+    public void release(SnapshotStore store) {
+        for (int handle : sectionHandles) {
+            store.release(handle);
+        }
+    }
+
+    /**
+     * 기존 저장 형식(블록당 1바이트, Y*256 + X*16 + Z)에서 스냅샷을 만듭니다.
+     * 섹션 단위로 패킹한 뒤 저장소에 넣으므로, 같은 내용의 섹션은 공유됩니다.
+     * @param bottomY 데이터가 시작되는 월드 Y
+     */
+    public static ChunkSnapshot fromLegacyBytes(SnapshotStore store, int bottomY, byte[] data) {
+        int sectionCount = (data.length + SnapshotArena.SECTION_BLOCKS - 1) / SnapshotArena.SECTION_BLOCKS;
+        int[] handles = new int[sectionCount];
+        byte[] packed = new byte[SnapshotArena.BLOCK_BYTES];
+        for (int s = 0; s < sectionCount; s++) {
+            int base = s * SnapshotArena.SECTION_BLOCKS;
+            int end = Math.min(base + SnapshotArena.SECTION_BLOCKS, data.length);
+            boolean empty = true;
+            Arrays.fill(packed, (byte) 0);
+            for (int i = base; i < end; i++) {
+                int value = data[i] & 3;
+                if (value == 0) continue;
+                SnapshotStore.setPacked(packed, i - base, value);
+                empty = false;
+            }
+            handles[s] = empty ? SnapshotArena.NO_BLOCK : store.intern(packed, 0);
+        }
+        return new ChunkSnapshot(bottomY, handles);
+    }
+}
@@ -0,0 +1,77 @@
+package net.civarmymod.snapshot;
+
+import java.util.BitSet;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * 스냅샷이 있는 청크의 섹션별 변경(dirty) 표시
+ * 월드에서 스냅샷을 캡처한 시점부터 FOGGED/VISIBLE 기간 내내 블록 변경을 기록해 두었다가, 다시 FOGGED가 될 때
+ * 바뀐 섹션만 다시 캡처하고 나머지는 기존 스냅샷 섹션을 그대로 공유합니다.
+ * 추적 중이 아닌 청크의 표시는 무시됩니다.
+ *
+ * 블록 변경과 스냅샷 생성(공개 API인 setChunkState 경유)은 서로 다른 스레드에서 호출될 수 있으므로 메서드는 동기화됩니다.
+ */
+public final class SectionDirtyTracker {
+    // 청크 키(ChunkPos.toLong) → 바뀐 섹션 인덱스
+    private final Long2ObjectOpenHashMap<BitSet> dirtySections = new Long2ObjectOpenHashMap<>();
+    private volatile boolean empty = true; // 블록 변경마다 락을 잡지 않기 위한 빠른 확인
+
+    /** 방금 캡처(또는 보관)한 스냅샷 기준으로 추적 시작 (모든 섹션 깨끗함) */
+    public synchronized void track(long chunkKey) {
+        dirtySections.put(chunkKey, new BitSet());
+        empty = false;
+    }
+
+    /**
+     * VISIBLE 전환 시 호출: 캡처 시점부터 추적 중이면 그동안의 기록을 그대로 이어 갑니다.
+     * 추적 중이 아니었으면 스냅샷이 월드의 어느 시점과 같은지 모르므로 (저장 데이터, 서버 스냅샷 등)
+     * 모든 섹션을 바뀐 것으로 표시합니다.
+     */
+    public synchronized void continueTracking(long chunkKey, int sectionCount) {
+        if (dirtySections.containsKey(chunkKey)) return;
+        BitSet dirty = new BitSet(sectionCount);
+        dirty.set(0, sectionCount);
+        dirtySections.put(chunkKey, dirty);
+        empty = false;
+    }
+
+    /** 추적 중단 */
+    public synchronized void untrack(long chunkKey) {
+        dirtySections.remove(chunkKey);
+        empty = dirtySections.isEmpty();
+    }
+
+    /** 블록 변경 기록 */
+    public void markDirty(long chunkKey, int sectionIndex) {
+        if (empty || sectionIndex < 0) return;
+        synchronized (this) {
+            BitSet dirty = dirtySections.get(chunkKey);
+            if (dirty != null) dirty.set(sectionIndex);
+        }
+    }
+
+    /** 청크 데이터 전체가 새로 들어온 경우 (청크 패킷 재수신) */
+    public void markAllDirty(long chunkKey, int sectionCount) {
+        if (empty) return;
+        synchronized (this) {
+            BitSet dirty = dirtySections.get(chunkKey);
+            if (dirty != null) dirty.set(0, sectionCount);
+        }
+    }
+
+    /**
+     * 바뀐 섹션 목록을 가져오고 추적을 끝냅니다.
+     * @return 추적 중이 아니었으면 null
+     */
+    public synchronized BitSet take(long chunkKey) {
+        BitSet dirty = dirtySections.remove(chunkKey);
+        empty = dirtySections.isEmpty();
+        return dirty;
+    }
+
+    public synchronized void clear() {
+        dirtySections.clear();
+        empty = true;
+    }
+}
@@ -0,0 +1,149 @@
+package net.civarmymod.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * 스냅샷 데이터를 힙 밖(direct memory)에 보관하는 슬랩 할당기
+ * 한 블록(block)은 청크 섹션 하나(16x16x16)의 스냅샷으로, 블록당 2비트(0: 공기/기타, 1: 고체, 2: 액체)로 패킹됩니다.
+ * 블록은 정수 핸들로 주소 지정되며, 해제된 블록은 free list를 통해 재사용됩니다.
+ *
+ * 쓰기(할당/해제/기록)는 동기화되고, 읽기(get)는 메싱 스레드에서 락 없이 수행됩니다.
+ */
+public final class SnapshotArena {
+    /** 섹션 하나의 블록 수 */
+    public static final int SECTION_BLOCKS = 16 * 16 * 16;
+    /** 섹션 하나를 2비트로 패킹한 바이트 수 */
+    public static final int BLOCK_BYTES = SECTION_BLOCKS / 4;
+    /** 핸들이 없는 섹션 (전부 공기) */
+    public static final int NO_BLOCK = -1;
+
+    private static final int BLOCKS_PER_SLAB_SHIFT = 8;
+    private static final int BLOCKS_PER_SLAB = 1 << BLOCKS_PER_SLAB_SHIFT; // 슬랩당 256개 블록 (256 KiB)
+    private static final int BLOCK_INDEX_MASK = BLOCKS_PER_SLAB - 1;
+
+    // 읽기 스레드가 락 없이 참조하므로 배열 교체는 volatile 쓰기로 공개
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private final IntArrayList freeList = new IntArrayList();
+    private final BitSet freed = new BitSet(); // free list에 있는 핸들 (중복 해제 방지)
+    private int nextUnusedHandle = 0;
+    private int liveBlocks = 0;
+
+    /**
+     * 0으로 초기화된 블록을 하나 할당합니다.
+     * @return 블록 핸들
+     */
+    public synchronized int allocate() {
+        int handle;
+        if (!freeList.isEmpty()) {
+            handle = freeList.popInt();
+            freed.clear(handle);
+        } else {
+            handle = nextUnusedHandle++;
+            int slabIndex = handle >>> BLOCKS_PER_SLAB_SHIFT;
+            if (slabIndex >= slabs.length) {
+                ByteBuffer[] grown = Arrays.copyOf(slabs, slabIndex + 1);
+                grown[slabIndex] = ByteBuffer.allocateDirect(BLOCKS_PER_SLAB * BLOCK_BYTES).order(ByteOrder.nativeOrder());
+                slabs = grown;
+            }
+        }
+        clearBlock(handle);
+        liveBlocks++;
+        return handle;
+    }
+
+    /**
+     * 블록을 free list로 돌려보냅니다.
+     * @param handle 해제할 블록 핸들 (NO_BLOCK이면 무시)
+     */
+    public synchronized void release(int handle) {
+        if (handle == NO_BLOCK || handle < 0 || handle >= nextUnusedHandle) return;
+        if (freed.get(handle)) return; // 이미 해제됨
+        freed.set(handle);
+        freeList.add(handle);
+        liveBlocks--;
+    }
+
+    /**
+     * 모든 블록과 슬랩을 해제합니다. (월드 떠남 시 호출)
+     * 진행 중인 읽기는 이전 슬랩 배열을 계속 참조하므로 안전하며, direct 메모리는 GC 시 회수됩니다.
+     */
+    public synchronized void releaseAll() {
+        slabs = new ByteBuffer[0];
+        freeList.clear();
+        freed.clear();
+        nextUnusedHandle = 0;
+        liveBlocks = 0;
+    }
+
+    /**
+     * 섹션 내 블록 종류를 읽습니다. 복사 없이 direct 버퍼에서 직접 읽습니다.
+     * @param handle 블록 핸들
+     * @param index 섹션 내 인덱스 (getIndex 참고)
+     * @return 0: 공기/기타, 1: 고체, 2: 액체
+     */
+    public int get(int handle, int index) {
+        ByteBuffer slab = slabOf(handle);
+        if (slab == null) return 0;
+        int offset = ((handle & BLOCK_INDEX_MASK) * BLOCK_BYTES) + (index >> 2);
+        return (slab.get(offset) >> ((index & 3) << 1)) & 3;
+    }
+
+    /**
+     * 패킹된 블록 데이터를 byte 배열로 복사합니다. (저장용)
+     * 이미 해제된 아레나의 핸들이면 0(공기)으로 채웁니다.
+     */
+    public void copyOut(int handle, byte[] dst, int dstOffset) {
+        ByteBuffer slab = slabOf(handle);
+        if (slab == null) {
+            Arrays.fill(dst, dstOffset, dstOffset + BLOCK_BYTES, (byte) 0);
+            return;
+        }
+        slab.get((handle & BLOCK_INDEX_MASK) * BLOCK_BYTES, dst, dstOffset, BLOCK_BYTES);
+    }
+
+    /**
+     * 패킹된 블록 데이터를 byte 배열에서 복사해 넣습니다. (로드용)
+     */
+    public void copyIn(int handle, byte[] src, int srcOffset) {
+        ByteBuffer slab = slabOf(handle);
+        if (slab == null) return;
+        slab.put((handle & BLOCK_INDEX_MASK) * BLOCK_BYTES, src, srcOffset, BLOCK_BYTES);
+    }
+
+    private void clearBlock(int handle) {
+        ByteBuffer slab = slabOf(handle);
+        if (slab == null) return;
+        int base = (handle & BLOCK_INDEX_MASK) * BLOCK_BYTES;
+        for (int i = 0; i < BLOCK_BYTES; i += 8) {
+            slab.putLong(base + i, 0L);
+        }
+    }
+
+    /** 핸들이 속한 슬랩 (NO_BLOCK이거나 이미 해제된 아레나의 핸들이면 null) */
+    private ByteBuffer slabOf(int handle) {
+        if (handle < 0) return null;
+        ByteBuffer[] current = slabs;
+        int slabIndex = handle >>> BLOCKS_PER_SLAB_SHIFT;
+        return slabIndex < current.length ? current[slabIndex] : null;
+    }
+
+    /** 섹션 내 상대 좌표 → 인덱스 (기존 스냅샷과 동일하게 Y, X, Z 순) */
+    public static int getIndex(int relX, int relY, int relZ) {
+        return (relY << 8) | (relX << 4) | relZ;
+    }
+
+    /** 사용 중인 블록 수 */
+    public synchronized int getLiveBlockCount() {
+        return liveBlocks;
+    }
+
+    /** 할당된 direct 메모리 바이트 수 */
+    public long getReservedBytes() {
+        return (long) slabs.length * BLOCKS_PER_SLAB * BLOCK_BYTES;
+    }
+}
@@ -0,0 +1,204 @@
+package net.civarmymod.snapshot;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * 내용 해시로 스냅샷 섹션을 공유하는 저장소
+ * 같은 내용의 섹션(바다, 평지, 평평한 경기장 등)은 아레나 블록 하나를 참조 카운트로 공유합니다.
+ * 해시는 패킹된 섹션 1024바이트에 대한 FNV-1a 64비트이며, 서버와 동일한 규칙을 사용합니다.
+ *
+ * 쓰기는 동기화되고, 읽기(get)는 아레나를 통해 락 없이 수행됩니다.
+ */
+public final class SnapshotStore {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** 섹션 내용이 섞여 있음 */
+    public static final int KIND_MIXED = 0;
+    /** 섹션 전체가 공기 (종류 0 또는 3) */
+    public static final int KIND_AIR = 1;
+    /** 섹션에 공기가 하나도 없음 (고체 또는 액체) */
+    public static final int KIND_SOLID = 2;
+
+    private final SnapshotArena arena = new SnapshotArena();
+    private final Long2IntOpenHashMap handleByHash = new Long2IntOpenHashMap();
+    private int[] refCounts = new int[0];
+    private long[] hashes = new long[0];
+    private byte[] uniformKinds = new byte[0]; // intern 시점에 계산 (렌더 스레드에서 템플릿을 만들지 않도록)
+    private final byte[] compareScratch = new byte[SnapshotArena.BLOCK_BYTES];
+    private volatile int generation = 0; // releaseAll마다 증가 (이전 핸들을 들고 있는 비동기 작업 확인용)
+
+    public SnapshotStore() {
+        handleByHash.defaultReturnValue(SnapshotArena.NO_BLOCK);
+    }
+
+    /**
+     * 패킹된 섹션을 저장소에 넣고 참조를 하나 얻습니다.
+     * 같은 내용이 이미 있으면 기존 블록을 공유합니다.
+     * @param packed 2비트 패킹된 섹션 데이터
+     * @param offset 시작 오프셋
+     * @return 블록 핸들 (참조 카운트 1 증가)
+     */
+    public synchronized int intern(byte[] packed, int offset) {
+        long hash = hash(packed, offset);
+        int existing = handleByHash.get(hash);
+        if (existing != SnapshotArena.NO_BLOCK) {
+            arena.copyOut(existing, compareScratch, 0);
+            if (Arrays.equals(compareScratch, 0, SnapshotArena.BLOCK_BYTES, packed, offset, offset + SnapshotArena.BLOCK_BYTES)) {
+                refCounts[existing]++;
+                return existing;
+            }
+            // 해시 충돌: 공유하지 않고 별도 블록으로 보관 (해시 인덱스에는 등록하지 않음)
+        }
+        int handle = arena.allocate();
+        arena.copyIn(handle, packed, offset);
+        ensureCapacity(handle);
+        refCounts[handle] = 1;
+        hashes[handle] = hash;
+        uniformKinds[handle] = (byte) computeUniformKind(packed, offset);
+        if (existing == SnapshotArena.NO_BLOCK) {
+            handleByHash.put(hash, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * 해시로 기존 섹션을 찾아 참조를 하나 얻습니다.
+     * @return 블록 핸들, 없으면 NO_BLOCK
+     */
+    public synchronized int acquireByHash(long hash) {
+        int handle = handleByHash.get(hash);
+        if (handle != SnapshotArena.NO_BLOCK) {
+            refCounts[handle]++;
+        }
+        return handle;
+    }
+
+    /** 참조를 하나 추가합니다. */
+    public synchronized void retain(int handle) {
+        if (!isLive(handle)) return; // NO_BLOCK이거나 이미 해제된 저장소의 핸들
+        refCounts[handle]++;
+    }
+
+    /** 참조를 하나 해제하고, 마지막 참조였다면 블록을 아레나로 돌려보냅니다. */
+    public synchronized void release(int handle) {
+        if (handle == SnapshotArena.NO_BLOCK || handle >= refCounts.length || refCounts[handle] <= 0) return;
+        if (--refCounts[handle] == 0) {
+            if (handleByHash.get(hashes[handle]) == handle) {
+                handleByHash.remove(hashes[handle]);
+            }
+            arena.release(handle);
+        }
+    }
+
+    /** 모든 섹션을 해제합니다. (월드 떠남 시) */
+    public synchronized void releaseAll() {
+        handleByHash.clear();
+        refCounts = new int[0];
+        hashes = new long[0];
+        uniformKinds = new byte[0];
+        arena.releaseAll();
+        generation++;
+    }
+
+    /** releaseAll 횟수 (이 값이 바뀌었으면 이전에 얻은 핸들은 모두 무효) */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /** 섹션 내 블록 종류 읽기 (락 없음) */
+    public int get(int handle, int index) {
+        return arena.get(handle, index);
+    }
+
+    /**
+     * 섹션의 내용 해시
+     * @return 해제된 핸들이면 0 (isLive로 먼저 확인)
+     */
+    public synchronized long getHash(int handle) {
+        return isLive(handle) ? hashes[handle] : 0L;
+    }
+
+    /**
+     * intern 시점에 계산해 둔 섹션 균일 여부
+     * @return KIND_AIR, KIND_SOLID 또는 KIND_MIXED (해제된 핸들이면 KIND_AIR)
+     */
+    public synchronized int getUniformKind(int handle) {
+        return isLive(handle) ? uniformKinds[handle] : KIND_AIR;
+    }
+
+    /** 참조가 남아 있는 핸들인지 확인 (releaseAll 이후의 오래된 핸들은 false) */
+    public synchronized boolean isLive(int handle) {
+        return handle >= 0 && handle < refCounts.length && refCounts[handle] > 0;
+    }
+
+    /** 패킹된 섹션 데이터를 복사해 옵니다. */
+    public void copyOut(int handle, byte[] dst, int dstOffset) {
+        arena.copyOut(handle, dst, dstOffset);
+    }
+
+    /** 공유 중인 고유 섹션 수 */
+    public synchronized int getUniqueSectionCount() {
+        return handleByHash.size();
+    }
+
+    public int getLiveBlockCount() {
+        return arena.getLiveBlockCount();
+    }
+
+    public long getReservedBytes() {
+        return arena.getReservedBytes();
+    }
+
+    private void ensureCapacity(int handle) {
+        if (handle >= refCounts.length) {
+            int newLength = Math.max(handle + 1, refCounts.length * 2);
+            refCounts = Arrays.copyOf(refCounts, newLength);
+            hashes = Arrays.copyOf(hashes, newLength);
+            uniformKinds = Arrays.copyOf(uniformKinds, newLength);
+        }
+    }
+
+    /** 패킹된 섹션의 2비트 값이 모두 공기(0/3)인지, 하나도 공기가 아닌지 판별 */
+    private static int computeUniformKind(byte[] packed, int offset) {
+        boolean anyAir = false;
+        boolean anyNonAir = false;
+        for (int i = offset, end = offset + SnapshotArena.BLOCK_BYTES; i < end; i++) {
+            int b = packed[i] & 0xFF;
+            for (int shift = 0; shift < 8; shift += 2) {
+                int type = (b >> shift) & 3;
+                if (type == 0 || type == 3) {
+                    anyAir = true;
+                } else {
+                    anyNonAir = true;
+                }
+            }
+            if (anyAir && anyNonAir) return KIND_MIXED;
+        }
+        return anyNonAir ? KIND_SOLID : KIND_AIR;
+    }
+
+    /** 패킹된 섹션(1024바이트)의 FNV-1a 64비트 해시 */
+    public static long hash(byte[] packed, int offset) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = offset, end = offset + SnapshotArena.BLOCK_BYTES; i < end; i++) {
+            h ^= (packed[i] & 0xFF);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** 스크래치 버퍼에 2비트 값 기록 */
+    public static void setPacked(byte[] packed, int index, int value) {
+        int offset = index >> 2;
+        int shift = (index & 3) << 1;
+        packed[offset] = (byte) ((packed[offset] & ~(3 << shift)) | ((value & 3) << shift));
+    }
+
+    /** 스크래치 버퍼에서 2비트 값 읽기 */
+    public static int getPacked(byte[] packed, int offset, int index) {
+        return (packed[offset + (index >> 2)] >> ((index & 3) << 1)) & 3;
+    }
+}
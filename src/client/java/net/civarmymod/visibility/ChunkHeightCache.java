@@ -0,0 +1,101 @@
+package net.civarmymod.visibility;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * 시야선 계산용 청크별 최고 높이 캐시 (MOTION_BLOCKING 높이맵의 최댓값)
+ * 처음 조회할 때 계산하고, 블록 변경이나 청크 수신으로 무효화된 청크만 refresh()에서 다시 계산합니다.
+ * 값이 실제로 바뀐 청크만 리스너에 알리므로 지하 채굴 같은 변경은 시야선 결과를 버리지 않고,
+ * 바뀐 청크를 시야 범위에 둔 관찰자만 다시 계산됩니다. 세대는 월드가 바뀌어 전부 버릴 때만 올라갑니다.
+ * 언로드된 청크는 마지막으로 알던 높이를 유지합니다.
+ * 메인 스레드 전용입니다.
+ */
+public final class ChunkHeightCache implements ChunkLineOfSight.HeightSource {
+    private final Long2IntOpenHashMap heights = new Long2IntOpenHashMap();
+    private final LongOpenHashSet dirty = new LongOpenHashSet();
+    private ClientWorld world;
+    private int epoch = 0;
+
+    /** 청크 최고 높이가 실제로 바뀐 경우 호출됨 */
+    public interface ChangeListener {
+        void onHeightChanged(int chunkX, int chunkZ);
+    }
+
+    /**
+     * 무효화된 청크를 마감 시각까지 다시 계산합니다. 월드가 바뀌었으면 전부 버립니다. (시야선 계산 전에 호출)
+     * @return 마감 시각 때문에 남은 청크가 있으면 true (다음 업데이트에서 이어서 계산)
+     */
+    public boolean refresh(ClientWorld currentWorld, long deadlineNanos, ChangeListener listener) {
+        if (world != currentWorld) {
+            heights.clear();
+            dirty.clear();
+            world = currentWorld;
+            epoch++;
+            return false;
+        }
+        for (LongIterator it = dirty.iterator(); it.hasNext(); ) {
+            if (System.nanoTime() >= deadlineNanos) return true;
+            long key = it.nextLong();
+            it.remove();
+            int chunkX = ChunkPos.getPackedX(key);
+            int chunkZ = ChunkPos.getPackedZ(key);
+            int height = computeMaxHeight(chunkX, chunkZ);
+            if (height == ChunkLineOfSight.UNKNOWN_HEIGHT) continue; // 그 사이 언로드됨: 알던 값 유지
+            if (heights.put(key, height) != height) {
+                listener.onHeightChanged(chunkX, chunkZ);
+            }
+        }
+        return false;
+    }
+
+    /** 블록 변경 또는 청크 수신 시 호출 */
+    public void invalidate(int chunkX, int chunkZ) {
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        if (heights.containsKey(key)) {
+            dirty.add(key);
+        }
+    }
+
+    /** 캐시 전체를 버릴 때마다 증가 (월드 변경, 초기화) */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public void clear() {
+        heights.clear();
+        dirty.clear();
+        world = null;
+        epoch++;
+    }
+
+    @Override
+    public int getMaxHeight(int chunkX, int chunkZ) {
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        if (heights.containsKey(key)) {
+            return heights.get(key);
+        }
+        int height = computeMaxHeight(chunkX, chunkZ);
+        heights.put(key, height); // 모르는 값도 기록해 두면 청크 수신 시 무효화되어 변경으로 알려짐
+        return height;
+    }
+
+    private int computeMaxHeight(int chunkX, int chunkZ) {
+        if (world == null) return ChunkLineOfSight.UNKNOWN_HEIGHT;
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+        if (chunk == null) return ChunkLineOfSight.UNKNOWN_HEIGHT;
+        Heightmap heightmap = chunk.getHeightmap(Heightmap.Type.MOTION_BLOCKING);
+        int max = ChunkLineOfSight.UNKNOWN_HEIGHT;
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                max = Math.max(max, heightmap.get(x, z));
+            }
+        }
+        return max;
+    }
+}
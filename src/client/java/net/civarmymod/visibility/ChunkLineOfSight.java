@@ -0,0 +1,80 @@
+package net.civarmymod.visibility;
+
+import java.util.Arrays;
+
+/**
+ * 청크 단위 시야선 계산
+ * 관찰자 청크 중심의 눈높이에서 주변 각 청크 중심의 최고 높이까지 광선을 그리고,
+ * 광선이 지나는 중간 청크의 최고 높이가 광선보다 높으면 가려진 것으로 봅니다.
+ *
+ * 관찰자 하나마다 주변 (2r+1)x(2r+1) 청크의 높이를 한 번만 읽어 지역 배열로 복사한 뒤 배열 위에서 광선을 진행합니다.
+ * 높이를 모르는 청크(로드된 적 없음)는 가리지 않는 것으로 취급합니다.
+ * Minecraft 클래스에 의존하지 않으므로 벤치마크에서도 그대로 사용합니다.
+ */
+public final class ChunkLineOfSight {
+    /** 높이를 모르는 청크 */
+    public static final int UNKNOWN_HEIGHT = Integer.MIN_VALUE;
+    /** 눈높이를 모를 때(서버 위치 스트림) 자기 청크 최고 높이 위로 더하는 값 */
+    public static final double OBSERVER_EYE_OFFSET = 2.0;
+    private static final int SAMPLES_PER_CHUNK = 4;
+
+    /** 청크별 최고 높이 (블록 Y, 모르면 UNKNOWN_HEIGHT) */
+    public interface HeightSource {
+        int getMaxHeight(int chunkX, int chunkZ);
+    }
+
+    private ChunkLineOfSight() {
+    }
+
+    /**
+     * 관찰자에게 보이는 청크 목록을 계산합니다. 관찰자 자신의 청크는 항상 포함됩니다.
+     * @param eyeY 관찰자 눈높이 (NaN이면 자기 청크 최고 높이 + OBSERVER_EYE_OFFSET)
+     * @return 보이는 청크 좌표를 {x0, z0, x1, z1, ...} 순서로 담은 배열
+     */
+    public static int[] trace(HeightSource heights, int originX, int originZ, double eyeY, int radius) {
+        int size = 2 * radius + 1;
+        int[] local = new int[size * size];
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                local[(dz + radius) * size + dx + radius] = heights.getMaxHeight(originX + dx, originZ + dz);
+            }
+        }
+        if (Double.isNaN(eyeY)) {
+            int own = local[radius * size + radius];
+            eyeY = own == UNKNOWN_HEIGHT ? Double.NaN : own + OBSERVER_EYE_OFFSET;
+        }
+
+        int[] visible = new int[size * size * 2];
+        int count = 0;
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                // 자기 위치 높이도 모르면 판단할 수 없으므로 정사각형 범위 전체를 보이는 것으로 처리
+                if (Double.isNaN(eyeY) || isClear(local, size, radius, dx, dz, eyeY)) {
+                    visible[count++] = originX + dx;
+                    visible[count++] = originZ + dz;
+                }
+            }
+        }
+        return Arrays.copyOf(visible, count);
+    }
+
+    /** 관찰자 청크 중심에서 (dx, dz) 청크 중심까지의 광선이 가려지지 않았는지 확인 */
+    private static boolean isClear(int[] local, int size, int radius, int dx, int dz, double eyeY) {
+        if (dx == 0 && dz == 0) return true;
+        int targetHeight = local[(dz + radius) * size + dx + radius];
+        double targetY = targetHeight == UNKNOWN_HEIGHT ? eyeY : targetHeight;
+        int steps = Math.max(Math.abs(dx), Math.abs(dz)) * SAMPLES_PER_CHUNK;
+        for (int i = 1; i < steps; i++) {
+            double t = (double) i / steps;
+            // 관찰자 청크 중심이 (0.5, 0.5)인 지역 좌표에서 표본 위치의 청크
+            int cx = (int) Math.floor(0.5 + dx * t);
+            int cz = (int) Math.floor(0.5 + dz * t);
+            if ((cx == 0 && cz == 0) || (cx == dx && cz == dz)) continue;
+            int height = local[(cz + radius) * size + cx + radius];
+            if (height != UNKNOWN_HEIGHT && height > eyeY + (targetY - eyeY) * t) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,421 @@
+package net.civarmymod.visibility;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 관찰자(NPC) 청크 좌표 주변 정사각형 범위를 표시한 청크 단위 비트셋
+ * 관찰자 범위의 경계 상자가 MAX_DENSE_WORDS 이하이면 상자 전체를 행마다 long 단위로 정렬한 밀집 격자로 만들고,
+ * 관찰자들이 멀리 떨어져 상자가 그보다 크면 64x64 청크 타일 중 실제로 닿은 타일만 만드는 희소 격자를 사용합니다.
+ * 두 경우 모두 비트 범위를 long 마스크로 한 번에 채우며, 좌표 계산은 int 범위를 넘지 않도록 잘라냅니다.
+ *
+ * 밀집 격자에서 관찰자가 많으면 공간 타일 순서로 정렬한 뒤 포크-조인 작업으로 나눠,
+ * 작업마다 자기가 건드린 행 범위만큼의 부분 비트셋을 만들고 OR로 합칩니다.
+ * PARALLEL_THRESHOLD보다 적거나 희소 격자이면 호출 스레드에서 바로 계산합니다.
+ * Minecraft 클래스에 의존하지 않으므로 벤치마크(src/benchmark)에서도 그대로 사용합니다.
+ */
+public final class ChunkVisibilityGrid {
+    /** 이보다 관찰자가 적으면 단일 스레드로 계산 */
+    public static final int PARALLEL_THRESHOLD = 512;
+    /** 허용하는 최대 표시 반경 (관찰자 하나가 표시하는 범위를 제한) */
+    public static final int MAX_RADIUS = 4096;
+    private static final int MIN_OBSERVERS_PER_TASK = 128;
+    private static final int TILE_SHIFT = 4; // 병렬 작업 분배: 16x16 청크 타일 단위로 관찰자를 묶음
+    private static final long MAX_DENSE_WORDS = 1L << 18; // 밀집 격자 상한 2MB (약 4096x4096 청크)
+    private static final int SPARSE_TILE_SHIFT = 6; // 희소 격자 타일: 64x64 청크 (행 하나가 long 하나)
+    private static final int SPARSE_TILE_MASK = (1 << SPARSE_TILE_SHIFT) - 1;
+    private static final int SPARSE_TILE_ROWS = 1 << SPARSE_TILE_SHIFT;
+
+    private static final ChunkVisibilityGrid EMPTY = new ChunkVisibilityGrid(0, 0, 0, 0, new long[0]);
+
+    // 밀집 격자 (희소 격자이면 bits == null)
+    private final int originX; // 격자의 최소 청크 좌표
+    private final int originZ;
+    private final int width;
+    private final int height;
+    private final int stride; // 행 하나의 long 개수
+    private final long[] bits;
+
+    // 희소 격자 (밀집 격자이면 null)
+    private final long[] tileKeys; // 정렬된 타일 키
+    private final long[][] tiles;  // tileKeys와 같은 순서, 타일마다 행별 비트 (long[SPARSE_TILE_ROWS])
+
+    /** 표시된 청크를 받는 콜백 */
+    public interface ChunkConsumer {
+        void accept(int chunkX, int chunkZ);
+    }
+
+    private ChunkVisibilityGrid(int originX, int originZ, int width, int height, long[] bits) {
+        this.originX = originX;
+        this.originZ = originZ;
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 63) >>> 6;
+        this.bits = bits;
+        this.tileKeys = null;
+        this.tiles = null;
+    }
+
+    private ChunkVisibilityGrid(long[] tileKeys, long[][] tiles) {
+        this.originX = 0;
+        this.originZ = 0;
+        this.width = 0;
+        this.height = 0;
+        this.stride = 0;
+        this.bits = null;
+        this.tileKeys = tileKeys;
+        this.tiles = tiles;
+    }
+
+    /**
+     * 각 관찰자 청크에서 체비쇼프 거리 radius 이내의 청크를 표시한 격자를 계산합니다.
+     * 범위가 int 좌표를 벗어나는 부분은 잘라냅니다.
+     * @param xs 관찰자 청크 X 좌표
+     * @param zs 관찰자 청크 Z 좌표
+     * @param count 사용할 관찰자 수 (배열 앞쪽부터)
+     * @param radius 표시 반경 (청크, 0 이상 MAX_RADIUS 이하)
+     * @param pool 병렬 계산에 사용할 풀 (null이면 항상 단일 스레드)
+     */
+    public static ChunkVisibilityGrid compute(int[] xs, int[] zs, int count, int radius, ForkJoinPool pool) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("반경이 범위를 벗어남: " + radius);
+        }
+        if (count <= 0) return EMPTY;
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        // 경계 상자는 long으로 계산해 int 범위로 잘라냄 (크기 계산의 넘침 방지)
+        int originX = clampToInt((long) minX - radius);
+        int originZ = clampToInt((long) minZ - radius);
+        long width = clampToInt((long) maxX + radius) - (long) originX + 1;
+        long height = clampToInt((long) maxZ + radius) - (long) originZ + 1;
+        long stride = (width + 63) >>> 6;
+        if (stride * height > MAX_DENSE_WORDS) {
+            return computeSparse(xs, zs, count, radius); // 멀리 떨어진 무리: 상자 전체를 만들지 않음
+        }
+        int w = (int) width;
+        int h = (int) height;
+        int s = (int) stride;
+
+        if (pool == null || pool.getParallelism() <= 1 || count < PARALLEL_THRESHOLD) {
+            long[] bits = new long[s * h];
+            for (int i = 0; i < count; i++) {
+                mark(bits, 0, s, w, h, xs[i] - originX, zs[i] - originZ, radius);
+            }
+            return new ChunkVisibilityGrid(originX, originZ, w, h, bits);
+        }
+
+        // 공간 타일 순서로 정렬해 각 작업이 인접한 관찰자만 처리하도록 함 (상위 32비트: 타일 키, 하위: 인덱스)
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            long tileX = ((xs[i] - originX) >>> TILE_SHIFT) & 0xFFFFL;
+            long tileZ = ((zs[i] - originZ) >>> TILE_SHIFT) & 0xFFFFL;
+            order[i] = ((tileZ << 16 | tileX) << 32) | i;
+        }
+        Arrays.sort(order);
+        int leafSize = Math.max(MIN_OBSERVERS_PER_TASK, count / (pool.getParallelism() * 2));
+        Partial result = pool.invoke(new MarkTask(xs, zs, order, 0, count, leafSize,
+                originX, originZ, s, w, h, radius));
+        return new ChunkVisibilityGrid(originX, originZ, w, h, result.toFullGrid(s, h));
+    }
+
+    /** 청크가 표시되어 있는지 확인 */
+    public boolean isSet(int chunkX, int chunkZ) {
+        if (bits == null) {
+            int index = Arrays.binarySearch(tileKeys, tileKey(chunkX >> SPARSE_TILE_SHIFT, chunkZ >> SPARSE_TILE_SHIFT));
+            return index >= 0 && (tiles[index][chunkZ & SPARSE_TILE_MASK] & (1L << chunkX)) != 0;
+        }
+        long x = (long) chunkX - originX;
+        long z = (long) chunkZ - originZ;
+        if (x < 0 || z < 0 || x >= width || z >= height) return false;
+        return (bits[(int) z * stride + (int) (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /** 표시된 모든 청크를 행 순서로 넘김 (희소 격자는 타일마다 행 순서) */
+    public void forEachSet(ChunkConsumer consumer) {
+        if (bits == null) {
+            for (int t = 0; t < tileKeys.length; t++) {
+                forEachSetInRows(tiles[t], SPARSE_TILE_ROWS, 1,
+                        tileX(tileKeys[t]) << SPARSE_TILE_SHIFT, tileZ(tileKeys[t]) << SPARSE_TILE_SHIFT, consumer);
+            }
+            return;
+        }
+        forEachSetInRows(bits, height, stride, originX, originZ, consumer);
+    }
+
+    /** 표시된 청크 수 */
+    public int cardinality() {
+        int total = 0;
+        if (bits == null) {
+            for (long[] rows : tiles) {
+                for (long word : rows) {
+                    total += Long.bitCount(word);
+                }
+            }
+            return total;
+        }
+        for (long word : bits) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    private static void forEachSetInRows(long[] words, int rows, int stride, int baseX, int baseZ, ChunkConsumer consumer) {
+        for (int z = 0; z < rows; z++) {
+            int rowBase = z * stride;
+            for (int w = 0; w < stride; w++) {
+                long word = words[rowBase + w];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    consumer.accept(baseX + (w << 6) + bit, baseZ + z);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 관찰자 하나의 (2r+1)x(2r+1) 범위를 표시 (격자 상대 좌표, 격자 밖은 잘라냄)
+     * @param firstRow bits의 첫 행이 격자의 몇 번째 행인지 (부분 비트셋용)
+     */
+    private static void mark(long[] bits, int firstRow, int stride, int width, int height, int x, int z, int radius) {
+        int fromCol = Math.max(0, x - radius);
+        int toCol = Math.min(width - 1, x + radius); // 포함
+        int fromRow = Math.max(0, z - radius);
+        int toRow = Math.min(height - 1, z + radius);
+        int fromWord = fromCol >>> 6;
+        int toWord = toCol >>> 6;
+        long firstMask = -1L << fromCol;
+        long lastMask = -1L >>> (63 - (toCol & 63));
+        for (int row = fromRow; row <= toRow; row++) {
+            int base = (row - firstRow) * stride;
+            if (fromWord == toWord) {
+                bits[base + fromWord] |= firstMask & lastMask;
+            } else {
+                bits[base + fromWord] |= firstMask;
+                for (int w = fromWord + 1; w < toWord; w++) {
+                    bits[base + w] = -1L;
+                }
+                bits[base + toWord] |= lastMask;
+            }
+        }
+    }
+
+    /** 경계 상자가 너무 큰 경우: 관찰자 범위가 닿은 64x64 타일만 만듦 */
+    private static ChunkVisibilityGrid computeSparse(int[] xs, int[] zs, int count, int radius) {
+        SparseTiles sparse = new SparseTiles();
+        for (int i = 0; i < count; i++) {
+            // radius >= 0이므로 넘침은 부호가 뒤집히는 것으로 확인 (int 범위 끝에서 잘라냄)
+            int x = xs[i];
+            int z = zs[i];
+            int fromCol = x - radius;
+            if (fromCol > x) fromCol = Integer.MIN_VALUE;
+            int toCol = x + radius;
+            if (toCol < x) toCol = Integer.MAX_VALUE;
+            int fromRow = z - radius;
+            if (fromRow > z) fromRow = Integer.MIN_VALUE;
+            int toRow = z + radius;
+            if (toRow < z) toRow = Integer.MAX_VALUE;
+            for (int tileZ = fromRow >> SPARSE_TILE_SHIFT, lastTileZ = toRow >> SPARSE_TILE_SHIFT; tileZ <= lastTileZ; tileZ++) {
+                int rowStart = Math.max(fromRow, tileZ << SPARSE_TILE_SHIFT) & SPARSE_TILE_MASK;
+                int rowEnd = Math.min(toRow, (tileZ << SPARSE_TILE_SHIFT) + SPARSE_TILE_MASK) & SPARSE_TILE_MASK;
+                for (int tileX = fromCol >> SPARSE_TILE_SHIFT, lastTileX = toCol >> SPARSE_TILE_SHIFT; tileX <= lastTileX; tileX++) {
+                    int colStart = Math.max(fromCol, tileX << SPARSE_TILE_SHIFT) & SPARSE_TILE_MASK;
+                    int colEnd = Math.min(toCol, (tileX << SPARSE_TILE_SHIFT) + SPARSE_TILE_MASK) & SPARSE_TILE_MASK;
+                    long mask = (-1L << colStart) & (-1L >>> (63 - colEnd));
+                    long[] rows = sparse.tile(tileKey(tileX, tileZ));
+                    for (int row = rowStart; row <= rowEnd; row++) {
+                        rows[row] |= mask;
+                    }
+                }
+            }
+        }
+        return sparse.toGrid();
+    }
+
+    private static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private static long tileKey(int tileX, int tileZ) {
+        return ((long) tileZ << 32) | (tileX & 0xFFFFFFFFL);
+    }
+
+    private static int tileX(long key) {
+        return (int) key;
+    }
+
+    private static int tileZ(long key) {
+        return (int) (key >> 32);
+    }
+
+    /** 희소 격자를 만드는 동안의 타일 모음 (박싱 없는 선형 탐사 해시 테이블) */
+    private static final class SparseTiles {
+        private long[] keys = new long[16];
+        private long[][] values = new long[16][];
+        private int size;
+        private long lastKey;
+        private long[] lastTile; // 같은 관찰자는 같은 타일을 연달아 건드리므로 마지막 타일을 기억
+
+        long[] tile(long key) {
+            if (lastTile != null && lastKey == key) return lastTile;
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            long[] rows = values[slot];
+            if (rows == null) {
+                rows = new long[SPARSE_TILE_ROWS];
+                keys[slot] = key;
+                values[slot] = rows;
+                if (++size * 2 > keys.length) grow();
+            }
+            lastKey = key;
+            lastTile = rows;
+            return rows;
+        }
+
+        ChunkVisibilityGrid toGrid() {
+            long[] sortedKeys = new long[size];
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) sortedKeys[count++] = keys[i];
+            }
+            Arrays.sort(sortedKeys);
+            long[][] sortedTiles = new long[size][];
+            for (int i = 0; i < size; i++) {
+                sortedTiles[i] = tile(sortedKeys[i]);
+            }
+            return new ChunkVisibilityGrid(sortedKeys, sortedTiles);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2][];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] == null) continue;
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /** 작업 하나가 만든 부분 비트셋: 실제로 건드린 행 범위 [minRow, maxRow]만 가짐 */
+    private static final class Partial {
+        long[] bits;
+        int minRow;
+        int maxRow;
+
+        Partial(long[] bits, int minRow, int maxRow) {
+            this.bits = bits;
+            this.minRow = minRow;
+            this.maxRow = maxRow;
+        }
+
+        /** 다른 부분 결과를 OR로 합침 (행 범위가 넓어지면 합친 범위로 다시 할당) */
+        Partial or(Partial other, int stride) {
+            int newMin = Math.min(minRow, other.minRow);
+            int newMax = Math.max(maxRow, other.maxRow);
+            if (newMin != minRow || newMax != maxRow) {
+                long[] merged = new long[(newMax - newMin + 1) * stride];
+                System.arraycopy(bits, 0, merged, (minRow - newMin) * stride, bits.length);
+                bits = merged;
+                minRow = newMin;
+                maxRow = newMax;
+            }
+            int offset = (other.minRow - minRow) * stride;
+            for (int i = 0; i < other.bits.length; i++) {
+                bits[offset + i] |= other.bits[i];
+            }
+            return this;
+        }
+
+        /** 격자 전체 크기의 비트셋으로 옮김 */
+        long[] toFullGrid(int stride, int height) {
+            if (minRow == 0 && maxRow == height - 1) return bits;
+            long[] full = new long[stride * height];
+            System.arraycopy(bits, 0, full, minRow * stride, bits.length);
+            return full;
+        }
+    }
+
+    private static final class MarkTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] xs;
+        private final int[] zs;
+        private final long[] order;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final int originX;
+        private final int originZ;
+        private final int stride;
+        private final int width;
+        private final int height;
+        private final int radius;
+
+        MarkTask(int[] xs, int[] zs, long[] order, int from, int to, int leafSize,
+                 int originX, int originZ, int stride, int width, int height, int radius) {
+            this.xs = xs;
+            this.zs = zs;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.stride = stride;
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leafSize) {
+                // 먼저 이 작업이 건드리는 행 범위를 구해 그만큼만 할당
+                int minRow = Integer.MAX_VALUE;
+                int maxRow = Integer.MIN_VALUE;
+                for (int i = from; i < to; i++) {
+                    int z = zs[(int) order[i]] - originZ;
+                    minRow = Math.min(minRow, z);
+                    maxRow = Math.max(maxRow, z);
+                }
+                minRow = Math.max(0, minRow - radius);
+                maxRow = Math.min(height - 1, maxRow + radius);
+                long[] bits = new long[(maxRow - minRow + 1) * stride];
+                for (int i = from; i < to; i++) {
+                    int index = (int) order[i];
+                    mark(bits, minRow, stride, width, height, xs[index] - originX, zs[index] - originZ, radius);
+                }
+                return new Partial(bits, minRow, maxRow);
+            }
+            int mid = (from + to) >>> 1;
+            MarkTask left = new MarkTask(xs, zs, order, from, mid, leafSize, originX, originZ, stride, width, height, radius);
+            MarkTask right = new MarkTask(xs, zs, order, mid, to, leafSize, originX, originZ, stride, width, height, radius);
+            right.fork();
+            Partial leftResult = left.compute();
+            return leftResult.or(right.join(), stride);
+        }
+    }
+}
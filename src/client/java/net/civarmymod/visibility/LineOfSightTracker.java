@@ -0,0 +1,219 @@
+package net.civarmymod.visibility;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 관찰자별 시야선 결과 캐시와 시간 예산 관리
+ * 관찰자가 다른 청크(또는 다른 높이 구간)로 옮기거나, 시야 정사각형 안 청크의 높이가 바뀌었을 때만 다시 계산합니다.
+ * 높이 변경은 invalidateChunk()로 청크 단위로 받아 그 청크를 시야 범위에 둔 관찰자만 무효화하며,
+ * 높이 세대(heightEpoch)가 바뀌면(월드 변경 등) 모든 결과를 버립니다.
+ * 마감 시각을 넘기면 남은 관찰자는 이전 결과를 그대로 쓰고(없으면 자기 청크만) 다음 업데이트로 미룹니다.
+ * 진행을 보장하기 위해 업데이트마다 최소 한 명은 계산합니다.
+ * 어떤 관찰자의 결과도 바뀌지 않았으면 이전 결과 배열을 그대로 돌려주므로 호출자는 배열 참조 비교로 파생 결과를 재사용할 수 있습니다.
+ * 메인 스레드 전용입니다.
+ */
+public final class LineOfSightTracker {
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private int pass = 0;
+    private long tracedCount = 0;
+    private long reusedCount = 0;
+
+    // 다음 업데이트 시작 시 적용할 높이 변경 청크 {x0, z0, x1, z1, ...}
+    private int[] changedChunks = new int[16];
+    private int changedCount = 0;
+
+    private Result lastResult;
+
+    private static final class Entry {
+        int chunkX;
+        int chunkZ;
+        int eyeCell; // 눈높이의 섹션 Y (모르면 Integer.MIN_VALUE)
+        int radius;
+        int heightEpoch;
+        boolean traced; // false면 예산 때문에 아직 계산하지 못함 (visible은 자기 청크만)
+        boolean stale;  // 시야 범위 안 청크의 높이가 바뀜
+        int[] visible; // {x0, z0, x1, z1, ...}
+        int lastPass;
+
+        boolean matches(int chunkX, int chunkZ, int eyeCell, int radius, int heightEpoch) {
+            return traced && !stale && this.chunkX == chunkX && this.chunkZ == chunkZ && this.eyeCell == eyeCell
+                    && this.radius == radius && this.heightEpoch == heightEpoch;
+        }
+
+        boolean covers(int x, int z) {
+            return Math.abs(x - chunkX) <= radius && Math.abs(z - chunkZ) <= radius;
+        }
+    }
+
+    /** 모든 관찰자의 보이는 청크 (중복 포함) */
+    public static final class Result {
+        public final int[] chunkXs;
+        public final int[] chunkZs;
+        public final int count;
+        public final int pending; // 예산 때문에 이전 결과나 자기 청크만 쓴 관찰자 수
+
+        private Result(int[] chunkXs, int[] chunkZs, int count, int pending) {
+            this.chunkXs = chunkXs;
+            this.chunkZs = chunkZs;
+            this.count = count;
+            this.pending = pending;
+        }
+    }
+
+    /** 청크 최고 높이가 바뀜: 다음 업데이트에서 이 청크를 시야 범위에 둔 관찰자만 다시 계산 */
+    public void invalidateChunk(int chunkX, int chunkZ) {
+        if (changedCount + 2 > changedChunks.length) {
+            changedChunks = Arrays.copyOf(changedChunks, changedChunks.length * 2);
+        }
+        changedChunks[changedCount++] = chunkX;
+        changedChunks[changedCount++] = chunkZ;
+    }
+
+    /**
+     * 관찰자 목록으로 보이는 청크를 모읍니다. 이번 목록에 없는 관찰자의 캐시는 버립니다.
+     * @param eyeYs 관찰자 눈높이 (NaN이면 모름)
+     * @param heightEpoch 높이 세대 (바뀌면 모든 결과를 다시 계산)
+     * @param deadlineNanos 새로 계산을 시작하지 않을 System.nanoTime() 시각
+     */
+    public Result update(UUID[] uuids, int[] chunkXs, int[] chunkZs, double[] eyeYs, int count, int radius,
+                         ChunkLineOfSight.HeightSource heights, int heightEpoch, long deadlineNanos) {
+        pass++;
+        applyChangedChunks();
+        boolean tracedAny = false;
+        boolean changed = lastResult == null;
+        int pending = 0;
+        int seen = 0;
+
+        for (int i = 0; i < count; i++) {
+            int eyeCell = Double.isNaN(eyeYs[i]) ? Integer.MIN_VALUE : (int) Math.floor(eyeYs[i]) >> 4;
+            Entry entry = entries.get(uuids[i]);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(uuids[i], entry);
+                changed = true;
+            } else if (entry.lastPass == pass) {
+                continue; // 같은 UUID가 두 번 들어옴 (엔티티와 서버 위치가 겹친 경우 등)
+            }
+            entry.lastPass = pass;
+            seen++;
+            if (entry.matches(chunkXs[i], chunkZs[i], eyeCell, radius, heightEpoch)) {
+                reusedCount++;
+            } else if (!tracedAny || System.nanoTime() < deadlineNanos) {
+                entry.chunkX = chunkXs[i];
+                entry.chunkZ = chunkZs[i];
+                entry.eyeCell = eyeCell;
+                entry.radius = radius;
+                entry.heightEpoch = heightEpoch;
+                entry.traced = true;
+                entry.stale = false;
+                entry.visible = ChunkLineOfSight.trace(heights, chunkXs[i], chunkZs[i], eyeYs[i], radius);
+                tracedAny = true;
+                tracedCount++;
+                changed = true;
+            } else {
+                // 예산 초과: 이전 결과가 있으면 잠시 그대로 쓰고, 없으면 자기 청크만
+                if (entry.visible == null || (!entry.traced && (entry.chunkX != chunkXs[i] || entry.chunkZ != chunkZs[i]))) {
+                    entry.chunkX = chunkXs[i];
+                    entry.chunkZ = chunkZs[i];
+                    entry.radius = radius;
+                    entry.visible = new int[] { chunkXs[i], chunkZs[i] };
+                    changed = true;
+                }
+                pending++;
+            }
+        }
+        if (seen < entries.size()) {
+            int currentPass = pass;
+            entries.values().removeIf(entry -> entry.lastPass != currentPass);
+            changed = true;
+        }
+
+        if (!changed && lastResult.pending == pending) {
+            return lastResult;
+        }
+        lastResult = changed ? gather(pending) : new Result(lastResult.chunkXs, lastResult.chunkZs, lastResult.count, pending);
+        return lastResult;
+    }
+
+    /** 모든 관찰자의 결과를 한 배열로 모음 (결과가 바뀐 업데이트에서만) */
+    private Result gather(int pending) {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.visible.length >> 1;
+        }
+        int[] xs = new int[size];
+        int[] zs = new int[size];
+        int index = 0;
+        for (Entry entry : entries.values()) {
+            int[] visible = entry.visible;
+            for (int j = 0; j < visible.length; j += 2) {
+                xs[index] = visible[j];
+                zs[index] = visible[j + 1];
+                index++;
+            }
+        }
+        return new Result(xs, zs, size, pending);
+    }
+
+    /** 높이가 바뀐 청크를 시야 범위에 둔 관찰자를 무효화 (관찰자마다 변경 목록과 시야 칸 중 적은 쪽을 확인) */
+    private void applyChangedChunks() {
+        if (changedCount == 0) return;
+        int changes = changedCount >> 1;
+        Set<Long> changedSet = null;
+        for (Entry entry : entries.values()) {
+            if (entry.stale || !entry.traced) continue;
+            int side = 2 * entry.radius + 1;
+            if (changes <= side * side) {
+                for (int j = 0; j < changedCount; j += 2) {
+                    if (entry.covers(changedChunks[j], changedChunks[j + 1])) {
+                        entry.stale = true;
+                        break;
+                    }
+                }
+            } else {
+                if (changedSet == null) {
+                    changedSet = new HashSet<>();
+                    for (int j = 0; j < changedCount; j += 2) {
+                        changedSet.add(pack(changedChunks[j], changedChunks[j + 1]));
+                    }
+                }
+                entry.stale = coversAny(entry, changedSet);
+            }
+        }
+        changedCount = 0;
+    }
+
+    private static boolean coversAny(Entry entry, Set<Long> chunks) {
+        for (int dz = -entry.radius; dz <= entry.radius; dz++) {
+            for (int dx = -entry.radius; dx <= entry.radius; dx++) {
+                if (chunks.contains(pack(entry.chunkX + dx, entry.chunkZ + dz))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static long pack(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /** 새로 계산한 누적 관찰자 수 */
+    public long getTracedCount() {
+        return tracedCount;
+    }
+
+    /** 캐시를 재사용한 누적 관찰자 수 */
+    public long getReusedCount() {
+        return reusedCount;
+    }
+
+    public void clear() {
+        entries.clear();
+        changedCount = 0;
+        lastResult = null;
+    }
+}
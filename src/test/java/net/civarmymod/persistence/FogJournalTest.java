@@ -0,0 +1,194 @@
+package net.civarmymod.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 저널 쓰기/재생 왕복, 잘린 꼬리 복구, 비우기, 재생 실패 시 적용 길이 검증
+ */
+class FogJournalTest {
+    private static final int HEADER_BYTES = 8;
+
+    @TempDir
+    Path dir;
+
+    /** 재생된 레코드 사본 (ChunkRecord는 재사용되므로 콜백 안에서 복사) */
+    private record Replayed(long chunkKey, byte state, String fogBlockId, byte snapshotMode,
+                            int bottomY, byte[] kinds, long[] hashes, List<byte[]> inlineData) {
+    }
+
+    private static List<Replayed> replayAll(Path file, long[] lengthOut) throws IOException {
+        List<Replayed> records = new ArrayList<>();
+        long length = FogJournal.replay(file, record -> {
+            List<byte[]> inline = new ArrayList<>();
+            for (int s = 0; s < record.sectionCount; s++) {
+                if (record.sectionKinds[s] == FogJournal.SECTION_INLINE) {
+                    inline.add(Arrays.copyOfRange(record.data, record.sectionOffsets[s], record.sectionOffsets[s] + 4));
+                }
+            }
+            records.add(new Replayed(record.chunkKey, record.state, record.fogBlockId, record.snapshotMode, record.bottomY,
+                    Arrays.copyOf(record.sectionKinds, record.sectionCount),
+                    Arrays.copyOf(record.sectionHashes, record.sectionCount), inline));
+        });
+        if (lengthOut != null) lengthOut[0] = length;
+        return records;
+    }
+
+    private static FogJournal.Batch stateBatch(long chunkKey, byte state) {
+        FogJournal.Batch batch = new FogJournal.Batch();
+        batch.beginChunk(chunkKey, state, "", FogJournal.SNAPSHOT_UNCHANGED);
+        batch.endChunk();
+        return batch;
+    }
+
+    @Test
+    void replaysAppendedRecords() throws IOException {
+        Path file = dir.resolve("test.fog.journal");
+        byte[] section = { 1, 2, 3, 4 };
+        FogJournal.Batch batch = new FogJournal.Batch();
+        batch.beginChunk(42L, (byte) 1, "minecraft:stone", FogJournal.SNAPSHOT_SET);
+        batch.snapshotHeader(-64, 3);
+        batch.inlineSection(0xABCDL, section, 0, section.length);
+        batch.airSection();
+        batch.refSection(0xABCDL);
+        batch.endChunk();
+        batch.beginChunk(-7L, FogSaveFormat.NO_STATE, "", FogJournal.SNAPSHOT_CLEARED);
+        batch.endChunk();
+
+        try (FogJournal journal = FogJournal.open(file, FogJournal.replay(file, record -> { }))) {
+            journal.append(batch);
+        }
+
+        long[] length = new long[1];
+        List<Replayed> records = replayAll(file, length);
+        assertEquals(Files.size(file), length[0]);
+        assertEquals(2, records.size());
+
+        Replayed first = records.get(0);
+        assertEquals(42L, first.chunkKey());
+        assertEquals(1, first.state());
+        assertEquals("minecraft:stone", first.fogBlockId());
+        assertEquals(FogJournal.SNAPSHOT_SET, first.snapshotMode());
+        assertEquals(-64, first.bottomY());
+        assertArrayEquals(new byte[] { FogJournal.SECTION_INLINE, FogJournal.SECTION_AIR, FogJournal.SECTION_REF }, first.kinds());
+        assertEquals(0xABCDL, first.hashes()[0]);
+        assertEquals(0xABCDL, first.hashes()[2]);
+        assertArrayEquals(section, first.inlineData().get(0));
+
+        Replayed second = records.get(1);
+        assertEquals(-7L, second.chunkKey());
+        assertEquals(FogSaveFormat.NO_STATE, second.state());
+        assertEquals("", second.fogBlockId());
+        assertEquals(FogJournal.SNAPSHOT_CLEARED, second.snapshotMode());
+    }
+
+    @Test
+    void dropsTornTailAndContinuesAfterIt() throws IOException {
+        Path file = dir.resolve("torn.fog.journal");
+        try (FogJournal journal = FogJournal.open(file, 0)) {
+            journal.append(stateBatch(1L, (byte) 1));
+        }
+        long intact = Files.size(file);
+        try (FogJournal journal = FogJournal.open(file, intact)) {
+            journal.append(stateBatch(2L, (byte) 2));
+        }
+        // 두 번째 레코드 중간에서 충돌한 것처럼 자름
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(intact + 6);
+        }
+
+        long[] length = new long[1];
+        List<Replayed> records = replayAll(file, length);
+        assertEquals(1, records.size());
+        assertEquals(1L, records.get(0).chunkKey());
+        assertEquals(intact, length[0]);
+
+        // 잘린 꼬리는 열 때 잘라내고 그 뒤에 이어 씀
+        try (FogJournal journal = FogJournal.open(file, length[0])) {
+            assertEquals(intact, journal.size());
+            journal.append(stateBatch(3L, (byte) 2));
+        }
+        records = replayAll(file, null);
+        assertEquals(2, records.size());
+        assertEquals(3L, records.get(1).chunkKey());
+    }
+
+    @Test
+    void stopsAtCorruptedRecord() throws IOException {
+        Path file = dir.resolve("crc.fog.journal");
+        try (FogJournal journal = FogJournal.open(file, 0)) {
+            journal.append(stateBatch(1L, (byte) 1));
+        }
+        long intact = Files.size(file);
+        try (FogJournal journal = FogJournal.open(file, intact)) {
+            journal.append(stateBatch(2L, (byte) 1));
+        }
+        byte[] raw = Files.readAllBytes(file);
+        raw[(int) intact + 6] ^= 0x5A; // 두 번째 레코드 본문 손상
+        Files.write(file, raw);
+
+        long[] length = new long[1];
+        List<Replayed> records = replayAll(file, length);
+        assertEquals(1, records.size());
+        assertEquals(intact, length[0]);
+    }
+
+    @Test
+    void truncateLeavesOnlyHeader() throws IOException {
+        Path file = dir.resolve("truncate.fog.journal");
+        try (FogJournal journal = FogJournal.open(file, 0)) {
+            journal.append(stateBatch(1L, (byte) 1));
+            journal.truncate();
+            assertEquals(HEADER_BYTES, journal.size());
+            journal.append(stateBatch(5L, (byte) 2)); // 비운 뒤에도 이어 쓸 수 있음
+        }
+        List<Replayed> records = replayAll(file, null);
+        assertEquals(1, records.size());
+        assertEquals(5L, records.get(0).chunkKey());
+    }
+
+    @Test
+    void reportsAppliedLengthWhenVisitorFails() throws IOException {
+        Path file = dir.resolve("fail.fog.journal");
+        try (FogJournal journal = FogJournal.open(file, 0)) {
+            journal.append(stateBatch(1L, (byte) 1));
+        }
+        long applied = Files.size(file);
+        try (FogJournal journal = FogJournal.open(file, applied)) {
+            journal.append(stateBatch(2L, (byte) 1));
+        }
+
+        FogJournal.ReplayException error = assertThrows(FogJournal.ReplayException.class, () ->
+                FogJournal.replay(file, record -> {
+                    if (record.chunkKey == 2L) throw new IllegalStateException("적용 실패");
+                }));
+        assertEquals(applied, error.getAppliedLength());
+    }
+
+    @Test
+    void rejectsUnknownHeader() throws IOException {
+        Path file = dir.resolve("header.fog.journal");
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        FogJournal.ReplayException error = assertThrows(FogJournal.ReplayException.class, () ->
+                FogJournal.replay(file, record -> { }));
+        assertEquals(0, error.getAppliedLength());
+    }
+
+    @Test
+    void missingFileReplaysNothing() throws IOException {
+        assertEquals(0, FogJournal.replay(dir.resolve("missing.fog.journal"), record -> { }));
+    }
+}
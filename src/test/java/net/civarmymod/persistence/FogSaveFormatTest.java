@@ -0,0 +1,89 @@
+package net.civarmymod.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 컬럼 형식 저장 파일 왕복과 손상 파일 거부 검증
+ */
+class FogSaveFormatTest {
+    @TempDir
+    Path dir;
+
+    private static FogSaveFormat.Columns sampleColumns() {
+        FogSaveFormat.Columns columns = new FogSaveFormat.Columns();
+        columns.chunkKeys = new long[] { Long.MIN_VALUE, -5L, 0L, 1L, 2L, 1L << 40, Long.MAX_VALUE };
+        columns.states = new byte[] { 1, 2, FogSaveFormat.NO_STATE, 1, 1, 2, 1 };
+        columns.fogBlockIndices = new short[] { 0, 1, 2, 0, 0, 1, 0 };
+        columns.fogBlockPalette = new String[] { "minecraft:stone", "civarmymod:fog_블록" };
+        columns.sectionBytes = 4;
+        columns.sectionTable = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+        columns.snapshotKeys = new long[] { -5L, 1L << 40 };
+        columns.snapshotBottomY = new int[] { -64, 0 };
+        columns.snapshotSectionCounts = new int[] { 3, 1 };
+        columns.snapshotSectionRefs = new int[] { 0, -1, 1, 1 };
+        return columns;
+    }
+
+    @Test
+    void roundTripsAllColumns() throws IOException {
+        Path file = dir.resolve("world.fog");
+        FogSaveFormat.Columns written = sampleColumns();
+        FogSaveFormat.write(file, written);
+
+        FogSaveFormat.Columns read = FogSaveFormat.read(file);
+        assertArrayEquals(written.chunkKeys, read.chunkKeys);
+        assertArrayEquals(written.states, read.states);
+        assertArrayEquals(written.fogBlockIndices, read.fogBlockIndices);
+        assertArrayEquals(written.fogBlockPalette, read.fogBlockPalette);
+        assertEquals(written.sectionBytes, read.sectionBytes);
+        assertArrayEquals(written.sectionTable, read.sectionTable);
+        assertArrayEquals(written.snapshotKeys, read.snapshotKeys);
+        assertArrayEquals(written.snapshotBottomY, read.snapshotBottomY);
+        assertArrayEquals(written.snapshotSectionCounts, read.snapshotSectionCounts);
+        assertArrayEquals(written.snapshotSectionRefs, read.snapshotSectionRefs);
+    }
+
+    @Test
+    void roundTripsEmptyColumns() throws IOException {
+        Path file = dir.resolve("empty.fog");
+        FogSaveFormat.write(file, new FogSaveFormat.Columns());
+        FogSaveFormat.Columns read = FogSaveFormat.read(file);
+        assertEquals(0, read.chunkKeys.length);
+        assertEquals(0, read.snapshotKeys.length);
+    }
+
+    @Test
+    void overwritesExistingFileWithoutLeavingTemp() throws IOException {
+        Path file = dir.resolve("replace.fog");
+        FogSaveFormat.write(file, sampleColumns());
+        FogSaveFormat.write(file, new FogSaveFormat.Columns());
+        assertEquals(0, FogSaveFormat.read(file).chunkKeys.length);
+        assertEquals(false, Files.exists(dir.resolve("replace.fog.tmp")));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = dir.resolve("truncated.fog");
+        FogSaveFormat.write(file, sampleColumns());
+        byte[] raw = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(raw, raw.length / 2));
+        assertThrows(IOException.class, () -> FogSaveFormat.read(file));
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = dir.resolve("foreign.fog");
+        Files.write(file, new byte[] { 0x78, 0x01, 0x03, 0x00, 0x00, 0x00, 0x00, 0x01 }); // 빈 deflate 스트림
+        assertThrows(IOException.class, () -> FogSaveFormat.read(file));
+    }
+}